@@ -0,0 +1,105 @@
+package com.github.steveice10.mc.auth.benchmark;
+
+import com.github.steveice10.mc.auth.util.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Base64 against its previous implementation and java.util.Base64.
+ * The sizes match a textures value (450 bytes) and a property signature (512 bytes); the "into" variants write
+ * into a reused array, and decodeString reads the characters of a String without copying them to bytes first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base64Benchmark {
+    @Param({"450", "512"})
+    private int size;
+
+    private byte[] data;
+    private byte[] encoded;
+    private String encodedString;
+    private byte[] encodeBuffer;
+    private byte[] decodeBuffer;
+
+    @Setup
+    public void setup() {
+        this.data = new byte[this.size];
+        new Random(0).nextBytes(this.data);
+        this.encoded = java.util.Base64.getEncoder().encode(this.data);
+        this.encodedString = new String(this.encoded, StandardCharsets.US_ASCII);
+        this.encodeBuffer = new byte[Base64.getEncodedLength(this.size)];
+        this.decodeBuffer = new byte[Base64.getMaxDecodedLength(this.encoded.length)];
+    }
+
+    @Benchmark
+    public byte[] encodeLegacy() {
+        return LegacyBase64.encode(this.data);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return Base64.encode(this.data);
+    }
+
+    @Benchmark
+    public int encodeInto() {
+        return Base64.encode(this.data, 0, this.data.length, this.encodeBuffer, 0);
+    }
+
+    @Benchmark
+    public byte[] encodeJdk() {
+        return java.util.Base64.getEncoder().encode(this.data);
+    }
+
+    @Benchmark
+    public byte[] decodeLegacy() {
+        return LegacyBase64.decode(this.encoded);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base64.decode(this.encoded);
+    }
+
+    @Benchmark
+    public int decodeInto() {
+        return Base64.decode(this.encoded, 0, this.encoded.length, this.decodeBuffer, 0);
+    }
+
+    @Benchmark
+    public int decodeString() {
+        return Base64.decode(this.encodedString, this.decodeBuffer, 0);
+    }
+
+    @Benchmark
+    public byte[] decodeStringLegacy() {
+        return LegacyBase64.decode(this.encodedString.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public byte[] decodeJdk() {
+        return java.util.Base64.getDecoder().decode(this.encoded);
+    }
+
+    @Benchmark
+    public byte[] decodeStringJdk() {
+        return java.util.Base64.getDecoder().decode(this.encodedString);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.steveice10.mc.auth.benchmark;
+
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.github.steveice10.mc.auth.service.SessionService;
+import com.github.steveice10.mc.auth.util.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hasJoined verification a server makes for every player login, from building the request URI to
+ * binding the profile and its signed textures property.
+ * Run with {@code -prof gc} to see the allocations per login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HasJoinedBenchmark {
+    private SessionService service;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        byte[] textures = new byte[450];
+        byte[] signature = new byte[512];
+        random.nextBytes(textures);
+        random.nextBytes(signature);
+
+        String body = "{\"id\":\"" + UUID.randomUUID().toString().replace("-", "") + "\",\"name\":\"Steve\",\"properties\":[{\"name\":\"textures\",\"value\":\""
+                + new String(Base64.encode(textures)) + "\",\"signature\":\"" + new String(Base64.encode(signature)) + "\"}]}";
+
+        this.service = new SessionService();
+        this.service.setTransport(new InMemoryTransport(200, body));
+    }
+
+    @Benchmark
+    public GameProfile getProfileByServer() throws Exception {
+        return this.service.getProfileByServer("Steve", "-2d6b4fe1b36f8e4e3b2cfea5bc7c8c6fa1c7e2a0");
+    }
+}
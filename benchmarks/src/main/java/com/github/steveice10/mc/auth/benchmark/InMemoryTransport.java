@@ -0,0 +1,35 @@
+package com.github.steveice10.mc.auth.benchmark;
+
+import com.github.steveice10.mc.auth.transport.HttpRequest;
+import com.github.steveice10.mc.auth.transport.HttpResponse;
+import com.github.steveice10.mc.auth.transport.HttpTransport;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transport that answers every request with the same canned body, so benchmarks measure the library and not the network.
+ */
+public class InMemoryTransport implements HttpTransport {
+    private static final Map<String, List<String>> HEADERS = Collections.singletonMap("Content-Type", Collections.singletonList("application/json"));
+
+    private final int statusCode;
+    private final byte[] body;
+
+    public InMemoryTransport(int statusCode, String body) {
+        this.statusCode = statusCode;
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public byte[] getBody() {
+        return this.body;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) {
+        return new HttpResponse(this.statusCode, request.getUri(), HEADERS, new ByteArrayInputStream(this.body));
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.steveice10.mc.auth.benchmark;
+
+import com.github.steveice10.mc.auth.data.CompactGameProfile;
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.github.steveice10.mc.auth.util.Base64;
+import com.github.steveice10.mc.auth.util.HTTP;
+import com.github.steveice10.mc.auth.util.UUIDSerializer;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Reports the retained heap size of a roster of profiles held as GameProfiles and as CompactGameProfiles.
+ * The profiles are bound from response JSON the way the services bind them, and the compact roster shares their
+ * property values, so the difference is the per-profile overhead of each representation.
+ * Run with {@code java -cp target/benchmarks.jar com.github.steveice10.mc.auth.benchmark.ProfileFootprint [profiles]}.
+ */
+public class ProfileFootprint {
+    private static final int DEFAULT_PROFILES = 10000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PROFILES;
+        report("Signed textures", count, true);
+        report("No properties", count, false);
+    }
+
+    private static void report(String shape, int count, boolean properties) {
+        List<GameProfile> profiles = bind(count, properties);
+        List<CompactGameProfile> compact = new ArrayList<>(count);
+        for(GameProfile profile : profiles) {
+            compact.add(new CompactGameProfile(profile));
+        }
+
+        long profileSize = GraphLayout.parseInstance(profiles).totalSize();
+        long compactSize = GraphLayout.parseInstance(compact).totalSize();
+        System.out.println(shape + ", " + count + " profiles:");
+        System.out.println("  GameProfile        " + profileSize + " bytes (" + profileSize / count + " per profile)");
+        System.out.println("  CompactGameProfile " + compactSize + " bytes (" + compactSize / count + " per profile)");
+    }
+
+    private static List<GameProfile> bind(int count, boolean properties) {
+        Random random = new Random(0);
+        byte[] textures = new byte[450];
+        byte[] signature = new byte[512];
+        List<GameProfile> profiles = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"id\":\"").append(UUIDSerializer.fromUUID(new UUID(random.nextLong(), random.nextLong())))
+                    .append("\",\"name\":\"Player").append(i).append('"');
+            if(properties) {
+                random.nextBytes(textures);
+                random.nextBytes(signature);
+                json.append(",\"properties\":[{\"name\":\"textures\",\"value\":\"").append(new String(Base64.encode(textures)))
+                        .append("\",\"signature\":\"").append(new String(Base64.encode(signature))).append("\"}]");
+            }
+
+            json.append('}');
+            profiles.add(HTTP.getGson().fromJson(json.toString(), GameProfile.class));
+        }
+
+        return profiles;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.steveice10.mc.auth.benchmark;
+
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.github.steveice10.mc.auth.transport.HttpRequest;
+import com.github.steveice10.mc.auth.transport.HttpResponse;
+import com.github.steveice10.mc.auth.util.HTTP;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a profile lookup response in one streaming pass, as HTTP does, against the previous approach of
+ * parsing the body into a JsonElement tree and binding the tree.
+ * Run with {@code -prof gc} to compare allocations per response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDecodeBenchmark {
+    private static final URI LOOKUP_URI = URI.create("https://api.mojang.com/profiles/minecraft");
+
+    @Param({"1", "10"})
+    private int profiles;
+
+    private InMemoryTransport transport;
+
+    @Setup
+    public void setup() {
+        StringBuilder body = new StringBuilder("[");
+        for(int i = 0; i < this.profiles; i++) {
+            if(i > 0) {
+                body.append(',');
+            }
+
+            body.append("{\"id\":\"").append(UUID.randomUUID().toString().replace("-", "")).append("\",\"name\":\"Player").append(i).append("\"}");
+        }
+
+        this.transport = new InMemoryTransport(200, body.append(']').toString());
+    }
+
+    @Benchmark
+    public GameProfile[] streaming() throws Exception {
+        return HTTP.makeRequest(this.transport, Proxy.NO_PROXY, LOOKUP_URI, null, GameProfile[].class);
+    }
+
+    @Benchmark
+    public GameProfile[] tree() throws IOException {
+        HttpRequest request = HTTP.createRequest(Proxy.NO_PROXY, LOOKUP_URI, null, null);
+        try(HttpResponse response = this.transport.execute(request);
+            Reader reader = new InputStreamReader(response.getBody(), StandardCharsets.UTF_8)) {
+            JsonElement json = new JsonParser().parse(reader);
+            if(json.isJsonObject() && json.getAsJsonObject().has("error")) {
+                throw new IOException(json.getAsJsonObject().get("error").getAsString());
+            }
+
+            return HTTP.getGson().fromJson(json, GameProfile[].class);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.steveice10.mc.auth.benchmark;
+
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.github.steveice10.mc.auth.util.Base64;
+import com.github.steveice10.mc.auth.util.UUIDSerializer;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a profile's textures property against the previous approach of base64-decoding it into a new
+ * array, building a String from it and binding the whole payload reflectively.
+ * Run with {@code -prof gc} to compare allocations per decode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TexturesBenchmark {
+    private static final int PAYLOADS = 256;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Gson reflective = new GsonBuilder().registerTypeAdapter(UUID.class, new UUIDSerializer()).create();
+
+    private UUID id;
+    private List<GameProfile.Property>[] properties;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Random random = new Random(0);
+        this.id = new UUID(random.nextLong(), random.nextLong());
+        this.properties = new List[PAYLOADS];
+        for(int i = 0; i < PAYLOADS; i++) {
+            StringBuilder payload = new StringBuilder();
+            payload.append("{\"timestamp\":").append(1600000000000L + random.nextInt())
+                    .append(",\"profileId\":\"").append(UUIDSerializer.fromUUID(this.id))
+                    .append("\",\"profileName\":\"Player").append(i)
+                    .append("\",\"signatureRequired\":true,\"textures\":{\"SKIN\":{\"url\":\"http://textures.minecraft.net/texture/").append(hash(random)).append('"');
+            if(random.nextBoolean()) {
+                payload.append(",\"metadata\":{\"model\":\"slim\"}");
+            }
+
+            payload.append('}');
+            if(random.nextInt(4) == 0) {
+                payload.append(",\"CAPE\":{\"url\":\"http://textures.minecraft.net/texture/").append(hash(random)).append("\"}");
+            }
+
+            payload.append("}}");
+            String value = new String(Base64.encode(payload.toString().getBytes(StandardCharsets.UTF_8)), StandardCharsets.US_ASCII);
+            this.properties[i] = Collections.singletonList(new GameProfile.Property("textures", value));
+        }
+    }
+
+    private static String hash(Random random) {
+        char[] hash = new char[64];
+        for(int i = 0; i < hash.length; i++) {
+            hash[i] = HEX[random.nextInt(16)];
+        }
+
+        return new String(hash);
+    }
+
+    private List<GameProfile.Property> nextProperties() {
+        List<GameProfile.Property> properties = this.properties[this.next];
+        this.next = (this.next + 1) % PAYLOADS;
+        return properties;
+    }
+
+    @Benchmark
+    public Map<GameProfile.TextureType, GameProfile.Texture> getTextures() throws Exception {
+        GameProfile profile = new GameProfile(this.id, "Player");
+        profile.setProperties(this.nextProperties());
+        return profile.getTextures(false);
+    }
+
+    @Benchmark
+    public Map<GameProfile.TextureType, GameProfile.Texture> stringAndReflection() {
+        String value = this.nextProperties().get(0).getValue();
+        String json = new String(Base64.decode(value.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        return this.reflective.fromJson(json, TexturesPayload.class).textures;
+    }
+
+    private static class TexturesPayload {
+        private long timestamp;
+        private UUID profileId;
+        private String profileName;
+        private boolean signatureRequired;
+        private Map<GameProfile.TextureType, GameProfile.Texture> textures;
+    }
+}
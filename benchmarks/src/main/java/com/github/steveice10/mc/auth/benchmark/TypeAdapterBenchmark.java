@@ -0,0 +1,76 @@
+package com.github.steveice10.mc.auth.benchmark;
+
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.github.steveice10.mc.auth.util.Base64;
+import com.github.steveice10.mc.auth.util.HTTP;
+import com.github.steveice10.mc.auth.util.UUIDSerializer;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares binding a profile with its signed textures property through the library's streaming adapters against
+ * Gson's reflective adapters, in both directions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeAdapterBenchmark {
+    private Gson streaming;
+    private Gson reflective;
+    private GameProfile profile;
+    private String json;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        byte[] textures = new byte[450];
+        byte[] signature = new byte[512];
+        random.nextBytes(textures);
+        random.nextBytes(signature);
+
+        this.streaming = HTTP.getGson();
+        this.reflective = new GsonBuilder().registerTypeAdapter(UUID.class, new UUIDSerializer()).create();
+
+        this.profile = new GameProfile(new UUID(random.nextLong(), random.nextLong()), "Steve");
+        this.profile.setProperties(Collections.singletonList(new GameProfile.Property("textures", new String(Base64.encode(textures)), new String(Base64.encode(signature)))));
+        this.json = this.streaming.toJson(this.profile);
+    }
+
+    @Benchmark
+    public GameProfile readStreaming() {
+        return this.streaming.fromJson(this.json, GameProfile.class);
+    }
+
+    @Benchmark
+    public GameProfile readReflective() {
+        return this.reflective.fromJson(this.json, GameProfile.class);
+    }
+
+    @Benchmark
+    public String writeStreaming() {
+        return this.streaming.toJson(this.profile);
+    }
+
+    @Benchmark
+    public String writeReflective() {
+        return this.reflective.toJson(this.profile);
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.steveice10.mc.auth.benchmark;
+
+import com.github.steveice10.mc.auth.util.UUIDSerializer;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares UUIDSerializer against its previous regex-based implementation and the dashed form UUID handles itself,
+ * and binds a 10-profile bulk lookup response with each serializer registered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UUIDBenchmark {
+    private static final int BULK_PROFILES = 10;
+
+    private final Gson gson = new GsonBuilder().registerTypeAdapter(UUID.class, new UUIDSerializer()).create();
+    private final Gson legacyGson = new GsonBuilder().registerTypeAdapter(UUID.class, new LegacyUUIDSerializer()).create();
+
+    private UUID id;
+    private String undashed;
+    private String dashed;
+    private String bulkResponse;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        this.id = new UUID(random.nextLong(), random.nextLong());
+        this.dashed = this.id.toString();
+        this.undashed = this.dashed.replace("-", "");
+
+        StringBuilder response = new StringBuilder("[");
+        for(int i = 0; i < BULK_PROFILES; i++) {
+            if(i > 0) {
+                response.append(',');
+            }
+
+            response.append("{\"id\":\"").append(new UUID(random.nextLong(), random.nextLong()).toString().replace("-", ""))
+                    .append("\",\"name\":\"Player").append(i).append("\"}");
+        }
+
+        this.bulkResponse = response.append(']').toString();
+    }
+
+    @Benchmark
+    public UUID fromString() {
+        return UUIDSerializer.fromString(this.undashed);
+    }
+
+    @Benchmark
+    public UUID fromStringLegacy() {
+        return LegacyUUIDSerializer.fromString(this.undashed);
+    }
+
+    @Benchmark
+    public UUID fromStringDashedJdk() {
+        return UUID.fromString(this.dashed);
+    }
+
+    @Benchmark
+    public String fromUUID() {
+        return UUIDSerializer.fromUUID(this.id);
+    }
+
+    @Benchmark
+    public String fromUUIDLegacy() {
+        return LegacyUUIDSerializer.fromUUID(this.id);
+    }
+
+    @Benchmark
+    public String toStringDashedJdk() {
+        return this.id.toString();
+    }
+
+    @Benchmark
+    public Profile[] bulkResponse() {
+        return this.gson.fromJson(this.bulkResponse, Profile[].class);
+    }
+
+    @Benchmark
+    public Profile[] bulkResponseLegacy() {
+        return this.legacyGson.fromJson(this.bulkResponse, Profile[].class);
+    }
+
+    public static class Profile {
+        private UUID id;
+        private String name;
+    }
+}
@@ -0,0 +1,649 @@
+package com.github.steveice10.mc.auth.cache;
+
+import com.github.steveice10.mc.auth.exception.request.ServiceUnavailableException;
+import com.github.steveice10.mc.auth.exception.request.TooManyRequestsException;
+import com.github.steveice10.mc.auth.metrics.MetricsRegistry;
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory cache whose entries expire a fixed time after they were written.
+ * The cache can be bounded by entry count and by total weight, evicting the least recently used entries first.
+ * Concurrent loads of the same key are merged, so a missing entry is only loaded once no matter how many
+ * callers ask for it at the same time.
+ * <p>
+ * With a max staleness set, expired entries are kept around for that much longer. Looking one up returns the stale
+ * value right away and refreshes it in the background, and if the refresh fails because the upstream is unavailable
+ * the stale value keeps being served until the max staleness has passed.
+ *
+ * @param <K> Type of the cache's keys.
+ * @param <V> Type of the cache's values.
+ */
+public class Cache<K, V> {
+    public static final long DEFAULT_REFRESH_RETRY_DELAY = 5000;
+
+    /**
+     * Outcome recorded for lookups that found a live entry.
+     */
+    public static final String HIT = "hit";
+    /**
+     * Outcome recorded for lookups that were served a stale entry.
+     */
+    public static final String STALE = "stale";
+    /**
+     * Outcome recorded for lookups that found no usable entry.
+     */
+    public static final String MISS = "miss";
+
+    private static final Predicate<Throwable> UPSTREAM_UNAVAILABLE = new Predicate<Throwable>() {
+        @Override
+        public boolean test(Throwable error) {
+            for(Throwable cause = error; cause != null; cause = cause.getCause()) {
+                if(cause instanceof ServiceUnavailableException || cause instanceof TooManyRequestsException) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    };
+
+    // Access-ordered, so iteration starts at the least recently used entry.
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, CompletableFuture<V>> loads = new HashMap<>();
+
+    private long ttlNanos;
+    private long maxStalenessNanos;
+    private long refreshRetryDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REFRESH_RETRY_DELAY);
+    private Predicate<? super Throwable> retainStaleIf = UPSTREAM_UNAVAILABLE;
+    private volatile String metricsName;
+    private int maximumSize = Integer.MAX_VALUE;
+    private long maximumWeight = Long.MAX_VALUE;
+    private Weigher<? super K, ? super V> weigher;
+    private long weight;
+
+    private long hitCount;
+    private long staleHitCount;
+    private long missCount;
+    private long loadSuccessCount;
+    private long loadFailureCount;
+    private long evictionCount;
+    private long expirationCount;
+
+    /**
+     * Creates a new Cache instance.
+     *
+     * @param ttl  Time entries stay in the cache after being written.
+     * @param unit Unit of the time to live.
+     * @throws IllegalArgumentException If the time to live is not positive.
+     */
+    public Cache(long ttl, TimeUnit unit) {
+        this.setTtl(ttl, unit);
+    }
+
+    /**
+     * Gets the time entries stay in the cache after being written.
+     *
+     * @param unit Unit to return the time in.
+     * @return The time to live of entries.
+     */
+    public synchronized long getTtl(TimeUnit unit) {
+        return unit.convert(this.ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the time entries stay in the cache after being written.
+     * The new time to live also applies to entries already in the cache.
+     *
+     * @param ttl  Time to live of entries.
+     * @param unit Unit of the time to live.
+     * @throws IllegalArgumentException If the time to live is not positive.
+     */
+    public synchronized void setTtl(long ttl, TimeUnit unit) {
+        if(ttl <= 0) {
+            throw new IllegalArgumentException("TTL must be positive.");
+        }
+
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Gets how long entries are kept and served after their time to live has passed.
+     *
+     * @param unit Unit to return the time in.
+     * @return The max staleness of entries, or 0 if stale entries are not served.
+     */
+    public synchronized long getMaxStaleness(TimeUnit unit) {
+        return unit.convert(this.maxStalenessNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how long entries are kept and served after their time to live has passed.
+     * Stale entries are returned by {@link #get(Object, Function)} while they are refreshed in the background.
+     *
+     * @param maxStaleness Max staleness of entries, or 0 to never serve stale entries.
+     * @param unit         Unit of the max staleness.
+     * @throws IllegalArgumentException If the max staleness is negative.
+     */
+    public synchronized void setMaxStaleness(long maxStaleness, TimeUnit unit) {
+        if(maxStaleness < 0) {
+            throw new IllegalArgumentException("Max staleness cannot be negative.");
+        }
+
+        this.maxStalenessNanos = unit.toNanos(maxStaleness);
+    }
+
+    /**
+     * Gets how long to wait after a failed refresh of a stale entry before refreshing it again.
+     *
+     * @param unit Unit to return the delay in.
+     * @return The refresh retry delay.
+     */
+    public synchronized long getRefreshRetryDelay(TimeUnit unit) {
+        return unit.convert(this.refreshRetryDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how long to wait after a failed refresh of a stale entry before refreshing it again.
+     * Until then, lookups of the entry are served the stale value without starting another refresh.
+     *
+     * @param delay Refresh retry delay.
+     * @param unit  Unit of the delay.
+     * @throws IllegalArgumentException If the delay is negative.
+     */
+    public synchronized void setRefreshRetryDelay(long delay, TimeUnit unit) {
+        if(delay < 0) {
+            throw new IllegalArgumentException("Refresh retry delay cannot be negative.");
+        }
+
+        this.refreshRetryDelayNanos = unit.toNanos(delay);
+    }
+
+    /**
+     * Sets which refresh failures keep a stale entry in the cache.
+     * Stale entries whose refresh fails with any other error are removed.
+     * By default, stale entries are kept when the upstream is unavailable or rate limiting requests,
+     * as signalled by a {@link ServiceUnavailableException} or {@link TooManyRequestsException} in the cause chain.
+     *
+     * @param predicate Predicate that tests refresh failures.
+     * @throws IllegalArgumentException If the predicate is null.
+     */
+    public synchronized void setRetainStaleIf(Predicate<? super Throwable> predicate) {
+        if(predicate == null) {
+            throw new IllegalArgumentException("Predicate cannot be null.");
+        }
+
+        this.retainStaleIf = predicate;
+    }
+
+    /**
+     * Gets the name lookups in this cache are recorded under in the default {@link MetricsRegistry}.
+     *
+     * @return The cache's metrics name, or null if lookups are not recorded.
+     */
+    public String getMetricsName() {
+        return this.metricsName;
+    }
+
+    /**
+     * Sets the name lookups in this cache are recorded under in the default {@link MetricsRegistry}.
+     * Each lookup is counted with the outcome {@link #HIT}, {@link #STALE} or {@link #MISS}.
+     *
+     * @param metricsName Name to record lookups under, or null to not record them.
+     */
+    public void setMetricsName(String metricsName) {
+        this.metricsName = metricsName;
+    }
+
+    /**
+     * Gets the maximum number of entries kept in the cache.
+     *
+     * @return The maximum number of entries.
+     */
+    public synchronized int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * Sets the maximum number of entries kept in the cache.
+     *
+     * @param maximumSize Maximum number of entries.
+     * @throws IllegalArgumentException If the maximum size is less than 1.
+     */
+    public synchronized void setMaximumSize(int maximumSize) {
+        if(maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be at least 1.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.evict();
+    }
+
+    /**
+     * Gets the maximum total weight of the entries kept in the cache.
+     *
+     * @return The maximum weight, or {@link Long#MAX_VALUE} if the cache is not bounded by weight.
+     */
+    public synchronized long getMaximumWeight() {
+        return this.maximumWeight;
+    }
+
+    /**
+     * Bounds the cache by the total weight of its entries.
+     * Entries already in the cache are weighed again with the given weigher.
+     *
+     * @param maximumWeight Maximum total weight.
+     * @param weigher       Weigher used to calculate the weight of entries.
+     * @throws IllegalArgumentException If the maximum weight is negative or the weigher is null.
+     */
+    public synchronized void setMaximumWeight(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        if(maximumWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight cannot be negative.");
+        }
+
+        if(weigher == null) {
+            throw new IllegalArgumentException("Weigher cannot be null.");
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.weight = 0;
+        for(Map.Entry<K, Entry<V>> entry : this.entries.entrySet()) {
+            entry.getValue().weight = this.weigh(entry.getKey(), entry.getValue().value);
+            this.weight += entry.getValue().weight;
+        }
+
+        this.evict();
+    }
+
+    /**
+     * Gets the number of entries in the cache, including stale and expired entries that have not been removed yet.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the total weight of the entries in the cache.
+     *
+     * @return The total weight, or 0 if the cache is not bounded by weight.
+     */
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * Gets the value cached for a key.
+     * Stale entries are not returned.
+     *
+     * @param key Key to look up.
+     * @return The cached value, or null if there is no live entry for the key.
+     * @throws IllegalArgumentException If the key is null.
+     */
+    public V getIfPresent(K key) {
+        if(key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+
+        V value = null;
+        synchronized(this) {
+            long now = System.nanoTime();
+            Entry<V> entry = this.getEntry(key, now);
+            if(entry != null && this.isFresh(entry, now)) {
+                value = entry.value;
+                this.hitCount++;
+            } else {
+                this.missCount++;
+            }
+        }
+
+        this.record(value != null ? HIT : MISS);
+        return value;
+    }
+
+    /**
+     * Gets the value cached for a key, loading it if there is no live entry.
+     * If a load of the key is already in progress, its result is shared instead of starting another load.
+     * Values that fail to load, or load as null, are not cached.
+     * If the entry is stale, its value is returned immediately and the entry is refreshed in the background.
+     *
+     * @param key    Key to look up.
+     * @param loader Function used to load the value of the key.
+     * @return A future completed with the value, or exceptionally with the error the load failed with.
+     * @throws IllegalArgumentException If the key or loader is null.
+     */
+    public CompletableFuture<V> get(final K key, Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+        if(key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+
+        if(loader == null) {
+            throw new IllegalArgumentException("Loader cannot be null.");
+        }
+
+        V value = null;
+        String outcome;
+        CompletableFuture<V> load = null;
+        CompletableFuture<V> existing = null;
+        synchronized(this) {
+            long now = System.nanoTime();
+            Entry<V> entry = this.getEntry(key, now);
+            if(entry != null && this.isFresh(entry, now)) {
+                this.hitCount++;
+                outcome = HIT;
+                value = entry.value;
+            } else if(entry != null) {
+                this.staleHitCount++;
+                outcome = STALE;
+                value = entry.value;
+                // Only one refresh runs at a time, and none until the retry delay of a failed one has passed.
+                if(!this.loads.containsKey(key) && now - entry.refreshAfter >= 0) {
+                    load = new CompletableFuture<>();
+                    this.loads.put(key, load);
+                }
+            } else {
+                this.missCount++;
+                outcome = MISS;
+                existing = this.loads.get(key);
+                if(existing == null) {
+                    load = new CompletableFuture<>();
+                    this.loads.put(key, load);
+                }
+            }
+        }
+
+        this.record(outcome);
+        if(load != null) {
+            this.load(key, load, loader);
+        }
+
+        if(value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        return copy(existing != null ? existing : load);
+    }
+
+    /**
+     * Caches a value, replacing any value already cached for its key.
+     *
+     * @param key   Key to cache the value under.
+     * @param value Value to cache.
+     * @throws IllegalArgumentException If the key or value is null.
+     */
+    public synchronized void put(K key, V value) {
+        if(key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+
+        if(value == null) {
+            throw new IllegalArgumentException("Value cannot be null.");
+        }
+
+        this.store(key, value, -1);
+    }
+
+    /**
+     * Caches a value with its own time to live, replacing any value already cached for its key.
+     * This is useful for entries that should expire sooner than the rest, such as cached lookup failures.
+     * Changing the cache's time to live does not affect such entries.
+     *
+     * @param key   Key to cache the value under.
+     * @param value Value to cache.
+     * @param ttl   Time the entry stays in the cache.
+     * @param unit  Unit of the time to live.
+     * @throws IllegalArgumentException If the key or value is null, or the time to live is not positive.
+     */
+    public synchronized void put(K key, V value, long ttl, TimeUnit unit) {
+        if(key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+
+        if(value == null) {
+            throw new IllegalArgumentException("Value cannot be null.");
+        }
+
+        if(ttl <= 0) {
+            throw new IllegalArgumentException("TTL must be positive.");
+        }
+
+        this.store(key, value, unit.toNanos(ttl));
+    }
+
+    /**
+     * Removes the entry for a key.
+     * A load of the key that is in progress still completes for its callers, but its result is not cached.
+     *
+     * @param key Key to remove.
+     */
+    public synchronized void invalidate(K key) {
+        Entry<V> entry = this.entries.remove(key);
+        if(entry != null) {
+            this.weight -= entry.weight;
+        }
+
+        this.loads.remove(key);
+    }
+
+    /**
+     * Removes all entries.
+     * Loads that are in progress still complete for their callers, but their results are not cached.
+     */
+    public synchronized void invalidateAll() {
+        this.entries.clear();
+        this.loads.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * Removes all entries that are past their time to live and max staleness.
+     * Such entries are otherwise only removed when they are looked up or evicted.
+     */
+    public synchronized void cleanUp() {
+        long now = System.nanoTime();
+        Iterator<Entry<V>> iterator = this.entries.values().iterator();
+        while(iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if(this.isExpired(entry, now)) {
+                iterator.remove();
+                this.weight -= entry.weight;
+                this.expirationCount++;
+            }
+        }
+    }
+
+    /**
+     * Gets a snapshot of the statistics recorded by the cache.
+     *
+     * @return The cache's statistics.
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(this.hitCount, this.staleHitCount, this.missCount, this.loadSuccessCount, this.loadFailureCount, this.evictionCount, this.expirationCount);
+    }
+
+    private void load(final K key, final CompletableFuture<V> load, Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+        CompletableFuture<? extends V> future;
+        try {
+            future = loader.apply(key);
+            if(future == null) {
+                throw new NullPointerException("Loader returned a null future.");
+            }
+        } catch(RuntimeException e) {
+            this.completeLoad(key, load, null, e);
+            return;
+        }
+
+        future.whenComplete(new BiConsumer<V, Throwable>() {
+            @Override
+            public void accept(V value, Throwable error) {
+                completeLoad(key, load, value, error);
+            }
+        });
+    }
+
+    private void completeLoad(K key, CompletableFuture<V> load, V value, Throwable error) {
+        error = error != null ? AsyncUtil.unwrap(error) : null;
+        synchronized(this) {
+            // The load may have been invalidated while it was in progress, in which case its result is dropped.
+            if(this.loads.get(key) == load) {
+                this.loads.remove(key);
+                if(error == null && value != null) {
+                    try {
+                        this.store(key, value, -1);
+                    } catch(RuntimeException e) {
+                        // The weigher rejected the value, so it fails the load instead of leaving its callers waiting.
+                        error = e;
+                        this.retainStale(key, e);
+                    }
+                } else if(error != null) {
+                    this.retainStale(key, error);
+                }
+            }
+
+            if(error == null) {
+                this.loadSuccessCount++;
+            } else {
+                this.loadFailureCount++;
+            }
+        }
+
+        if(error != null) {
+            load.completeExceptionally(error);
+        } else {
+            load.complete(value);
+        }
+    }
+
+    private void retainStale(K key, Throwable error) {
+        Entry<V> entry = this.entries.get(key);
+        if(entry == null) {
+            return;
+        }
+
+        boolean retain;
+        try {
+            retain = this.retainStaleIf.test(error);
+        } catch(RuntimeException e) {
+            retain = false;
+        }
+
+        if(retain) {
+            entry.refreshAfter = System.nanoTime() + this.refreshRetryDelayNanos;
+        } else {
+            this.entries.remove(key);
+            this.weight -= entry.weight;
+        }
+    }
+
+    private Entry<V> getEntry(K key, long now) {
+        Entry<V> entry = this.entries.get(key);
+        if(entry == null) {
+            return null;
+        }
+
+        if(this.isExpired(entry, now)) {
+            this.entries.remove(key);
+            this.weight -= entry.weight;
+            this.expirationCount++;
+            return null;
+        }
+
+        return entry;
+    }
+
+    private void store(K key, V value, long ttlNanos) {
+        Entry<V> entry = new Entry<>(value, this.weigh(key, value), System.nanoTime(), ttlNanos);
+        Entry<V> previous = this.entries.put(key, entry);
+        if(previous != null) {
+            this.weight -= previous.weight;
+        }
+
+        this.weight += entry.weight;
+        this.evict();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        Iterator<Entry<V>> iterator = this.entries.values().iterator();
+        while((this.entries.size() > this.maximumSize || this.weight > this.maximumWeight) && iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            iterator.remove();
+            this.weight -= entry.weight;
+            if(this.isExpired(entry, now)) {
+                this.expirationCount++;
+            } else {
+                this.evictionCount++;
+            }
+        }
+    }
+
+    private long weigh(K key, V value) {
+        if(this.weigher == null) {
+            return 0;
+        }
+
+        long weight = this.weigher.getWeight(key, value);
+        if(weight < 0) {
+            throw new IllegalStateException("Weigher returned a negative weight for " + key + ".");
+        }
+
+        return weight;
+    }
+
+    private boolean isFresh(Entry<V> entry, long now) {
+        return now - entry.writtenAt < this.getTtlNanos(entry);
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return now - entry.writtenAt >= this.getTtlNanos(entry) + this.maxStalenessNanos;
+    }
+
+    private long getTtlNanos(Entry<V> entry) {
+        return entry.ttlNanos >= 0 ? entry.ttlNanos : this.ttlNanos;
+    }
+
+    private void record(String outcome) {
+        String name = this.metricsName;
+        if(name != null) {
+            MetricsRegistry.getDefault().count(name, outcome);
+        }
+    }
+
+    private static <V> CompletableFuture<V> copy(CompletableFuture<V> future) {
+        // Callers get their own future so cancelling one does not affect the others sharing the load.
+        return future.thenApply(Function.<V>identity());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Cache{size=" + this.entries.size() + ", weight=" + this.weight + ", ttl=" + TimeUnit.NANOSECONDS.toMillis(this.ttlNanos) + "ms, maxStaleness=" + TimeUnit.NANOSECONDS.toMillis(this.maxStalenessNanos) + "ms}";
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long writtenAt;
+        // Time to live of this entry, or -1 to use the cache's.
+        private final long ttlNanos;
+        private long weight;
+        private long refreshAfter;
+
+        private Entry(V value, long weight, long writtenAt, long ttlNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.writtenAt = writtenAt;
+            this.ttlNanos = ttlNanos;
+            this.refreshAfter = writtenAt;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.steveice10.mc.auth.cache;
+
+/**
+ * Snapshot of the statistics recorded by a {@link Cache}.
+ */
+public class CacheStats {
+    private final long hitCount;
+    private final long staleHitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long evictionCount;
+    private final long expirationCount;
+
+    protected CacheStats(long hitCount, long staleHitCount, long missCount, long loadSuccessCount, long loadFailureCount, long evictionCount, long expirationCount) {
+        this.hitCount = hitCount;
+        this.staleHitCount = staleHitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.evictionCount = evictionCount;
+        this.expirationCount = expirationCount;
+    }
+
+    /**
+     * Gets the number of lookups that found a live entry.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Gets the number of lookups that were served a stale entry while it was refreshed.
+     *
+     * @return The number of stale hits.
+     */
+    public long getStaleHitCount() {
+        return this.staleHitCount;
+    }
+
+    /**
+     * Gets the number of lookups that found no live or stale entry.
+     * Misses that joined a load already in progress are included.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Gets the fraction of lookups that were hits.
+     * Stale hits are not counted as hits.
+     *
+     * @return The hit rate, or 1 if there have been no lookups.
+     */
+    public double getHitRate() {
+        long total = this.hitCount + this.staleHitCount + this.missCount;
+        return total == 0 ? 1 : (double) this.hitCount / total;
+    }
+
+    /**
+     * Gets the fraction of lookups that were served a stale entry.
+     *
+     * @return The stale hit rate, or 0 if there have been no lookups.
+     */
+    public double getStaleHitRate() {
+        long total = this.hitCount + this.staleHitCount + this.missCount;
+        return total == 0 ? 0 : (double) this.staleHitCount / total;
+    }
+
+    /**
+     * Gets the number of loads that completed successfully.
+     *
+     * @return The number of successful loads.
+     */
+    public long getLoadSuccessCount() {
+        return this.loadSuccessCount;
+    }
+
+    /**
+     * Gets the number of loads that failed.
+     *
+     * @return The number of failed loads.
+     */
+    public long getLoadFailureCount() {
+        return this.loadFailureCount;
+    }
+
+    /**
+     * Gets the number of entries evicted to stay within the cache's size bounds.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * Gets the number of entries removed because their time to live had passed.
+     *
+     * @return The number of expirations.
+     */
+    public long getExpirationCount() {
+        return this.expirationCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hitCount=" + this.hitCount + ", staleHitCount=" + this.staleHitCount + ", missCount=" + this.missCount + ", loadSuccessCount=" + this.loadSuccessCount + ", loadFailureCount=" + this.loadFailureCount + ", evictionCount=" + this.evictionCount + ", expirationCount=" + this.expirationCount + "}";
+    }
+}
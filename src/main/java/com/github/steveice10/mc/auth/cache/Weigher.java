@@ -0,0 +1,18 @@
+package com.github.steveice10.mc.auth.cache;
+
+/**
+ * Calculates the weight of cache entries, used to bound a cache by something other than its entry count.
+ *
+ * @param <K> Type of the cache's keys.
+ * @param <V> Type of the cache's values.
+ */
+public interface Weigher<K, V> {
+    /**
+     * Gets the weight of an entry.
+     *
+     * @param key   Key of the entry.
+     * @param value Value of the entry.
+     * @return The entry's weight, which must not be negative.
+     */
+    public long getWeight(K key, V value);
+}
@@ -0,0 +1,250 @@
+package com.github.steveice10.mc.auth.data;
+
+import com.github.steveice10.mc.auth.exception.property.PropertyException;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable, memory-lean form of a {@link GameProfile}, meant for keeping large numbers of profiles in memory.
+ * The ID is stored as two longs and the properties as a single array of their names, values and signatures,
+ * with property names interned and profiles without properties sharing one empty array.
+ * Textures are not cached, so {@link #getTextures(boolean)} decodes them on every call.
+ */
+public class CompactGameProfile {
+    private static final String[] NO_PROPERTIES = new String[0];
+    private static final int PROPERTY_FIELDS = 3;
+
+    private final long idMostSignificantBits;
+    private final long idLeastSignificantBits;
+    private final boolean hasId;
+    private final String name;
+    // Name, value and signature of each property, one after another.
+    private final String[] properties;
+
+    /**
+     * Creates a new CompactGameProfile instance with the contents of a profile.
+     *
+     * @param profile Profile to copy.
+     * @throws IllegalArgumentException If the profile is null.
+     */
+    public CompactGameProfile(GameProfile profile) {
+        this(requireProfile(profile).getId(), profile.getName(), profile.getProperties());
+    }
+
+    /**
+     * Creates a new CompactGameProfile instance.
+     *
+     * @param id         ID of the profile.
+     * @param name       Name of the profile.
+     * @param properties Properties of the profile, or null for none.
+     */
+    public CompactGameProfile(UUID id, String name, List<GameProfile.Property> properties) {
+        this.hasId = id != null;
+        this.idMostSignificantBits = id != null ? id.getMostSignificantBits() : 0;
+        this.idLeastSignificantBits = id != null ? id.getLeastSignificantBits() : 0;
+        this.name = name;
+
+        if(properties == null || properties.isEmpty()) {
+            this.properties = NO_PROPERTIES;
+        } else {
+            this.properties = new String[properties.size() * PROPERTY_FIELDS];
+            int index = 0;
+            for(GameProfile.Property property : properties) {
+                this.properties[index++] = property.getName() != null ? property.getName().intern() : null;
+                this.properties[index++] = property.getValue();
+                this.properties[index++] = property.getSignature();
+            }
+        }
+    }
+
+    private static GameProfile requireProfile(GameProfile profile) {
+        if(profile == null) {
+            throw new IllegalArgumentException("Profile cannot be null.");
+        }
+
+        return profile;
+    }
+
+    /**
+     * Gets whether the profile is complete.
+     *
+     * @return Whether the profile is complete.
+     */
+    public boolean isComplete() {
+        return this.hasId && this.name != null && !this.name.equals("");
+    }
+
+    /**
+     * Gets the ID of the profile.
+     * A new UUID instance is created on every call; {@link #getIdMostSignificantBits()} and
+     * {@link #getIdLeastSignificantBits()} avoid the allocation.
+     *
+     * @return The profile's ID, or null if it has none.
+     */
+    public UUID getId() {
+        return this.hasId ? new UUID(this.idMostSignificantBits, this.idLeastSignificantBits) : null;
+    }
+
+    /**
+     * Gets whether the profile has an ID.
+     *
+     * @return Whether the profile has an ID.
+     */
+    public boolean hasId() {
+        return this.hasId;
+    }
+
+    /**
+     * Gets the most significant 64 bits of the profile's ID.
+     *
+     * @return The most significant bits of the ID, or 0 if the profile has no ID.
+     */
+    public long getIdMostSignificantBits() {
+        return this.idMostSignificantBits;
+    }
+
+    /**
+     * Gets the least significant 64 bits of the profile's ID.
+     *
+     * @return The least significant bits of the ID, or 0 if the profile has no ID.
+     */
+    public long getIdLeastSignificantBits() {
+        return this.idLeastSignificantBits;
+    }
+
+    /**
+     * Gets the name of the profile.
+     *
+     * @return The profile's name.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the number of properties contained in the profile.
+     *
+     * @return The number of properties.
+     */
+    public int getPropertyCount() {
+        return this.properties.length / PROPERTY_FIELDS;
+    }
+
+    /**
+     * Gets an immutable list of properties contained in the profile.
+     * The properties are created as they are accessed.
+     *
+     * @return The profile's properties.
+     */
+    public List<GameProfile.Property> getProperties() {
+        return new AbstractList<GameProfile.Property>() {
+            @Override
+            public GameProfile.Property get(int index) {
+                if(index < 0 || index >= this.size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+                }
+
+                return toProperty(index * PROPERTY_FIELDS);
+            }
+
+            @Override
+            public int size() {
+                return getPropertyCount();
+            }
+        };
+    }
+
+    /**
+     * Gets a property contained in the profile.
+     *
+     * @param name Name of the property.
+     * @return The property with the specified name.
+     */
+    public GameProfile.Property getProperty(String name) {
+        int index = this.indexOf(name);
+        return index != -1 ? this.toProperty(index) : null;
+    }
+
+    /**
+     * Gets the value of a property contained in the profile.
+     *
+     * @param name Name of the property.
+     * @return The value of the property with the specified name, or null if there is no such property.
+     */
+    public String getPropertyValue(String name) {
+        int index = this.indexOf(name);
+        return index != -1 ? this.properties[index + 1] : null;
+    }
+
+    /**
+     * Gets an immutable map of texture types to textures contained in the profile.
+     * The textures are decoded on every call.
+     *
+     * @param requireSecure Whether to require the profile's texture payload to be securely signed.
+     * @return The profile's textures.
+     * @throws PropertyException If an error occurs decoding the profile's texture property.
+     */
+    public Map<GameProfile.TextureType, GameProfile.Texture> getTextures(boolean requireSecure) throws PropertyException {
+        return this.toGameProfile().getTextures(requireSecure);
+    }
+
+    /**
+     * Creates a mutable {@link GameProfile} with the contents of this profile.
+     *
+     * @return The created profile.
+     */
+    public GameProfile toGameProfile() {
+        GameProfile profile = new GameProfile(this.getId(), this.name);
+        if(this.properties.length > 0) {
+            profile.setProperties(this.getProperties());
+        }
+
+        return profile;
+    }
+
+    private int indexOf(String name) {
+        for(int index = 0; index < this.properties.length; index += PROPERTY_FIELDS) {
+            String propertyName = this.properties[index];
+            if(propertyName != null && propertyName.equals(name)) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    private GameProfile.Property toProperty(int index) {
+        return new GameProfile.Property(this.properties[index], this.properties[index + 1], this.properties[index + 2]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        } else if(o != null && this.getClass() == o.getClass()) {
+            CompactGameProfile that = (CompactGameProfile) o;
+            return this.hasId == that.hasId && this.idMostSignificantBits == that.idMostSignificantBits
+                    && this.idLeastSignificantBits == that.idLeastSignificantBits
+                    && (this.name != null ? this.name.equals(that.name) : that.name == null);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        // Same as GameProfile, computed without creating the UUID.
+        long bits = this.idMostSignificantBits ^ this.idLeastSignificantBits;
+        int result = this.hasId ? ((int) (bits >> 32)) ^ (int) bits : 0;
+        result = 31 * result + (this.name != null ? this.name.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactGameProfile{id=" + this.getId() + ", name=" + this.name + ", properties=" + this.getProperties() + "}";
+    }
+}
@@ -3,23 +3,30 @@ package com.github.steveice10.mc.auth.data;
 import com.github.steveice10.mc.auth.exception.property.ProfileTextureException;
 import com.github.steveice10.mc.auth.exception.property.PropertyException;
 import com.github.steveice10.mc.auth.exception.property.SignatureValidateException;
-import com.github.steveice10.mc.auth.service.SessionService;
 import com.github.steveice10.mc.auth.util.Base64;
+import com.github.steveice10.mc.auth.util.SignatureVerifier;
 import com.github.steveice10.mc.auth.util.UUIDSerializer;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.security.KeyFactory;
 import java.security.PublicKey;
-import java.security.Signature;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,29 +38,28 @@ import java.util.UUID;
  */
 public class GameProfile {
     private static final String[] WHITELISTED_DOMAINS = { ".minecraft.net", ".mojang.com" };
-    private static final PublicKey SIGNATURE_KEY;
-    private static final Gson GSON;
-
-    static {
-        try(InputStream in = SessionService.class.getResourceAsStream("/yggdrasil_session_pubkey.der")) {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-            byte[] buffer = new byte[4096];
-            int length = -1;
-            while((length = in.read(buffer)) != -1) {
-                out.write(buffer, 0, length);
+    private static final TypeAdapterFactory TYPE_ADAPTER_FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if(type.getRawType() == GameProfile.class) {
+                return (TypeAdapter<T>) new Adapter().nullSafe();
+            } else if(type.getRawType() == Property.class) {
+                return (TypeAdapter<T>) new Property.Adapter().nullSafe();
+            } else if(type.getRawType() == Texture.class) {
+                return (TypeAdapter<T>) new Texture.Adapter().nullSafe();
             }
 
-            out.close();
-
-            SIGNATURE_KEY = KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(out.toByteArray()));
-        } catch(Exception e) {
-            throw new ExceptionInInitializerError("Missing/invalid yggdrasil public key.");
+            return null;
         }
+    };
 
-        GSON = new GsonBuilder().registerTypeAdapter(UUID.class, new UUIDSerializer()).create();
-    }
-
+    private static final ThreadLocal<TexturesBuffer> TEXTURES_BUFFER = new ThreadLocal<TexturesBuffer>() {
+        @Override
+        protected TexturesBuffer initialValue() {
+            return new TexturesBuffer();
+        }
+    };
     private static boolean isWhitelistedDomain(String url) {
         URI uri;
         try {
@@ -143,7 +149,7 @@ public class GameProfile {
      */
     public List<Property> getProperties() {
         if(this.properties == null) {
-            this.properties = new ArrayList<>();
+            return Collections.emptyList();
         }
 
         return Collections.unmodifiableList(this.properties);
@@ -156,13 +162,12 @@ public class GameProfile {
      */
     public void setProperties(List<Property> properties) {
         if(this.properties == null) {
-            this.properties = new ArrayList<>();
+            this.properties = properties != null ? new ArrayList<>(properties) : new ArrayList<Property>();
         } else {
             this.properties.clear();
-        }
-
-        if(properties != null) {
-            this.properties.addAll(properties);
+            if(properties != null) {
+                this.properties.addAll(properties);
+            }
         }
 
         // Invalidate cached decoded textures.
@@ -177,7 +182,11 @@ public class GameProfile {
      * @return The property with the specified name.
      */
     public Property getProperty(String name) {
-        for(Property property : this.getProperties()) {
+        if(this.properties == null) {
+            return null;
+        }
+
+        for(Property property : this.properties) {
             if(property.getName().equals(name)) {
                 return property;
             }
@@ -212,15 +221,14 @@ public class GameProfile {
                         throw new ProfileTextureException("Signature is missing from textures payload.");
                     }
 
-                    if(!textures.isSignatureValid(SIGNATURE_KEY)) {
+                    if(!SignatureVerifier.getDefault().verify(textures)) {
                         throw new ProfileTextureException("Textures payload has been tampered with. (signature invalid)");
                     }
                 }
 
                 MinecraftTexturesPayload result;
                 try {
-                    String json = new String(Base64.decode(textures.getValue().getBytes(StandardCharsets.UTF_8)));
-                    result = GSON.fromJson(json, MinecraftTexturesPayload.class);
+                    result = decodeTexturesPayload(textures.getValue());
                 } catch(Exception e) {
                     throw new ProfileTextureException("Could not decode texture payload.", e);
                 }
@@ -295,6 +303,118 @@ public class GameProfile {
         return "GameProfile{id=" + this.id + ", name=" + this.name + ", properties=" + this.getProperties() + "}";
     }
 
+    private static MinecraftTexturesPayload decodeTexturesPayload(String value) throws IOException {
+        // Textures are decoded for every profile a server sees, so the payload goes from base64 to UTF-8 bytes
+        // to characters in per-thread buffers and is parsed from there, without building the JSON as a String.
+        TexturesBuffer buffer = TEXTURES_BUFFER.get();
+        try {
+            int length = Base64.decode(value, buffer.bytes(value.length() * 3 / 4 + 3), 0);
+            ByteBuffer in = ByteBuffer.wrap(buffer.bytes, 0, length);
+            CharBuffer out = CharBuffer.wrap(buffer.chars(length));
+
+            CharsetDecoder decoder = buffer.decoder.reset();
+            decoder.decode(in, out, true);
+            decoder.flush(out);
+            if(out.position() == 0) {
+                return null;
+            }
+
+            JsonReader reader = new JsonReader(new CharArrayReader(buffer.chars, 0, out.position()));
+            reader.setLenient(true);
+            if(reader.peek() == JsonToken.NULL) {
+                return null;
+            }
+
+            return MinecraftTexturesPayload.read(reader);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static TextureType getTextureType(String name) {
+        for(TextureType type : TextureType.values()) {
+            if(type.name().equals(name)) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets a factory that binds profiles, properties and textures through streaming adapters instead of reflection.
+     * It is registered on the library's own Gson instance; register it on another GsonBuilder to encode profiles
+     * the same way there. Only the ID, name and properties of a profile are encoded.
+     *
+     * @return The type adapter factory.
+     */
+    public static TypeAdapterFactory getTypeAdapterFactory() {
+        return TYPE_ADAPTER_FACTORY;
+    }
+
+    /**
+     * Streaming JSON adapter for profiles.
+     * Only the ID, name and properties are encoded; decoded textures are derived from the properties.
+     */
+    static class Adapter extends TypeAdapter<GameProfile> {
+        private final Property.Adapter propertyAdapter = new Property.Adapter();
+
+        @Override
+        public void write(JsonWriter out, GameProfile value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.id != null ? UUIDSerializer.fromUUID(value.id) : null);
+            out.name("name").value(value.name);
+            if(value.properties != null) {
+                out.name("properties");
+                out.beginArray();
+                for(Property property : value.properties) {
+                    this.propertyAdapter.write(out, property);
+                }
+
+                out.endArray();
+            }
+
+            out.endObject();
+        }
+
+        @Override
+        public GameProfile read(JsonReader in) throws IOException {
+            UUID id = null;
+            String name = null;
+            List<Property> properties = null;
+            in.beginObject();
+            while(in.hasNext()) {
+                String field = in.nextName();
+                if(in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else if(field.equals("id")) {
+                    id = UUIDSerializer.fromString(in.nextString());
+                } else if(field.equals("name")) {
+                    name = in.nextString();
+                } else if(field.equals("properties")) {
+                    properties = new ArrayList<>(1);
+                    in.beginArray();
+                    while(in.hasNext()) {
+                        if(in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            properties.add(this.propertyAdapter.read(in));
+                        }
+                    }
+
+                    in.endArray();
+                } else {
+                    in.skipValue();
+                }
+            }
+
+            in.endObject();
+            GameProfile profile = new GameProfile(id, name);
+            profile.properties = properties;
+            return profile;
+        }
+    }
+
     /**
      * A property belonging to a profile.
      */
@@ -364,6 +484,7 @@ public class GameProfile {
 
         /**
          * Gets whether this property's signature is valid.
+         * The signature is checked by the verifier {@link SignatureVerifier#forKey(PublicKey)} shares for the key.
          *
          * @param key Public key to validate the signature against.
          * @return Whether the signature is valid.
@@ -374,20 +495,52 @@ public class GameProfile {
                 return false;
             }
 
-            try {
-                Signature sig = Signature.getInstance("SHA1withRSA");
-                sig.initVerify(key);
-                sig.update(this.value.getBytes());
-                return sig.verify(Base64.decode(this.signature.getBytes("UTF-8")));
-            } catch(Exception e) {
-                throw new SignatureValidateException("Could not validate property signature.", e);
-            }
+            return SignatureVerifier.forKey(key).verify(this);
         }
 
         @Override
         public String toString() {
             return "Property{name=" + this.name + ", value=" + this.value + ", signature=" + this.signature + "}";
         }
+
+        /**
+         * Streaming JSON adapter for properties.
+         */
+        private static class Adapter extends TypeAdapter<Property> {
+            @Override
+            public void write(JsonWriter out, Property value) throws IOException {
+                out.beginObject();
+                out.name("name").value(value.name);
+                out.name("value").value(value.value);
+                out.name("signature").value(value.signature);
+                out.endObject();
+            }
+
+            @Override
+            public Property read(JsonReader in) throws IOException {
+                String name = null;
+                String value = null;
+                String signature = null;
+                in.beginObject();
+                while(in.hasNext()) {
+                    String field = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(field.equals("name")) {
+                        name = in.nextString();
+                    } else if(field.equals("value")) {
+                        value = in.nextString();
+                    } else if(field.equals("signature")) {
+                        signature = in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return new Property(name, value, signature);
+            }
+        }
     }
 
     /**
@@ -422,7 +575,19 @@ public class GameProfile {
          */
         public Texture(String url, Map<String, String> metadata) {
             this.url = url;
-            this.metadata = new HashMap<>(metadata);
+            this.metadata = copyMetadata(metadata);
+        }
+
+        private static Map<String, String> copyMetadata(Map<String, String> metadata) {
+            // Most textures have no metadata or only a model, so those are stored without a hash table.
+            if(metadata == null || metadata.isEmpty()) {
+                return Collections.emptyMap();
+            } else if(metadata.size() == 1) {
+                Map.Entry<String, String> entry = metadata.entrySet().iterator().next();
+                return Collections.singletonMap(entry.getKey(), entry.getValue());
+            }
+
+            return new HashMap<>(metadata);
         }
 
         /**
@@ -473,13 +638,140 @@ public class GameProfile {
         public String toString() {
             return "Texture{url=" + this.url + ", model=" + this.getModel() + ", hash=" + this.getHash() + "}";
         }
+
+        /**
+         * Streaming JSON adapter for textures.
+         */
+        private static class Adapter extends TypeAdapter<Texture> {
+            @Override
+            public void write(JsonWriter out, Texture value) throws IOException {
+                out.beginObject();
+                out.name("url").value(value.url);
+                if(value.metadata != null) {
+                    out.name("metadata");
+                    out.beginObject();
+                    for(Map.Entry<String, String> entry : value.metadata.entrySet()) {
+                        out.name(entry.getKey()).value(entry.getValue());
+                    }
+
+                    out.endObject();
+                }
+
+                out.endObject();
+            }
+
+            @Override
+            public Texture read(JsonReader in) throws IOException {
+                String url = null;
+                Map<String, String> metadata = Collections.emptyMap();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String field = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(field.equals("url")) {
+                        url = in.nextString();
+                    } else if(field.equals("metadata")) {
+                        metadata = new HashMap<>();
+                        in.beginObject();
+                        while(in.hasNext()) {
+                            String key = in.nextName();
+                            if(in.peek() == JsonToken.NULL) {
+                                in.nextNull();
+                            } else {
+                                metadata.put(key, in.nextString());
+                            }
+                        }
+
+                        in.endObject();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return new Texture(url, metadata);
+            }
+        }
     }
 
     private static class MinecraftTexturesPayload {
-        public long timestamp;
-        public UUID profileId;
-        public String profileName;
-        public boolean isPublic;
+        private static final Texture.Adapter TEXTURE_ADAPTER = new Texture.Adapter();
+
         public Map<GameProfile.TextureType, GameProfile.Texture> textures;
+
+        /**
+         * Reads a textures payload. Payloads are only ever decoded, so this is not a Gson type adapter.
+         */
+        private static MinecraftTexturesPayload read(JsonReader in) throws IOException {
+            // Only the textures are used; the timestamp and profile fields are skipped without being decoded.
+            MinecraftTexturesPayload payload = new MinecraftTexturesPayload();
+            in.beginObject();
+            while(in.hasNext()) {
+                String field = in.nextName();
+                if(in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else if(field.equals("textures")) {
+                    payload.textures = new EnumMap<>(TextureType.class);
+                    in.beginObject();
+                    while(in.hasNext()) {
+                        TextureType type = getTextureType(in.nextName());
+                        if(type != null && in.peek() != JsonToken.NULL) {
+                            payload.textures.put(type, TEXTURE_ADAPTER.read(in));
+                        } else {
+                            // Texture types this version does not know about are ignored.
+                            in.skipValue();
+                        }
+                    }
+
+                    in.endObject();
+                } else {
+                    in.skipValue();
+                }
+            }
+
+            in.endObject();
+            return payload;
+        }
+    }
+
+    private static class TexturesBuffer {
+        private static final int INITIAL_SIZE = 1024;
+        private static final int MAX_RETAINED_SIZE = 65536;
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private byte[] bytes = new byte[INITIAL_SIZE];
+        private char[] chars = new char[INITIAL_SIZE];
+
+        private byte[] bytes(int size) {
+            if(this.bytes.length < size) {
+                this.bytes = new byte[size];
+            }
+
+            return this.bytes;
+        }
+
+        private char[] chars(int size) {
+            // UTF-8 never decodes to more characters than it has bytes.
+            if(this.chars.length < size) {
+                this.chars = new char[size];
+            }
+
+            return this.chars;
+        }
+
+        private void release() {
+            // Unusually large payloads are not kept around for the lifetime of the thread.
+            if(this.bytes.length > MAX_RETAINED_SIZE) {
+                this.bytes = new byte[INITIAL_SIZE];
+            }
+
+            if(this.chars.length > MAX_RETAINED_SIZE) {
+                this.chars = new char[INITIAL_SIZE];
+            }
+        }
     }
 }
@@ -0,0 +1,23 @@
+package com.github.steveice10.mc.auth.exception.request;
+
+/**
+ * Thrown when a request times out or cannot be completed before its deadline.
+ */
+public class RequestTimeoutException extends ServiceUnavailableException {
+    private static final long serialVersionUID = 1L;
+
+    public RequestTimeoutException() {
+    }
+
+    public RequestTimeoutException(String message) {
+        super(message);
+    }
+
+    public RequestTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RequestTimeoutException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.steveice10.mc.auth.exception.request;
+
+/**
+ * Thrown when a service rejects a request because too many requests have been made.
+ */
+public class TooManyRequestsException extends RequestException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfter;
+
+    public TooManyRequestsException() {
+        this.retryAfter = -1;
+    }
+
+    public TooManyRequestsException(String message) {
+        this(message, -1);
+    }
+
+    public TooManyRequestsException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public TooManyRequestsException(String message, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = -1;
+    }
+
+    public TooManyRequestsException(Throwable cause) {
+        super(cause);
+        this.retryAfter = -1;
+    }
+
+    /**
+     * Gets the time the service asked to wait before retrying.
+     *
+     * @return The time to wait in milliseconds, or -1 if the service did not specify one.
+     */
+    public long getRetryAfter() {
+        return this.retryAfter;
+    }
+}
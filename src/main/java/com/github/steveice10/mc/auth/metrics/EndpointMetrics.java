@@ -0,0 +1,144 @@
+package com.github.steveice10.mc.auth.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics recorded for a single endpoint or operation.
+ */
+public class EndpointMetrics {
+    /**
+     * Outcome recorded for successful operations.
+     */
+    public static final String SUCCESS = "success";
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> lookups = new ConcurrentHashMap<>();
+
+    protected EndpointMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of the endpoint or operation.
+     *
+     * @return The endpoint's name.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the latency histogram of the endpoint.
+     *
+     * @return The endpoint's latency histogram.
+     */
+    public LatencyHistogram getLatency() {
+        return this.latency;
+    }
+
+    /**
+     * Gets the number of operations currently in flight.
+     *
+     * @return The number of operations in flight.
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * Gets the number of successful operations.
+     *
+     * @return The number of successes.
+     */
+    public long getSuccessCount() {
+        return this.getCount(SUCCESS);
+    }
+
+    /**
+     * Gets the number of operations with the given outcome.
+     *
+     * @param outcome {@link #SUCCESS} or the simple class name of an exception, such as "InvalidCredentialsException".
+     * @return The number of operations with the outcome.
+     */
+    public long getCount(String outcome) {
+        return sum(this.outcomes, outcome);
+    }
+
+    /**
+     * Gets the number of operations by outcome.
+     *
+     * @return A snapshot of the number of operations by {@link #SUCCESS} or exception class name.
+     */
+    public Map<String, Long> getOutcomes() {
+        return snapshot(this.outcomes);
+    }
+
+    /**
+     * Gets the number of lookups counted through {@link MetricsRegistry#count(String, String)} with the given outcome.
+     *
+     * @param outcome Outcome of the lookups, such as "hit".
+     * @return The number of lookups with the outcome.
+     */
+    public long getLookupCount(String outcome) {
+        return sum(this.lookups, outcome);
+    }
+
+    /**
+     * Gets the number of lookups counted through {@link MetricsRegistry#count(String, String)} by outcome.
+     * Lookups are not operations, so they are not part of {@link #getOutcomes()}.
+     *
+     * @return A snapshot of the number of lookups by outcome.
+     */
+    public Map<String, Long> getLookups() {
+        return snapshot(this.lookups);
+    }
+
+    protected void start() {
+        this.inFlight.incrementAndGet();
+    }
+
+    protected void end(long nanos, String outcome) {
+        this.inFlight.decrementAndGet();
+        this.latency.record(nanos);
+        increment(this.outcomes, outcome);
+    }
+
+    protected void count(String outcome) {
+        increment(this.lookups, outcome);
+    }
+
+    private static void increment(Map<String, LongAdder> counts, String outcome) {
+        LongAdder count = counts.get(outcome);
+        if(count == null) {
+            count = new LongAdder();
+            LongAdder existing = counts.putIfAbsent(outcome, count);
+            if(existing != null) {
+                count = existing;
+            }
+        }
+
+        count.increment();
+    }
+
+    private static long sum(Map<String, LongAdder> counts, String outcome) {
+        LongAdder count = counts.get(outcome);
+        return count != null ? count.sum() : 0;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counts) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        for(Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        return Collections.unmodifiableMap(snapshot);
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.steveice10.mc.auth.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed buckets.
+ * Recording only increments counters, so it can be called from any number of threads without contention on a lock.
+ */
+public class LatencyHistogram {
+    private static final long[] BOUNDS = {
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(5),
+            TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(25),
+            TimeUnit.MILLISECONDS.toNanos(50),
+            TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(250),
+            TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(2500),
+            TimeUnit.SECONDS.toNanos(5),
+            TimeUnit.SECONDS.toNanos(10),
+            TimeUnit.SECONDS.toNanos(30)
+    };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos Duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while(bucket < BOUNDS.length && nanos > BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        this.counts.incrementAndGet(bucket);
+        this.sum.add(nanos);
+    }
+
+    /**
+     * Gets the number of buckets of this histogram, including the final unbounded bucket.
+     *
+     * @return The number of buckets.
+     */
+    public int getBucketCount() {
+        return BOUNDS.length + 1;
+    }
+
+    /**
+     * Gets the inclusive upper bound of a bucket.
+     *
+     * @param bucket Index of the bucket.
+     * @param unit   Unit to return the bound in.
+     * @return The upper bound of the bucket, or {@link Long#MAX_VALUE} for the final bucket.
+     */
+    public long getUpperBound(int bucket, TimeUnit unit) {
+        return bucket < BOUNDS.length ? unit.convert(BOUNDS[bucket], TimeUnit.NANOSECONDS) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the number of durations recorded in a bucket.
+     *
+     * @param bucket Index of the bucket.
+     * @return The number of durations in the bucket.
+     */
+    public long getCount(int bucket) {
+        return this.counts.get(bucket);
+    }
+
+    /**
+     * Gets the total number of durations recorded.
+     *
+     * @return The number of durations.
+     */
+    public long getCount() {
+        long count = 0;
+        for(int bucket = 0; bucket < this.counts.length(); bucket++) {
+            count += this.counts.get(bucket);
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the sum of all durations recorded.
+     *
+     * @param unit Unit to return the sum in.
+     * @return The sum of the durations.
+     */
+    public long getSum(TimeUnit unit) {
+        return unit.convert(this.sum.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets an estimate of a percentile of the recorded durations.
+     * The estimate is the upper bound of the bucket the percentile falls into.
+     *
+     * @param percentile Percentile between 0 and 1.
+     * @param unit       Unit to return the estimate in.
+     * @return The estimated percentile, or 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        long total = this.getCount();
+        if(total == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for(int bucket = 0; bucket < this.counts.length(); bucket++) {
+            seen += this.counts.get(bucket);
+            if(seen >= target) {
+                return this.getUpperBound(bucket, unit);
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.steveice10.mc.auth.metrics;
+
+/**
+ * Listener notified of every operation recorded by a {@link MetricsRegistry}.
+ * Listeners are called on the thread that completes the operation and must not block.
+ */
+public interface MetricsListener {
+    /**
+     * Called when an operation starts.
+     *
+     * @param name Name of the operation, such as the endpoint a request is made to.
+     */
+    public void onStart(String name);
+
+    /**
+     * Called when an operation completes successfully.
+     *
+     * @param name  Name of the operation.
+     * @param nanos Duration of the operation in nanoseconds.
+     */
+    public void onSuccess(String name, long nanos);
+
+    /**
+     * Called when an operation fails.
+     *
+     * @param name  Name of the operation.
+     * @param nanos Duration of the operation in nanoseconds.
+     * @param error Exception the operation failed with.
+     */
+    public void onFailure(String name, long nanos, Throwable error);
+}
@@ -0,0 +1,137 @@
+package com.github.steveice10.mc.auth.metrics;
+
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of latency, outcome and in-flight metrics per endpoint or operation.
+ * The default registry is fed by every request made through {@link com.github.steveice10.mc.auth.util.HTTP},
+ * keyed by the request's endpoint, as well as by MSA logins, profile lookups and signature verification.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Gets the registry the library records its metrics to.
+     *
+     * @return The default registry.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Adds a listener to be notified of every recorded operation.
+     *
+     * @param listener Listener to add.
+     * @throws IllegalArgumentException If the listener is null.
+     */
+    public void addListener(MetricsListener listener) {
+        if(listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener Listener to remove.
+     */
+    public void removeListener(MetricsListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Gets the metrics of an endpoint or operation, creating them if nothing has been recorded for it yet.
+     *
+     * @param name Name of the endpoint or operation.
+     * @return The metrics of the endpoint.
+     */
+    public EndpointMetrics getEndpoint(String name) {
+        EndpointMetrics metrics = this.endpoints.get(name);
+        if(metrics == null) {
+            metrics = new EndpointMetrics(name);
+            EndpointMetrics existing = this.endpoints.putIfAbsent(name, metrics);
+            if(existing != null) {
+                metrics = existing;
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Gets the metrics of all endpoints and operations recorded so far.
+     *
+     * @return An unmodifiable view of the metrics by name.
+     */
+    public Map<String, EndpointMetrics> getEndpoints() {
+        return Collections.unmodifiableMap(this.endpoints);
+    }
+
+    /**
+     * Records the start of an operation.
+     * Every call must be followed by exactly one call to {@link #end(String, long, Throwable)}.
+     *
+     * @param name Name of the endpoint or operation.
+     * @return The start time to pass to {@link #end(String, long, Throwable)}.
+     */
+    public long start(String name) {
+        this.getEndpoint(name).start();
+        for(MetricsListener listener : this.listeners) {
+            try {
+                listener.onStart(name);
+            } catch(RuntimeException ignored) {
+            }
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the outcome of a lookup that has no duration, such as a cache lookup.
+     * Lookups are kept apart from operations, so they do not count towards an endpoint's requests,
+     * and listeners are not notified of them.
+     *
+     * @param name    Name of the endpoint or operation.
+     * @param outcome Outcome to count.
+     */
+    public void count(String name, String outcome) {
+        this.getEndpoint(name).count(outcome);
+    }
+
+    /**
+     * Records the end of an operation.
+     *
+     * @param name  Name of the endpoint or operation.
+     * @param start Start time returned by {@link #start(String)}.
+     * @param error Exception the operation failed with, or null if it succeeded.
+     */
+    public void end(String name, long start, Throwable error) {
+        long nanos = System.nanoTime() - start;
+        error = error != null ? AsyncUtil.unwrap(error) : null;
+        this.getEndpoint(name).end(nanos, error != null ? error.getClass().getSimpleName() : EndpointMetrics.SUCCESS);
+
+        // A misbehaving listener must not fail the operation being recorded.
+        for(MetricsListener listener : this.listeners) {
+            try {
+                if(error != null) {
+                    listener.onFailure(name, nanos, error);
+                } else {
+                    listener.onSuccess(name, nanos);
+                }
+            } catch(RuntimeException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.steveice10.mc.auth.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of a {@link MetricsRegistry} in the Prometheus text exposition format.
+ */
+public class PrometheusExporter {
+    private static final String PREFIX = "mcauthlib_";
+
+    private PrometheusExporter() {
+    }
+
+    /**
+     * Exports the metrics of a registry.
+     *
+     * @param registry Registry to export.
+     * @return The metrics in the Prometheus text format.
+     */
+    public static String export(MetricsRegistry registry) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            write(registry, builder);
+        } catch(IOException e) {
+            throw new IllegalStateException("StringBuilder threw an IOException.", e);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Writes the metrics of a registry.
+     *
+     * @param registry Registry to export.
+     * @param out      Output to write the metrics to.
+     * @throws IOException If an I/O error occurs while writing.
+     */
+    public static void write(MetricsRegistry registry, Appendable out) throws IOException {
+        // Names that only counted lookups, such as caches, have no requests to report.
+        Map<String, EndpointMetrics> endpoints = new TreeMap<>();
+        Map<String, EndpointMetrics> lookups = new TreeMap<>();
+        for(EndpointMetrics metrics : registry.getEndpoints().values()) {
+            if(metrics.getLatency().getCount() > 0 || metrics.getInFlight() > 0) {
+                endpoints.put(metrics.getName(), metrics);
+            }
+
+            if(!metrics.getLookups().isEmpty()) {
+                lookups.put(metrics.getName(), metrics);
+            }
+        }
+
+        out.append("# HELP " + PREFIX + "request_duration_seconds Duration of requests and operations.\n");
+        out.append("# TYPE " + PREFIX + "request_duration_seconds histogram\n");
+        for(EndpointMetrics metrics : endpoints.values()) {
+            String label = "endpoint=\"" + escape(metrics.getName()) + "\"";
+            LatencyHistogram latency = metrics.getLatency();
+
+            long cumulative = 0;
+            for(int bucket = 0; bucket < latency.getBucketCount(); bucket++) {
+                cumulative += latency.getCount(bucket);
+                long bound = latency.getUpperBound(bucket, TimeUnit.NANOSECONDS);
+                String le = bound == Long.MAX_VALUE ? "+Inf" : seconds(bound);
+                out.append(PREFIX + "request_duration_seconds_bucket{" + label + ",le=\"" + le + "\"} " + cumulative + "\n");
+            }
+
+            out.append(PREFIX + "request_duration_seconds_sum{" + label + "} " + seconds(latency.getSum(TimeUnit.NANOSECONDS)) + "\n");
+            out.append(PREFIX + "request_duration_seconds_count{" + label + "} " + cumulative + "\n");
+        }
+
+        out.append("# HELP " + PREFIX + "requests_total Completed requests and operations by outcome.\n");
+        out.append("# TYPE " + PREFIX + "requests_total counter\n");
+        for(EndpointMetrics metrics : endpoints.values()) {
+            for(Map.Entry<String, Long> outcome : metrics.getOutcomes().entrySet()) {
+                out.append(PREFIX + "requests_total{endpoint=\"" + escape(metrics.getName()) + "\",outcome=\"" + escape(outcome.getKey()) + "\"} " + outcome.getValue() + "\n");
+            }
+        }
+
+        out.append("# HELP " + PREFIX + "requests_in_flight Requests and operations currently in flight.\n");
+        out.append("# TYPE " + PREFIX + "requests_in_flight gauge\n");
+        for(EndpointMetrics metrics : endpoints.values()) {
+            out.append(PREFIX + "requests_in_flight{endpoint=\"" + escape(metrics.getName()) + "\"} " + metrics.getInFlight() + "\n");
+        }
+
+        out.append("# HELP " + PREFIX + "cache_lookups_total Cache lookups by outcome.\n");
+        out.append("# TYPE " + PREFIX + "cache_lookups_total counter\n");
+        for(EndpointMetrics metrics : lookups.values()) {
+            for(Map.Entry<String, Long> outcome : metrics.getLookups().entrySet()) {
+                out.append(PREFIX + "cache_lookups_total{cache=\"" + escape(metrics.getName()) + "\",outcome=\"" + escape(outcome.getKey()) + "\"} " + outcome.getValue() + "\n");
+            }
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -3,6 +3,7 @@ package com.github.steveice10.mc.auth.service;
 import com.github.steveice10.mc.auth.data.GameProfile;
 import com.github.steveice10.mc.auth.exception.request.InvalidCredentialsException;
 import com.github.steveice10.mc.auth.exception.request.RequestException;
+import com.github.steveice10.mc.auth.util.AsyncUtil;
 import com.github.steveice10.mc.auth.util.HTTP;
 
 import java.net.URI;
@@ -11,6 +12,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Service used for authenticating users.
@@ -138,6 +141,45 @@ public abstract class AuthenticationService extends Service {
      */
     public abstract void login() throws RequestException;
 
+    /**
+     * Logs the service in asynchronously on the default executor.
+     *
+     * @return A future completed once the service is logged in, or exceptionally with a {@link RequestException}.
+     * @see #login()
+     */
+    public CompletableFuture<Void> loginAsync() {
+        return this.loginAsync(null);
+    }
+
+    /**
+     * Logs the service in asynchronously.
+     * The login steps depend on each other, so they run one after another on the given executor.
+     *
+     * @param executor Executor to log in on, or null to use the default executor.
+     * @return A future completed once the service is logged in, or exceptionally with a {@link RequestException}.
+     * @see #login()
+     */
+    public CompletableFuture<Void> loginAsync(Executor executor) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            (executor != null ? executor : AsyncUtil.getDefaultExecutor()).execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        login();
+                        future.complete(null);
+                    } catch(Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch(Throwable t) {
+            future.completeExceptionally(t);
+        }
+
+        return future;
+    }
+
     /**
      * Logs the service out.
      *
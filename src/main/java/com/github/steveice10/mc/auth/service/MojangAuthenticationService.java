@@ -4,7 +4,14 @@ import com.github.steveice10.mc.auth.data.GameProfile;
 import com.github.steveice10.mc.auth.exception.request.InvalidCredentialsException;
 import com.github.steveice10.mc.auth.exception.request.RequestException;
 import com.github.steveice10.mc.auth.util.HTTP;
-
+import com.github.steveice10.mc.auth.util.StreamingTypeAdapterFactory;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.net.URI;
 import java.util.*;
 
@@ -14,6 +21,7 @@ public class MojangAuthenticationService extends AuthenticationService {
     private static final String AUTHENTICATE_ENDPOINT = "authenticate";
     private static final String REFRESH_ENDPOINT = "refresh";
     private static final String INVALIDATE_ENDPOINT = "invalidate";
+    private static final String MSA_MIGRATION_CHECK_ENDPOINT = "msamigration";
 
     private String id;
     private String clientToken;
@@ -53,6 +61,11 @@ public class MojangAuthenticationService extends AuthenticationService {
         return clientToken;
     }
 
+    @Override
+    protected List<URI> getWarmUpUris() {
+        return Arrays.asList(this.getBaseUri(), MSA_MIGRATION_CHECK_URI);
+    }
+
     @Override
     public void login() throws RequestException {
         if(this.username == null || this.username.equals("")) {
@@ -68,10 +81,10 @@ public class MojangAuthenticationService extends AuthenticationService {
         AuthenticateRefreshResponse response;
         if(token) {
             RefreshRequest request = new RefreshRequest(this.clientToken, this.accessToken, null);
-            response = HTTP.makeRequest(this.getProxy(), this.getEndpointUri(REFRESH_ENDPOINT), request, AuthenticateRefreshResponse.class);
+            response = this.makeRequest(REFRESH_ENDPOINT, this.getEndpointUri(REFRESH_ENDPOINT), request, AuthenticateRefreshResponse.class);
         } else {
             AuthenticationRequest request = new AuthenticationRequest(this.username, this.password, this.clientToken);
-            response = HTTP.makeRequest(this.getProxy(), this.getEndpointUri(AUTHENTICATE_ENDPOINT), request, AuthenticateRefreshResponse.class);
+            response = this.makeRequest(AUTHENTICATE_ENDPOINT, this.getEndpointUri(AUTHENTICATE_ENDPOINT), request, AuthenticateRefreshResponse.class);
         }
 
         if(response == null) {
@@ -100,7 +113,7 @@ public class MojangAuthenticationService extends AuthenticationService {
 
     public void logout() throws RequestException {
         MojangAuthenticationService.InvalidateRequest request = new MojangAuthenticationService.InvalidateRequest(this.clientToken, this.accessToken);
-        HTTP.makeRequest(this.getProxy(), this.getEndpointUri(INVALIDATE_ENDPOINT), request);
+        this.makeRequest(INVALIDATE_ENDPOINT, this.getEndpointUri(INVALIDATE_ENDPOINT), request, null);
 
         super.logout();
         this.id = null;
@@ -122,7 +135,7 @@ public class MojangAuthenticationService extends AuthenticationService {
         }
 
         RefreshRequest request = new RefreshRequest(this.clientToken, this.accessToken, profile);
-        AuthenticateRefreshResponse response = HTTP.makeRequest(this.getProxy(), this.getEndpointUri(REFRESH_ENDPOINT), request, AuthenticateRefreshResponse.class);
+        AuthenticateRefreshResponse response = this.makeRequest(REFRESH_ENDPOINT, this.getEndpointUri(REFRESH_ENDPOINT), request, AuthenticateRefreshResponse.class);
         if(response == null) {
             throw new RequestException("Server returned invalid response.");
         } else if(!response.clientToken.equals(this.clientToken)) {
@@ -145,7 +158,7 @@ public class MojangAuthenticationService extends AuthenticationService {
         }
 
         Map<String, String> authHeaders = Collections.singletonMap("Authorization", String.format("Bearer %s", this.accessToken));
-        MsaMigrationCheckResponse response = HTTP.makeRequest(this.getProxy(), MSA_MIGRATION_CHECK_URI, null, MsaMigrationCheckResponse.class, authHeaders);
+        MsaMigrationCheckResponse response = this.makeRequest(MSA_MIGRATION_CHECK_ENDPOINT, MSA_MIGRATION_CHECK_URI, null, MsaMigrationCheckResponse.class, authHeaders);
 
         if (response == null) {
             throw new RequestException("Server returned invalid response.");
@@ -176,6 +189,7 @@ public class MojangAuthenticationService extends AuthenticationService {
         public List<GameProfile.Property> properties;
     }
 
+    @JsonAdapter(AuthenticationRequest.Adapter.class)
     private static class AuthenticationRequest {
         private Agent agent;
         private String username;
@@ -190,8 +204,30 @@ public class MojangAuthenticationService extends AuthenticationService {
             this.clientToken = clientToken;
             this.requestUser = true;
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<AuthenticationRequest> {
+            private Adapter() {
+                super(AuthenticationRequest.class);
+            }
+
+            @Override
+            protected void write(JsonWriter out, AuthenticationRequest value, TypeAdapter<AuthenticationRequest> fallback) throws IOException {
+                out.beginObject();
+                out.name("agent");
+                out.beginObject();
+                out.name("name").value(value.agent.name);
+                out.name("version").value(value.agent.version);
+                out.endObject();
+                out.name("username").value(value.username);
+                out.name("password").value(value.password);
+                out.name("clientToken").value(value.clientToken);
+                out.name("requestUser").value(value.requestUser);
+                out.endObject();
+            }
+        }
     }
 
+    @JsonAdapter(RefreshRequest.Adapter.class)
     private static class RefreshRequest {
         private String clientToken;
         private String accessToken;
@@ -204,8 +240,31 @@ public class MojangAuthenticationService extends AuthenticationService {
             this.selectedProfile = selectedProfile;
             this.requestUser = true;
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<RefreshRequest> {
+            private final TypeAdapter<GameProfile> profileAdapter = HTTP.getGson().getAdapter(GameProfile.class);
+
+            private Adapter() {
+                super(RefreshRequest.class);
+            }
+
+            @Override
+            protected void write(JsonWriter out, RefreshRequest value, TypeAdapter<RefreshRequest> fallback) throws IOException {
+                out.beginObject();
+                out.name("clientToken").value(value.clientToken);
+                out.name("accessToken").value(value.accessToken);
+                if(value.selectedProfile != null) {
+                    out.name("selectedProfile");
+                    this.profileAdapter.write(out, value.selectedProfile);
+                }
+
+                out.name("requestUser").value(value.requestUser);
+                out.endObject();
+            }
+        }
     }
 
+    @JsonAdapter(InvalidateRequest.Adapter.class)
     private static class InvalidateRequest {
         private String clientToken;
         private String accessToken;
@@ -214,18 +273,130 @@ public class MojangAuthenticationService extends AuthenticationService {
             this.clientToken = clientToken;
             this.accessToken = accessToken;
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<InvalidateRequest> {
+            private Adapter() {
+                super(InvalidateRequest.class);
+            }
+
+            @Override
+            protected void write(JsonWriter out, InvalidateRequest value, TypeAdapter<InvalidateRequest> fallback) throws IOException {
+                out.beginObject();
+                out.name("clientToken").value(value.clientToken);
+                out.name("accessToken").value(value.accessToken);
+                out.endObject();
+            }
+        }
     }
 
+    @JsonAdapter(AuthenticateRefreshResponse.Adapter.class)
     private static class AuthenticateRefreshResponse {
         public String accessToken;
         public String clientToken;
         public GameProfile selectedProfile;
         public GameProfile[] availableProfiles;
         public User user;
+
+        private static class Adapter extends StreamingTypeAdapterFactory<AuthenticateRefreshResponse> {
+            private final TypeAdapter<GameProfile> profileAdapter = HTTP.getGson().getAdapter(GameProfile.class);
+            private final TypeAdapter<GameProfile.Property> propertyAdapter = HTTP.getGson().getAdapter(GameProfile.Property.class);
+
+            private Adapter() {
+                super(AuthenticateRefreshResponse.class);
+            }
+
+            @Override
+            protected AuthenticateRefreshResponse read(JsonReader in, TypeAdapter<AuthenticateRefreshResponse> fallback) throws IOException {
+                AuthenticateRefreshResponse response = new AuthenticateRefreshResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("accessToken")) {
+                        response.accessToken = in.nextString();
+                    } else if(name.equals("clientToken")) {
+                        response.clientToken = in.nextString();
+                    } else if(name.equals("selectedProfile")) {
+                        response.selectedProfile = this.profileAdapter.read(in);
+                    } else if(name.equals("availableProfiles")) {
+                        List<GameProfile> profiles = new ArrayList<>();
+                        in.beginArray();
+                        while(in.hasNext()) {
+                            profiles.add(this.profileAdapter.read(in));
+                        }
+
+                        in.endArray();
+                        response.availableProfiles = profiles.toArray(new GameProfile[profiles.size()]);
+                    } else if(name.equals("user")) {
+                        response.user = this.readUser(in);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+
+            private User readUser(JsonReader in) throws IOException {
+                User user = new User();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("id")) {
+                        user.id = in.nextString();
+                    } else if(name.equals("properties")) {
+                        user.properties = new ArrayList<>();
+                        in.beginArray();
+                        while(in.hasNext()) {
+                            user.properties.add(this.propertyAdapter.read(in));
+                        }
+
+                        in.endArray();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return user;
+            }
+        }
     }
 
+    @JsonAdapter(MsaMigrationCheckResponse.Adapter.class)
     private static class MsaMigrationCheckResponse {
         public String feature;
         public boolean rollout;
+
+        private static class Adapter extends StreamingTypeAdapterFactory<MsaMigrationCheckResponse> {
+            private Adapter() {
+                super(MsaMigrationCheckResponse.class);
+            }
+
+            @Override
+            protected MsaMigrationCheckResponse read(JsonReader in, TypeAdapter<MsaMigrationCheckResponse> fallback) throws IOException {
+                MsaMigrationCheckResponse response = new MsaMigrationCheckResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("feature")) {
+                        response.feature = in.nextString();
+                    } else if(name.equals("rollout")) {
+                        response.rollout = in.nextBoolean();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+        }
     }
 }
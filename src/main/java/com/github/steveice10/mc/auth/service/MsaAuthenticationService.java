@@ -3,20 +3,38 @@ package com.github.steveice10.mc.auth.service;
 import com.github.steveice10.mc.auth.data.GameProfile;
 import com.github.steveice10.mc.auth.exception.request.InvalidCredentialsException;
 import com.github.steveice10.mc.auth.exception.request.RequestException;
+import com.github.steveice10.mc.auth.exception.request.RequestTimeoutException;
 import com.github.steveice10.mc.auth.exception.request.ServiceUnavailableException;
+import com.github.steveice10.mc.auth.exception.request.TooManyRequestsException;
 import com.github.steveice10.mc.auth.exception.request.XboxRequestException;
+import com.github.steveice10.mc.auth.metrics.MetricsRegistry;
+import com.github.steveice10.mc.auth.transport.HttpRequest;
+import com.github.steveice10.mc.auth.transport.HttpResponse;
+import com.github.steveice10.mc.auth.util.Deadline;
 import com.github.steveice10.mc.auth.util.HTTP;
+import com.github.steveice10.mc.auth.util.StreamingTypeAdapterFactory;
+import com.github.steveice10.mc.auth.util.UUIDSerializer;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.*;
-import java.net.HttpURLConnection;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,6 +48,17 @@ public class MsaAuthenticationService extends AuthenticationService {
     private static final URI MC_LOGIN_ENDPOINT = URI.create("https://api.minecraftservices.com/authentication/login_with_xbox");
     private static final URI MC_PROFILE_ENDPOINT = URI.create("https://api.minecraftservices.com/minecraft/profile");
 
+    private static final String MS_CODE_ENDPOINT_NAME = "devicecode";
+    private static final String MS_CODE_TOKEN_ENDPOINT_NAME = "devicecode_token";
+    private static final String MS_LOGIN_ENDPOINT_NAME = "oauth20_authorize";
+    private static final String MS_LOGIN_POST_ENDPOINT_NAME = "oauth20_post";
+    private static final String MS_TOKEN_ENDPOINT_NAME = "oauth20_token";
+    private static final String XBL_AUTH_ENDPOINT_NAME = "xbl";
+    private static final String XSTS_AUTH_ENDPOINT_NAME = "xsts";
+    private static final String MC_LOGIN_ENDPOINT_NAME = "login_with_xbox";
+    private static final String MC_PROFILE_ENDPOINT_NAME = "minecraft_profile";
+    private static final String LOGIN_OPERATION_NAME = "msa_login";
+
     private static final URI EMPTY_URI = URI.create("");
 
     private static final Pattern PPFT_PATTERN = Pattern.compile("sFTTag:[ ]?'.*value=\"(.*)\"/>'");
@@ -39,6 +68,7 @@ public class MsaAuthenticationService extends AuthenticationService {
     private String deviceCode;
     private String clientId;
     private String refreshToken;
+    private volatile long loginTimeout;
 
     public MsaAuthenticationService(String clientId) {
         this(clientId, null);
@@ -70,6 +100,38 @@ public class MsaAuthenticationService extends AuthenticationService {
         this.refreshToken = refreshToken;
     }
 
+    @Override
+    protected List<URI> getWarmUpUris() {
+        return Arrays.asList(MS_CODE_ENDPOINT, MS_TOKEN_ENDPOINT, XBL_AUTH_ENDPOINT, XSTS_AUTH_ENDPOINT, MC_LOGIN_ENDPOINT);
+    }
+
+    /**
+     * Gets the time a call to {@link #login()} may take in total.
+     *
+     * @param unit Unit to return the time in.
+     * @return The login timeout, or 0 if logins are only bounded by the timeouts of the individual requests.
+     */
+    public long getLoginTimeout(TimeUnit unit) {
+        return unit.convert(this.loginTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the time a call to {@link #login()} may take in total, across all of its requests.
+     * Each request is given at most the time left, and requests that would start after the time is up
+     * fail with a {@link RequestTimeoutException} without being made.
+     *
+     * @param timeout Login timeout, or 0 to only bound logins by the timeouts of the individual requests.
+     * @param unit    Unit of the timeout.
+     * @throws IllegalArgumentException If the timeout is negative.
+     */
+    public void setLoginTimeout(long timeout, TimeUnit unit) {
+        if(timeout < 0) {
+            throw new IllegalArgumentException("Login timeout cannot be negative.");
+        }
+
+        this.loginTimeout = unit.toMillis(timeout);
+    }
+
     /**
      * Generate a single use code for Microsoft authentication
      *
@@ -92,7 +154,7 @@ public class MsaAuthenticationService extends AuthenticationService {
             throw new InvalidCredentialsException("Invalid client id.");
         }
         MsCodeRequest request = new MsCodeRequest(this.clientId, offlineAccess);
-        MsCodeResponse response = HTTP.makeRequestForm(this.getProxy(), MS_CODE_ENDPOINT, request.toMap(), MsCodeResponse.class);
+        MsCodeResponse response = this.makeFormRequest(MS_CODE_ENDPOINT_NAME, MS_CODE_ENDPOINT, request.toMap(), MsCodeResponse.class);
         this.deviceCode = response.device_code;
         return response;
     }
@@ -109,7 +171,7 @@ public class MsaAuthenticationService extends AuthenticationService {
             throw new InvalidCredentialsException("Invalid device code.");
         }
         MsCodeTokenRequest request = new MsCodeTokenRequest(this.clientId, this.deviceCode);
-        MsTokenResponse response = HTTP.makeRequestForm(this.getProxy(), MS_CODE_TOKEN_ENDPOINT, request.toMap(), MsTokenResponse.class);
+        MsTokenResponse response = this.makeFormRequest(MS_CODE_TOKEN_ENDPOINT_NAME, MS_CODE_TOKEN_ENDPOINT, request.toMap(), MsTokenResponse.class);
         this.refreshToken = response.refresh_token;
         return getLoginResponseFromToken("d=" + response.access_token);
     }
@@ -122,11 +184,13 @@ public class MsaAuthenticationService extends AuthenticationService {
         String urlPost = "";
 
         try {
-            HttpURLConnection connection = HTTP.createUrlConnection(this.getProxy(), MS_LOGIN_ENDPOINT);
-            connection.setDoInput(true);
-            try (InputStream in = connection.getResponseCode() == 200 ? connection.getInputStream() : connection.getErrorStream()) {
-                cookie = connection.getHeaderField("set-cookie");
-                String body = inputStreamToString(in);
+            HttpRequest loginRequest = new HttpRequest("GET", MS_LOGIN_ENDPOINT);
+            loginRequest.setProxy(this.getProxy());
+            loginRequest.setEndpoint(MS_LOGIN_ENDPOINT_NAME);
+            this.applyTimeout(loginRequest);
+            try (HttpResponse loginResponse = this.getTransport().execute(loginRequest)) {
+                cookie = loginResponse.getHeader("set-cookie");
+                String body = inputStreamToString(loginResponse.getBody());
                 Matcher m = PPFT_PATTERN.matcher(body);
                 if (m.find()) {
                     PPFT = m.group(1);
@@ -160,38 +224,33 @@ public class MsaAuthenticationService extends AuthenticationService {
         String code;
 
         try {
-            byte[] bytes = postData.getBytes(StandardCharsets.UTF_8);
-
-            HttpURLConnection connection = HTTP.createUrlConnection(this.getProxy(), URI.create(urlPost));
-            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
-            connection.setRequestProperty("Content-Length", String.valueOf(bytes.length));
-            connection.setRequestProperty("Cookie", cookie);
-
-            connection.setDoInput(true);
-            connection.setDoOutput(true);
-
-            try(OutputStream out = connection.getOutputStream()) {
-                out.write(bytes);
-            }
-
-            if (connection.getResponseCode() != 200 || connection.getURL().toString().equals(urlPost)) {
-                // TODO: Get and parse the error from the site
-                // See https://github.com/XboxReplay/xboxlive-auth/blob/master/src/core/live/index.ts#L115
-                throw new InvalidCredentialsException("Invalid username and/or password");
-            }
+            HttpRequest postRequest = new HttpRequest("POST", URI.create(urlPost));
+            postRequest.setProxy(this.getProxy());
+            postRequest.setEndpoint(MS_LOGIN_POST_ENDPOINT_NAME);
+            this.applyTimeout(postRequest);
+            postRequest.setBody("application/x-www-form-urlencoded; charset=utf-8", postData.getBytes(StandardCharsets.UTF_8));
+            postRequest.setHeader("Cookie", cookie);
+
+            try (HttpResponse postResponse = this.getTransport().execute(postRequest)) {
+                if (postResponse.getStatusCode() != 200 || postResponse.getUri().toString().equals(urlPost)) {
+                    // TODO: Get and parse the error from the site
+                    // See https://github.com/XboxReplay/xboxlive-auth/blob/master/src/core/live/index.ts#L115
+                    throw new InvalidCredentialsException("Invalid username and/or password");
+                }
 
-            Matcher m = CODE_PATTERN.matcher(URLDecoder.decode(connection.getURL().toString(), StandardCharsets.UTF_8.name()));
-            if (m.find()) {
-                code = m.group(1);
-            } else {
-                throw new ServiceUnavailableException("Could not parse response of '" + urlPost + "'.");
+                Matcher m = CODE_PATTERN.matcher(URLDecoder.decode(postResponse.getUri().toString(), StandardCharsets.UTF_8.name()));
+                if (m.find()) {
+                    code = m.group(1);
+                } else {
+                    throw new ServiceUnavailableException("Could not parse response of '" + urlPost + "'.");
+                }
             }
         } catch (IOException e) {
             throw new ServiceUnavailableException("Could not make request to '" + urlPost + "'.", e);
         }
 
         MsTokenRequest request = new MsTokenRequest(clientId, code);
-        MsTokenResponse response = HTTP.makeRequestForm(this.getProxy(), MS_TOKEN_ENDPOINT, request.toMap(), MsTokenResponse.class);
+        MsTokenResponse response = this.makeFormRequest(MS_TOKEN_ENDPOINT_NAME, MS_TOKEN_ENDPOINT, request.toMap(), MsTokenResponse.class);
         this.refreshToken = response.refresh_token;
         return getLoginResponseFromToken(response.access_token);
     }
@@ -219,7 +278,7 @@ public class MsaAuthenticationService extends AuthenticationService {
             throw new InvalidCredentialsException("Invalid refresh token.");
         }
 
-        MsTokenResponse response = HTTP.makeRequestForm(this.getProxy(), MS_TOKEN_ENDPOINT, new MsRefreshRequest(clientId, refreshToken).toMap(), MsTokenResponse.class);
+        MsTokenResponse response = this.makeFormRequest(MS_TOKEN_ENDPOINT_NAME, MS_TOKEN_ENDPOINT, new MsRefreshRequest(clientId, refreshToken).toMap(), MsTokenResponse.class);
         accessToken = response.access_token;
         refreshToken = response.refresh_token;
 
@@ -244,10 +303,10 @@ public class MsaAuthenticationService extends AuthenticationService {
      */
     private McLoginResponse getLoginResponseFromToken(String accessToken) throws RequestException {
         XblAuthRequest xblRequest = new XblAuthRequest(accessToken);
-        XblAuthResponse response = HTTP.makeRequest(this.getProxy(), XBL_AUTH_ENDPOINT, xblRequest, XblAuthResponse.class);
+        XblAuthResponse response = this.makeRequest(XBL_AUTH_ENDPOINT_NAME, XBL_AUTH_ENDPOINT, xblRequest, XblAuthResponse.class);
 
         XstsAuthRequest xstsRequest = new XstsAuthRequest(response.Token);
-        response = HTTP.makeRequest(this.getProxy(), XSTS_AUTH_ENDPOINT, xstsRequest, XblAuthResponse.class);
+        response = this.makeRequest(XSTS_AUTH_ENDPOINT_NAME, XSTS_AUTH_ENDPOINT, xstsRequest, XblAuthResponse.class);
 
         if (response.XErr != 0) {
             if (response.XErr == 2148916233L) {
@@ -262,7 +321,7 @@ public class MsaAuthenticationService extends AuthenticationService {
         }
 
         McLoginRequest mcRequest = new McLoginRequest(response.DisplayClaims.xui[0].uhs, response.Token);
-        return HTTP.makeRequest(this.getProxy(), MC_LOGIN_ENDPOINT, mcRequest, McLoginResponse.class);
+        return this.makeRequest(MC_LOGIN_ENDPOINT_NAME, MC_LOGIN_ENDPOINT, mcRequest, McLoginResponse.class);
     }
 
     /**
@@ -274,7 +333,7 @@ public class MsaAuthenticationService extends AuthenticationService {
         Map<String, String> headers = new HashMap<>();
         headers.put("Authorization", "Bearer " + this.accessToken);
 
-        McProfileResponse response = HTTP.makeRequest(this.getProxy(), MC_PROFILE_ENDPOINT, null, McProfileResponse.class, headers);
+        McProfileResponse response = this.makeRequest(MC_PROFILE_ENDPOINT_NAME, MC_PROFILE_ENDPOINT, null, McProfileResponse.class, headers);
 
         this.selectedProfile = new GameProfile(response.id, response.name);
         this.profiles = Collections.singletonList(this.selectedProfile);
@@ -283,6 +342,29 @@ public class MsaAuthenticationService extends AuthenticationService {
 
     @Override
     public void login() throws RequestException {
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        long start = metrics.start(LOGIN_OPERATION_NAME);
+
+        // Every hop of the login shares one deadline, so later hops get whatever time the earlier ones left.
+        long loginTimeout = this.loginTimeout;
+        if(loginTimeout > 0) {
+            this.setDeadline(Deadline.after(loginTimeout, TimeUnit.MILLISECONDS));
+        }
+
+        try {
+            this.performLogin();
+            metrics.end(LOGIN_OPERATION_NAME, start, null);
+        } catch(RequestException | RuntimeException e) {
+            metrics.end(LOGIN_OPERATION_NAME, start, e);
+            throw e;
+        } finally {
+            if(loginTimeout > 0) {
+                this.setDeadline(null);
+            }
+        }
+    }
+
+    private void performLogin() throws RequestException {
         boolean token = this.clientId != null && !this.clientId.isEmpty();
         boolean device = this.deviceCode != null && !this.deviceCode.isEmpty();
         boolean password = this.password != null && !this.password.isEmpty();
@@ -316,6 +398,9 @@ public class MsaAuthenticationService extends AuthenticationService {
 
         try {
             getProfile();
+        } catch (ServiceUnavailableException | TooManyRequestsException e) {
+            // Covers RequestTimeoutException; a transient failure says nothing about whether the account owns the game.
+            throw e;
         } catch (RequestException ignored) {
             // We are on a cracked account
 
@@ -447,6 +532,16 @@ public class MsaAuthenticationService extends AuthenticationService {
         }
     }
 
+    private static URI readUri(JsonReader in) throws IOException {
+        String value = in.nextString();
+        try {
+            return new URI(value);
+        } catch(URISyntaxException e) {
+            throw new JsonSyntaxException("Invalid URI \"" + value + "\".", e);
+        }
+    }
+
+    @JsonAdapter(XblAuthRequest.Adapter.class)
     private static class XblAuthRequest {
         private String RelyingParty;
         private String TokenType;
@@ -469,8 +564,29 @@ public class MsaAuthenticationService extends AuthenticationService {
                 this.RpsTicket = accessToken;
             }
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<XblAuthRequest> {
+            private Adapter() {
+                super(XblAuthRequest.class);
+            }
+
+            @Override
+            protected void write(JsonWriter out, XblAuthRequest value, TypeAdapter<XblAuthRequest> fallback) throws IOException {
+                out.beginObject();
+                out.name("RelyingParty").value(value.RelyingParty);
+                out.name("TokenType").value(value.TokenType);
+                out.name("Properties");
+                out.beginObject();
+                out.name("AuthMethod").value(value.Properties.AuthMethod);
+                out.name("SiteName").value(value.Properties.SiteName);
+                out.name("RpsTicket").value(value.Properties.RpsTicket);
+                out.endObject();
+                out.endObject();
+            }
+        }
     }
 
+    @JsonAdapter(XstsAuthRequest.Adapter.class)
     private static class XstsAuthRequest {
         private String RelyingParty;
         private String TokenType;
@@ -491,16 +607,56 @@ public class MsaAuthenticationService extends AuthenticationService {
                 this.SandboxId = "RETAIL";
             }
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<XstsAuthRequest> {
+            private Adapter() {
+                super(XstsAuthRequest.class);
+            }
+
+            @Override
+            protected void write(JsonWriter out, XstsAuthRequest value, TypeAdapter<XstsAuthRequest> fallback) throws IOException {
+                out.beginObject();
+                out.name("RelyingParty").value(value.RelyingParty);
+                out.name("TokenType").value(value.TokenType);
+                out.name("Properties");
+                out.beginObject();
+                out.name("UserTokens");
+                out.beginArray();
+                for(String token : value.Properties.UserTokens) {
+                    out.value(token);
+                }
+
+                out.endArray();
+                out.name("SandboxId").value(value.Properties.SandboxId);
+                out.endObject();
+                out.endObject();
+            }
+        }
     }
 
+    @JsonAdapter(McLoginRequest.Adapter.class)
     private static class McLoginRequest {
         private String identityToken;
 
         protected McLoginRequest(String uhs, String identityToken) {
             this.identityToken = "XBL3.0 x=" + uhs + ";" + identityToken;
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<McLoginRequest> {
+            private Adapter() {
+                super(McLoginRequest.class);
+            }
+
+            @Override
+            protected void write(JsonWriter out, McLoginRequest value, TypeAdapter<McLoginRequest> fallback) throws IOException {
+                out.beginObject();
+                out.name("identityToken").value(value.identityToken);
+                out.endObject();
+            }
+        }
     }
 
+    @JsonAdapter(MsCodeResponse.Adapter.class)
     public static class MsCodeResponse {
         public String user_code;
         public String device_code;
@@ -508,17 +664,102 @@ public class MsaAuthenticationService extends AuthenticationService {
         public int expires_in;
         public int interval;
         public String message;
+
+        private static class Adapter extends TypeAdapter<MsCodeResponse> {
+            @Override
+            public void write(JsonWriter out, MsCodeResponse value) throws IOException {
+                out.beginObject();
+                out.name("user_code").value(value.user_code);
+                out.name("device_code").value(value.device_code);
+                out.name("verification_uri").value(value.verification_uri != null ? value.verification_uri.toString() : null);
+                out.name("expires_in").value(value.expires_in);
+                out.name("interval").value(value.interval);
+                out.name("message").value(value.message);
+                out.endObject();
+            }
+
+            @Override
+            public MsCodeResponse read(JsonReader in) throws IOException {
+                MsCodeResponse response = new MsCodeResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("user_code")) {
+                        response.user_code = in.nextString();
+                    } else if(name.equals("device_code")) {
+                        response.device_code = in.nextString();
+                    } else if(name.equals("verification_uri")) {
+                        response.verification_uri = readUri(in);
+                    } else if(name.equals("expires_in")) {
+                        response.expires_in = in.nextInt();
+                    } else if(name.equals("interval")) {
+                        response.interval = in.nextInt();
+                    } else if(name.equals("message")) {
+                        response.message = in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+        }
     }
 
     // Public so users can access the refresh_token for offline access
+    @JsonAdapter(MsTokenResponse.Adapter.class)
     public static class MsTokenResponse {
         public String token_type;
         public String scope;
         public int expires_in;
         public String access_token;
         public String refresh_token;
+
+        private static class Adapter extends TypeAdapter<MsTokenResponse> {
+            @Override
+            public void write(JsonWriter out, MsTokenResponse value) throws IOException {
+                out.beginObject();
+                out.name("token_type").value(value.token_type);
+                out.name("scope").value(value.scope);
+                out.name("expires_in").value(value.expires_in);
+                out.name("access_token").value(value.access_token);
+                out.name("refresh_token").value(value.refresh_token);
+                out.endObject();
+            }
+
+            @Override
+            public MsTokenResponse read(JsonReader in) throws IOException {
+                MsTokenResponse response = new MsTokenResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("token_type")) {
+                        response.token_type = in.nextString();
+                    } else if(name.equals("scope")) {
+                        response.scope = in.nextString();
+                    } else if(name.equals("expires_in")) {
+                        response.expires_in = in.nextInt();
+                    } else if(name.equals("access_token")) {
+                        response.access_token = in.nextString();
+                    } else if(name.equals("refresh_token")) {
+                        response.refresh_token = in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+        }
     }
 
+    @JsonAdapter(XblAuthResponse.Adapter.class)
     private static class XblAuthResponse {
         /* Only appear in error responses */
         public String Identity;
@@ -538,16 +779,141 @@ public class MsaAuthenticationService extends AuthenticationService {
         private static class Xui {
             public String uhs;
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<XblAuthResponse> {
+            private Adapter() {
+                super(XblAuthResponse.class);
+            }
+
+            @Override
+            protected XblAuthResponse read(JsonReader in, TypeAdapter<XblAuthResponse> fallback) throws IOException {
+                XblAuthResponse response = new XblAuthResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("Identity")) {
+                        response.Identity = in.nextString();
+                    } else if(name.equals("XErr")) {
+                        response.XErr = in.nextLong();
+                    } else if(name.equals("Message")) {
+                        response.Message = in.nextString();
+                    } else if(name.equals("Redirect")) {
+                        response.Redirect = in.nextString();
+                    } else if(name.equals("IssueInstant")) {
+                        response.IssueInstant = in.nextString();
+                    } else if(name.equals("NotAfter")) {
+                        response.NotAfter = in.nextString();
+                    } else if(name.equals("Token")) {
+                        response.Token = in.nextString();
+                    } else if(name.equals("DisplayClaims")) {
+                        response.DisplayClaims = readDisplayClaims(in);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+
+            private static DisplayClaims readDisplayClaims(JsonReader in) throws IOException {
+                DisplayClaims claims = new DisplayClaims();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(name.equals("xui") && in.peek() == JsonToken.BEGIN_ARRAY) {
+                        List<Xui> xui = new ArrayList<>(1);
+                        in.beginArray();
+                        while(in.hasNext()) {
+                            xui.add(readXui(in));
+                        }
+
+                        in.endArray();
+                        claims.xui = xui.toArray(new Xui[xui.size()]);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return claims;
+            }
+
+            private static Xui readXui(JsonReader in) throws IOException {
+                Xui xui = new Xui();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(name.equals("uhs") && in.peek() != JsonToken.NULL) {
+                        xui.uhs = in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return xui;
+            }
+        }
     }
 
+    @JsonAdapter(McLoginResponse.Adapter.class)
     private static class McLoginResponse {
         public String username;
         public String[] roles;
         public String access_token;
         public String token_type;
         public int expires_in;
+
+        private static class Adapter extends StreamingTypeAdapterFactory<McLoginResponse> {
+            private Adapter() {
+                super(McLoginResponse.class);
+            }
+
+            @Override
+            protected McLoginResponse read(JsonReader in, TypeAdapter<McLoginResponse> fallback) throws IOException {
+                McLoginResponse response = new McLoginResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("username")) {
+                        response.username = in.nextString();
+                    } else if(name.equals("roles")) {
+                        List<String> roles = new ArrayList<>();
+                        in.beginArray();
+                        while(in.hasNext()) {
+                            if(in.peek() == JsonToken.NULL) {
+                                in.nextNull();
+                                roles.add(null);
+                            } else {
+                                roles.add(in.nextString());
+                            }
+                        }
+
+                        in.endArray();
+                        response.roles = roles.toArray(new String[roles.size()]);
+                    } else if(name.equals("access_token")) {
+                        response.access_token = in.nextString();
+                    } else if(name.equals("token_type")) {
+                        response.token_type = in.nextString();
+                    } else if(name.equals("expires_in")) {
+                        response.expires_in = in.nextInt();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+        }
     }
 
+    @JsonAdapter(McProfileResponse.Adapter.class)
     private static class McProfileResponse {
         public UUID id;
         public String name;
@@ -561,5 +927,67 @@ public class MsaAuthenticationService extends AuthenticationService {
             public String variant;
             public String alias;
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<McProfileResponse> {
+            private Adapter() {
+                super(McProfileResponse.class);
+            }
+
+            @Override
+            protected McProfileResponse read(JsonReader in, TypeAdapter<McProfileResponse> fallback) throws IOException {
+                McProfileResponse response = new McProfileResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("id")) {
+                        response.id = UUIDSerializer.fromString(in.nextString());
+                    } else if(name.equals("name")) {
+                        response.name = in.nextString();
+                    } else if(name.equals("skins")) {
+                        List<Skin> skins = new ArrayList<>(1);
+                        in.beginArray();
+                        while(in.hasNext()) {
+                            skins.add(readSkin(in));
+                        }
+
+                        in.endArray();
+                        response.skins = skins.toArray(new Skin[skins.size()]);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+
+            private static Skin readSkin(JsonReader in) throws IOException {
+                Skin skin = new Skin();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("id")) {
+                        skin.id = UUIDSerializer.fromString(in.nextString());
+                    } else if(name.equals("state")) {
+                        skin.state = in.nextString();
+                    } else if(name.equals("url")) {
+                        skin.url = readUri(in);
+                    } else if(name.equals("variant")) {
+                        skin.variant = in.nextString();
+                    } else if(name.equals("alias")) {
+                        skin.alias = in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return skin;
+            }
+        }
     }
 }
@@ -1,16 +1,25 @@
 package com.github.steveice10.mc.auth.service;
 
+import com.github.steveice10.mc.auth.cache.Cache;
 import com.github.steveice10.mc.auth.data.GameProfile;
 import com.github.steveice10.mc.auth.exception.profile.ProfileNotFoundException;
 import com.github.steveice10.mc.auth.exception.request.RequestException;
-import com.github.steveice10.mc.auth.util.HTTP;
+import com.github.steveice10.mc.auth.util.AdaptiveRateController;
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+import com.github.steveice10.mc.auth.util.ThreadUtil;
 
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * Repository for looking up profiles by name.
@@ -18,12 +27,28 @@ import java.util.UUID;
 public class ProfileService extends Service {
     private static final URI DEFAULT_BASE_URI = URI.create("https://api.mojang.com/profiles/");
     private static final String SEARCH_ENDPOINT = "minecraft";
+    private static final String SEARCH_ENDPOINT_NAME = "profiles";
 
-    private static final int MAX_FAIL_COUNT = 3;
-    private static final int DELAY_BETWEEN_PAGES = 100;
-    private static final int DELAY_BETWEEN_FAILURES = 750;
     private static final int PROFILES_PER_REQUEST = 100;
 
+    /**
+     * Default number of requests {@link #findProfilesByNameAsync(String[], ProfileLookupCallback)} keeps in flight.
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+    /**
+     * Default time names that were not found stay in the profile name cache, in milliseconds.
+     */
+    public static final long DEFAULT_NOT_FOUND_TTL = 60000;
+    /**
+     * Name that profile name cache lookups are recorded under in the {@link com.github.steveice10.mc.auth.metrics.MetricsRegistry}.
+     */
+    public static final String PROFILE_NAME_CACHE_METRICS_NAME = "profile_name_cache";
+
+    private volatile AdaptiveRateController rateController = new AdaptiveRateController();
+    private volatile int concurrency = DEFAULT_CONCURRENCY;
+    private volatile Cache<String, GameProfile> profileNameCache;
+    private volatile long notFoundTtl = DEFAULT_NOT_FOUND_TTL;
+
     /**
      * Creates a new ProfileService instance.
      */
@@ -31,6 +56,105 @@ public class ProfileService extends Service {
         super(DEFAULT_BASE_URI);
     }
 
+    /**
+     * Gets the maximum number of requests a pipelined lookup keeps in flight.
+     *
+     * @return The lookup concurrency.
+     */
+    public int getConcurrency() {
+        return this.concurrency;
+    }
+
+    /**
+     * Sets the maximum number of requests a pipelined lookup keeps in flight.
+     *
+     * @param concurrency Lookup concurrency.
+     * @throws IllegalArgumentException If the concurrency is not positive.
+     */
+    public void setConcurrency(int concurrency) {
+        if(concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive.");
+        }
+
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Gets the controller pacing and retrying lookup requests.
+     *
+     * @return The rate controller.
+     */
+    public AdaptiveRateController getRateController() {
+        return this.rateController;
+    }
+
+    /**
+     * Sets the controller pacing and retrying lookup requests.
+     * The controller is shared by all lookups of this service, and can be shared with other services that call
+     * the same upstream.
+     *
+     * @param rateController Rate controller.
+     * @throws IllegalArgumentException If the controller is null.
+     */
+    public void setRateController(AdaptiveRateController rateController) {
+        if(rateController == null) {
+            throw new IllegalArgumentException("Rate controller cannot be null.");
+        }
+
+        this.rateController = rateController;
+    }
+
+    /**
+     * Gets the cache used for profiles looked up by name.
+     *
+     * @return The profile name cache, or null if profiles are not cached.
+     */
+    public Cache<String, GameProfile> getProfileNameCache() {
+        return this.profileNameCache;
+    }
+
+    /**
+     * Sets the cache used for profiles looked up by name.
+     * When set, lookups report names found in the cache right away and only request the others from the upstream.
+     * The cache is keyed by lowercase name. Names that were not found are cached as profiles without an ID,
+     * for {@link #setNotFoundTtl(long, TimeUnit)} or the cache's time to live, whichever is shorter.
+     * Lookups are recorded under {@link #PROFILE_NAME_CACHE_METRICS_NAME} if the cache has no metrics name yet.
+     *
+     * @param profileNameCache Cache to use, or null to always look profiles up.
+     */
+    public void setProfileNameCache(Cache<String, GameProfile> profileNameCache) {
+        if(profileNameCache != null && profileNameCache.getMetricsName() == null) {
+            profileNameCache.setMetricsName(PROFILE_NAME_CACHE_METRICS_NAME);
+        }
+
+        this.profileNameCache = profileNameCache;
+    }
+
+    /**
+     * Gets the time names that were not found stay in the profile name cache.
+     *
+     * @param unit Unit to return the time in.
+     * @return The time to live of names that were not found.
+     */
+    public long getNotFoundTtl(TimeUnit unit) {
+        return unit.convert(this.notFoundTtl, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the time names that were not found stay in the profile name cache.
+     *
+     * @param ttl  Time to live of names that were not found, or 0 to not cache them.
+     * @param unit Unit of the time to live.
+     * @throws IllegalArgumentException If the time to live is negative.
+     */
+    public void setNotFoundTtl(long ttl, TimeUnit unit) {
+        if(ttl < 0) {
+            throw new IllegalArgumentException("TTL cannot be negative.");
+        }
+
+        this.notFoundTtl = unit.toMillis(ttl);
+    }
+
     /**
      * Locates profiles by their names.
      *
@@ -43,59 +167,45 @@ public class ProfileService extends Service {
 
     /**
      * Locates profiles by their names.
+     * If the lookup thread is interrupted, no further requests are made and the remaining names are reported as failed.
      *
      * @param names    Names to look for.
      * @param callback Callback to pass results to.
      * @param async    Whether to perform requests asynchronously.
      */
     public void findProfilesByName(final String[] names, final ProfileLookupCallback callback, final boolean async) {
-        final Set<String> criteria = new HashSet<String>();
-        for(String name : names) {
-            if(name != null && !name.isEmpty()) {
-                criteria.add(name.toLowerCase());
-            }
-        }
-
         Runnable runnable = new Runnable() {
             @Override
             public void run() {
-                for(Set<String> request : partition(criteria, PROFILES_PER_REQUEST)) {
-                    Exception error = null;
-                    int failCount = 0;
-                    boolean tryAgain = true;
-                    while(failCount < MAX_FAIL_COUNT && tryAgain) {
-                        tryAgain = false;
-                        try {
-                            GameProfile[] profiles = HTTP.makeRequest(getProxy(), getEndpointUri(SEARCH_ENDPOINT), request, GameProfile[].class);
-                            failCount = 0;
-                            Set<String> missing = new HashSet<String>(request);
-                            for(GameProfile profile : profiles) {
-                                missing.remove(profile.getName().toLowerCase());
-                                callback.onProfileLookupSucceeded(profile);
-                            }
-
-                            for(String name : missing) {
-                                callback.onProfileLookupFailed(new GameProfile((UUID) null, name), new ProfileNotFoundException("Server could not find the requested profile."));
-                            }
+                List<String> uncached = reportCached(names, callback);
+                AdaptiveRateController controller = rateController;
+                List<List<String>> requests = partition(uncached, PROFILES_PER_REQUEST);
+                for(int index = 0; index < requests.size(); index++) {
+                    List<String> request = requests.get(index);
+                    for(int attempt = 1; ; attempt++) {
+                        if(!sleep(controller.reserve())) {
+                            reportInterrupted(requests, index, callback);
+                            return;
+                        }
 
-                            try {
-                                Thread.sleep(DELAY_BETWEEN_PAGES);
-                            } catch(InterruptedException ignored) {
-                            }
+                        try {
+                            GameProfile[] profiles = makeRequest(SEARCH_ENDPOINT_NAME, getEndpointUri(SEARCH_ENDPOINT), request, GameProfile[].class);
+                            controller.onSuccess();
+                            reportResults(request, profiles, callback);
+                            break;
                         } catch(RequestException e) {
-                            error = e;
-                            failCount++;
-                            if(failCount >= MAX_FAIL_COUNT) {
+                            long delay = controller.onFailure(attempt, e);
+                            if(delay < 0) {
                                 for(String name : request) {
-                                    callback.onProfileLookupFailed(new GameProfile((UUID) null, name), error);
-                                }
-                            } else {
-                                try {
-                                    Thread.sleep(DELAY_BETWEEN_FAILURES);
-                                } catch(InterruptedException ignored) {
+                                    callback.onProfileLookupFailed(new GameProfile((UUID) null, name), e);
                                 }
 
-                                tryAgain = true;
+                                break;
+                            }
+
+                            if(!sleep(delay)) {
+                                reportInterrupted(requests, index, callback);
+                                return;
                             }
                         }
                     }
@@ -104,24 +214,393 @@ public class ProfileService extends Service {
         };
 
         if(async) {
-            new Thread(runnable, "ProfileLookupThread").start();
+            ThreadUtil.newThread(runnable, "ProfileLookupThread").start();
         } else {
             runnable.run();
         }
     }
 
-    private static Set<Set<String>> partition(Set<String> set, int size) {
-        List<String> list = new ArrayList<String>(set);
-        Set<Set<String>> ret = new HashSet<Set<String>>();
-        for(int i = 0; i < list.size(); i += size) {
-            Set<String> s = new HashSet<String>();
-            s.addAll(list.subList(i, Math.min(i + size, list.size())));
-            ret.add(s);
+    /**
+     * Locates profiles by their names, with several requests in flight at once.
+     * Requests are limited by {@link #setConcurrency(int)} and the {@link #getRateController() rate controller},
+     * and a request that fails is retried without holding up the others. Results are passed to the callback one at a
+     * time: first the names found in the {@link #setProfileNameCache(Cache) profile name cache}, then the others in the
+     * order of the requests they belong to. Requests are made for the names in the order they are given.
+     *
+     * @param names    Names to look for.
+     * @param callback Callback to pass results to.
+     * @return A future completed with a summary of the lookup once every name has been reported to the callback,
+     *         or exceptionally if the callback throws.
+     */
+    public CompletableFuture<ProfileLookupResult> findProfilesByNameAsync(String[] names, ProfileLookupCallback callback) {
+        return this.findProfilesByNameAsync(names, callback, null);
+    }
+
+    /**
+     * Locates profiles by their names, with several requests in flight at once.
+     * Requests are limited by {@link #setConcurrency(int)} and the {@link #getRateController() rate controller},
+     * and a request that fails is retried without holding up the others. Results are passed to the callback one at a
+     * time: first the names found in the {@link #setProfileNameCache(Cache) profile name cache}, then the others in the
+     * order of the requests they belong to. Requests are made for the names in the order they are given.
+     *
+     * @param names    Names to look for.
+     * @param callback Callback to pass results to.
+     * @param executor Executor to complete requests on, or null to use the transport's defaults.
+     * @return A future completed with a summary of the lookup once every name has been reported to the callback,
+     *         or exceptionally if the callback throws.
+     */
+    public CompletableFuture<ProfileLookupResult> findProfilesByNameAsync(String[] names, ProfileLookupCallback callback, Executor executor) {
+        if(names == null) {
+            throw new IllegalArgumentException("Names cannot be null.");
+        }
+
+        if(callback == null) {
+            throw new IllegalArgumentException("Callback cannot be null.");
+        }
+
+        PipelinedLookup lookup = new PipelinedLookup(names, callback, this.rateController, executor);
+        lookup.start(this.concurrency);
+        return lookup.result;
+    }
+
+    private static List<List<String>> partition(List<String> names, int size) {
+        List<List<String>> ret = new ArrayList<List<String>>();
+        for(int i = 0; i < names.size(); i += size) {
+            ret.add(names.subList(i, Math.min(i + size, names.size())));
         }
 
         return ret;
     }
 
+    private List<String> reportCached(String[] names, ProfileLookupCallback callback) {
+        Set<String> criteria = new LinkedHashSet<String>();
+        for(String name : names) {
+            if(name != null && !name.isEmpty()) {
+                criteria.add(name.toLowerCase());
+            }
+        }
+
+        Cache<String, GameProfile> cache = this.profileNameCache;
+        if(cache == null) {
+            return new ArrayList<String>(criteria);
+        }
+
+        List<String> uncached = new ArrayList<String>();
+        for(String name : criteria) {
+            GameProfile profile = cache.getIfPresent(name);
+            if(profile == null) {
+                uncached.add(name);
+            } else if(profile.getId() != null) {
+                callback.onProfileLookupSucceeded(new GameProfile(profile.getId(), profile.getName()));
+            } else {
+                callback.onProfileLookupFailed(new GameProfile((UUID) null, profile.getName()), new ProfileNotFoundException("Server could not find the requested profile."));
+            }
+        }
+
+        return uncached;
+    }
+
+    private static boolean sleep(long nanos) {
+        if(nanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    private static void reportInterrupted(List<List<String>> requests, int from, ProfileLookupCallback callback) {
+        // An interrupted lookup stops making requests, but every name it was given is still reported.
+        RequestException error = new RequestException("Profile lookup was interrupted.");
+        for(List<String> request : requests.subList(from, requests.size())) {
+            for(String name : request) {
+                callback.onProfileLookupFailed(new GameProfile((UUID) null, name), error);
+            }
+        }
+    }
+
+    private int reportResults(List<String> request, GameProfile[] profiles, ProfileLookupCallback callback) {
+        Cache<String, GameProfile> cache = this.profileNameCache;
+        Set<String> missing = new LinkedHashSet<String>(request);
+        for(GameProfile profile : profiles) {
+            String name = profile.getName().toLowerCase();
+            missing.remove(name);
+            if(cache != null && profile.getId() != null) {
+                // Cache a copy, since the callback is free to modify the profile it is given.
+                cache.put(name, new GameProfile(profile.getId(), profile.getName()));
+            }
+
+            callback.onProfileLookupSucceeded(profile);
+        }
+
+        long notFoundTtl = cache != null ? Math.min(this.notFoundTtl, cache.getTtl(TimeUnit.MILLISECONDS)) : 0;
+        for(String name : missing) {
+            if(notFoundTtl > 0) {
+                cache.put(name, new GameProfile((UUID) null, name), notFoundTtl, TimeUnit.MILLISECONDS);
+            }
+
+            callback.onProfileLookupFailed(new GameProfile((UUID) null, name), new ProfileNotFoundException("Server could not find the requested profile."));
+        }
+
+        return missing.size();
+    }
+
+    private class PipelinedLookup {
+        private final String[] names;
+        private final ProfileLookupCallback callback;
+        private final AdaptiveRateController controller;
+        private final Executor executor;
+        private final CompletableFuture<ProfileLookupResult> result = new CompletableFuture<>();
+        private final long startTime = System.nanoTime();
+
+        private List<List<String>> requests;
+        // Completed requests waiting for the requests before them, as response arrays or exceptions.
+        private Object[] outcomes;
+        private int nextRequest;
+        private int nextReport;
+        private int cachedCount;
+        private int foundCount;
+        private int failedCount;
+        private int retryCount;
+
+        private PipelinedLookup(String[] names, ProfileLookupCallback callback, AdaptiveRateController controller, Executor executor) {
+            this.names = names;
+            this.callback = callback;
+            this.controller = controller;
+            this.executor = executor;
+        }
+
+        private void start(int concurrency) {
+            synchronized(this) {
+                List<String> uncached;
+                try {
+                    uncached = reportCached(this.names, new ProfileLookupCallback() {
+                        @Override
+                        public void onProfileLookupSucceeded(GameProfile profile) {
+                            cachedCount++;
+                            foundCount++;
+                            callback.onProfileLookupSucceeded(profile);
+                        }
+
+                        @Override
+                        public void onProfileLookupFailed(GameProfile profile, Exception e) {
+                            cachedCount++;
+                            failedCount++;
+                            callback.onProfileLookupFailed(profile, e);
+                        }
+                    });
+                } catch(Throwable t) {
+                    this.result.completeExceptionally(t);
+                    return;
+                }
+
+                this.requests = partition(uncached, PROFILES_PER_REQUEST);
+                this.outcomes = new Object[this.requests.size()];
+            }
+
+            if(this.requests.isEmpty()) {
+                this.complete();
+                return;
+            }
+
+            for(int i = 0; i < concurrency; i++) {
+                this.sendNext();
+            }
+        }
+
+        private void sendNext() {
+            final int index;
+            synchronized(this) {
+                if(this.result.isDone() || this.nextRequest >= this.requests.size()) {
+                    return;
+                }
+
+                index = this.nextRequest++;
+            }
+
+            this.send(index, 1);
+        }
+
+        private void send(final int index, final int attempt) {
+            AsyncUtil.delay(this.controller.reserve(), TimeUnit.NANOSECONDS).thenCompose(new Function<Void, CompletionStage<GameProfile[]>>() {
+                @Override
+                public CompletionStage<GameProfile[]> apply(Void ignored) {
+                    return makeRequestAsync(SEARCH_ENDPOINT_NAME, getEndpointUri(SEARCH_ENDPOINT), requests.get(index), GameProfile[].class, executor);
+                }
+            }).whenComplete(new BiConsumer<GameProfile[], Throwable>() {
+                @Override
+                public void accept(GameProfile[] profiles, Throwable error) {
+                    Throwable cause = AsyncUtil.unwrap(error);
+                    if(error == null) {
+                        controller.onSuccess();
+                    }
+
+                    long delay = cause instanceof RequestException ? controller.onFailure(attempt, cause) : -1;
+                    if(delay >= 0 && !result.isDone()) {
+                        synchronized(PipelinedLookup.this) {
+                            retryCount++;
+                        }
+
+                        // Only this request waits out the back-off; the others keep their slots busy.
+                        AsyncUtil.delay(delay, TimeUnit.NANOSECONDS).thenRun(new Runnable() {
+                            @Override
+                            public void run() {
+                                send(index, attempt + 1);
+                            }
+                        });
+                        return;
+                    }
+
+                    finish(index, error == null ? (profiles != null ? profiles : new GameProfile[0]) : cause);
+                    sendNext();
+                }
+            });
+        }
+
+        private synchronized void finish(int index, Object outcome) {
+            this.outcomes[index] = outcome;
+            try {
+                while(this.nextReport < this.outcomes.length && this.outcomes[this.nextReport] != null && !this.result.isDone()) {
+                    Object next = this.outcomes[this.nextReport];
+                    List<String> request = this.requests.get(this.nextReport);
+                    this.outcomes[this.nextReport++] = null;
+                    if(next instanceof GameProfile[]) {
+                        GameProfile[] profiles = (GameProfile[]) next;
+                        this.foundCount += profiles.length;
+                        this.failedCount += reportResults(request, profiles, this.callback);
+                    } else {
+                        Exception error = next instanceof Exception ? (Exception) next : new RequestException((Throwable) next);
+                        this.failedCount += request.size();
+                        for(String name : request) {
+                            this.callback.onProfileLookupFailed(new GameProfile((UUID) null, name), error);
+                        }
+                    }
+                }
+            } catch(Throwable t) {
+                this.result.completeExceptionally(t);
+                return;
+            }
+
+            if(this.nextReport == this.outcomes.length) {
+                this.complete();
+            }
+        }
+
+        private synchronized void complete() {
+            int nameCount = this.cachedCount;
+            for(List<String> request : this.requests) {
+                nameCount += request.size();
+            }
+
+            this.result.complete(new ProfileLookupResult(nameCount, this.cachedCount, this.foundCount, this.failedCount, this.requests.size(), this.retryCount, System.nanoTime() - this.startTime));
+        }
+    }
+
+    /**
+     * Summary of a pipelined profile lookup.
+     */
+    public static class ProfileLookupResult {
+        private final int nameCount;
+        private final int cachedCount;
+        private final int foundCount;
+        private final int failedCount;
+        private final int requestCount;
+        private final int retryCount;
+        private final long duration;
+
+        private ProfileLookupResult(int nameCount, int cachedCount, int foundCount, int failedCount, int requestCount, int retryCount, long duration) {
+            this.nameCount = nameCount;
+            this.cachedCount = cachedCount;
+            this.foundCount = foundCount;
+            this.failedCount = failedCount;
+            this.requestCount = requestCount;
+            this.retryCount = retryCount;
+            this.duration = duration;
+        }
+
+        /**
+         * Gets the number of distinct names looked up.
+         *
+         * @return The number of names.
+         */
+        public int getNameCount() {
+            return this.nameCount;
+        }
+
+        /**
+         * Gets the number of names answered from the profile name cache, whether found or not.
+         *
+         * @return The number of cached names.
+         */
+        public int getCachedCount() {
+            return this.cachedCount;
+        }
+
+        /**
+         * Gets the number of profiles found, including those found in the cache.
+         *
+         * @return The number of profiles found.
+         */
+        public int getFoundCount() {
+            return this.foundCount;
+        }
+
+        /**
+         * Gets the number of names reported as failed, either because no profile was found or the request failed.
+         *
+         * @return The number of failed names.
+         */
+        public int getFailedCount() {
+            return this.failedCount;
+        }
+
+        /**
+         * Gets the number of requests the names were split into.
+         *
+         * @return The number of requests.
+         */
+        public int getRequestCount() {
+            return this.requestCount;
+        }
+
+        /**
+         * Gets the number of times a failed request was retried.
+         *
+         * @return The number of retries.
+         */
+        public int getRetryCount() {
+            return this.retryCount;
+        }
+
+        /**
+         * Gets the time the lookup took.
+         *
+         * @param unit Unit to get the duration in.
+         * @return The duration of the lookup.
+         */
+        public long getDuration(TimeUnit unit) {
+            return unit.convert(this.duration, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets the number of names looked up per second.
+         *
+         * @return The lookup throughput.
+         */
+        public double getNamesPerSecond() {
+            return this.duration > 0 ? this.nameCount * (double) TimeUnit.SECONDS.toNanos(1) / this.duration : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "ProfileLookupResult{nameCount=" + this.nameCount + ", cachedCount=" + this.cachedCount + ", foundCount=" + this.foundCount + ", failedCount=" + this.failedCount + ", requestCount=" + this.requestCount + ", retryCount=" + this.retryCount + ", duration=" + TimeUnit.NANOSECONDS.toMillis(this.duration) + "ms, namesPerSecond=" + String.format("%.1f", this.getNamesPerSecond()) + "}";
+        }
+    }
+
     /**
      * Callback for reporting profile lookup results.
      */
@@ -1,18 +1,44 @@
 package com.github.steveice10.mc.auth.service;
 
+import com.github.steveice10.mc.auth.exception.request.RequestException;
+import com.github.steveice10.mc.auth.exception.request.RequestTimeoutException;
+import com.github.steveice10.mc.auth.exception.request.ServiceUnavailableException;
+import com.github.steveice10.mc.auth.transport.HttpRequest;
+import com.github.steveice10.mc.auth.transport.HttpResponse;
+import com.github.steveice10.mc.auth.transport.HttpTransport;
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+import com.github.steveice10.mc.auth.util.Deadline;
+import com.github.steveice10.mc.auth.util.HTTP;
+
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
 import java.net.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class for auth-related services.
  */
 public abstract class Service {
+    private static final String WARM_UP_ENDPOINT = "warmup";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     private URI baseUri;
     private Proxy proxy = Proxy.NO_PROXY;
+    private HttpTransport transport;
+    private volatile long timeout = HttpRequest.DEFAULT_TIMEOUT;
+    private final Map<String, Long> endpointTimeouts = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deadline> deadline = new ThreadLocal<>();
 
     public Service(URI initialBaseUri) {
         if(initialBaseUri == null) {
@@ -105,6 +131,35 @@ public abstract class Service {
         }
     }
 
+    /**
+     * Appends a form-encoded query parameter value to a URI being built.
+     * Produces the same output as {@link URLEncoder} with UTF-8, but only falls back to it for non-ASCII input.
+     *
+     * @param builder Builder to append to.
+     * @param value   Value to encode.
+     */
+    protected static void appendQueryValue(StringBuilder builder, String value) {
+        int length = value.length();
+        for(int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '*' || c == '_') {
+                builder.append(c);
+            } else if(c == ' ') {
+                builder.append('+');
+            } else if(c < 0x80) {
+                builder.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            } else {
+                try {
+                    builder.append(URLEncoder.encode(value.substring(i), "UTF-8"));
+                } catch(UnsupportedEncodingException e) {
+                    throw new IllegalStateException("UTF-8 encoding not supported.", e);
+                }
+
+                return;
+            }
+        }
+    }
+
     /**
      * Gets the proxy used by this service.
      *
@@ -126,4 +181,316 @@ public abstract class Service {
             this.proxy = proxy;
         }
     }
+
+    /**
+     * Gets the transport used by this service to make requests.
+     *
+     * @return The transport used by this service.
+     */
+    public HttpTransport getTransport() {
+        return this.transport != null ? this.transport : HTTP.getDefaultTransport();
+    }
+
+    /**
+     * Sets the transport used by this service to make requests.
+     *
+     * @param transport Transport to use. Null will use the default transport of {@link HTTP}.
+     */
+    public void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Gets the timeout of requests to an endpoint of this service.
+     *
+     * @param endpoint Name of the endpoint.
+     * @param unit     Unit to return the timeout in.
+     * @return The endpoint's timeout, or the service's timeout if none was set for the endpoint.
+     */
+    public long getTimeout(String endpoint, TimeUnit unit) {
+        Long timeout = endpoint != null ? this.endpointTimeouts.get(endpoint) : null;
+        return unit.convert(timeout != null ? timeout : this.timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the timeout of requests made by this service to endpoints without their own timeout.
+     *
+     * @param timeout Timeout to set.
+     * @param unit    Unit of the timeout.
+     * @throws IllegalArgumentException If the timeout is not positive.
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.timeout = toTimeoutMillis(timeout, unit);
+    }
+
+    /**
+     * Sets the timeout of requests to an endpoint of this service.
+     *
+     * @param endpoint Name of the endpoint, such as "hasJoined".
+     * @param timeout  Timeout to set.
+     * @param unit     Unit of the timeout.
+     * @throws IllegalArgumentException If the endpoint is null or the timeout is not positive.
+     */
+    public void setTimeout(String endpoint, long timeout, TimeUnit unit) {
+        if(endpoint == null) {
+            throw new IllegalArgumentException("Endpoint cannot be null.");
+        }
+
+        this.endpointTimeouts.put(endpoint, toTimeoutMillis(timeout, unit));
+    }
+
+    /**
+     * Removes the timeout of an endpoint, so that requests to it use the service's timeout.
+     *
+     * @param endpoint Name of the endpoint.
+     */
+    public void removeTimeout(String endpoint) {
+        if(endpoint != null) {
+            this.endpointTimeouts.remove(endpoint);
+        }
+    }
+
+    private static long toTimeoutMillis(long timeout, TimeUnit unit) {
+        long millis = unit.toMillis(timeout);
+        if(millis <= 0) {
+            throw new IllegalArgumentException("Timeout must be at least one millisecond.");
+        }
+
+        return millis;
+    }
+
+    /**
+     * Gets the deadline requests made by this service on the current thread must complete by.
+     *
+     * @return The current deadline, or null if there is none.
+     */
+    protected Deadline getDeadline() {
+        return this.deadline.get();
+    }
+
+    /**
+     * Sets the deadline requests made by this service on the current thread must complete by.
+     *
+     * @param deadline Deadline to set, or null to remove the current deadline.
+     */
+    protected void setDeadline(Deadline deadline) {
+        if(deadline != null) {
+            this.deadline.set(deadline);
+        } else {
+            this.deadline.remove();
+        }
+    }
+
+    /**
+     * Applies the timeout of the request's endpoint to the request, shortened to the time left of the current deadline.
+     *
+     * @param request Request to apply the timeout to.
+     * @throws RequestTimeoutException If the current deadline has already passed.
+     */
+    protected void applyTimeout(HttpRequest request) throws RequestTimeoutException {
+        long timeout = this.getTimeout(request.getEndpoint(), TimeUnit.MILLISECONDS);
+
+        Deadline deadline = this.deadline.get();
+        if(deadline != null) {
+            long remaining = deadline.getRemaining(TimeUnit.MILLISECONDS);
+            if(remaining <= 0) {
+                throw new RequestTimeoutException("Deadline passed before request to '" + request.getUri() + "' could be made.");
+            }
+
+            timeout = Math.min(timeout, remaining);
+        }
+
+        request.setTimeout(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Warms up the connections to the hosts this service makes requests to.
+     * Host names are resolved ahead of time and a connection to each host is opened and left in the
+     * transport's connection pool, so that the first real requests neither wait for DNS resolution
+     * nor for a full TLS handshake.
+     *
+     * @throws ServiceUnavailableException If a host could not be reached. All hosts are attempted regardless.
+     */
+    public void warmUp() throws ServiceUnavailableException {
+        ServiceUnavailableException error = null;
+        for(URI uri : this.getWarmUpUris()) {
+            try {
+                this.warmUp(uri);
+            } catch(ServiceUnavailableException e) {
+                if(error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+
+        if(error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Warms up the connections to the hosts this service makes requests to asynchronously.
+     * All hosts are warmed up in parallel.
+     *
+     * @return A future completed once all hosts were attempted, or exceptionally with a {@link ServiceUnavailableException}.
+     * @see #warmUp()
+     */
+    public CompletableFuture<Void> warmUpAsync() {
+        return this.warmUpAsync(null);
+    }
+
+    /**
+     * Warms up the connections to the hosts this service makes requests to asynchronously.
+     * All hosts are warmed up in parallel.
+     *
+     * @param executor Executor to warm up on, or null to use the default executor.
+     * @return A future completed once all hosts were attempted, or exceptionally with a {@link ServiceUnavailableException}.
+     * @see #warmUp()
+     */
+    public CompletableFuture<Void> warmUpAsync(Executor executor) {
+        List<URI> uris = this.getWarmUpUris();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[uris.size()];
+        for(int i = 0; i < futures.length; i++) {
+            final URI uri = uris.get(i);
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            try {
+                (executor != null ? executor : AsyncUtil.getDefaultExecutor()).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            warmUp(uri);
+                            future.complete(null);
+                        } catch(Throwable t) {
+                            future.completeExceptionally(t);
+                        }
+                    }
+                });
+            } catch(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            futures[i] = future;
+        }
+
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Gets the URIs of the hosts this service makes requests to, used to warm up connections.
+     *
+     * @return The URIs to warm up.
+     */
+    protected List<URI> getWarmUpUris() {
+        return Collections.singletonList(this.baseUri);
+    }
+
+    private void warmUp(URI uri) throws ServiceUnavailableException {
+        // Through a proxy, host names are resolved by the proxy rather than locally.
+        if(this.proxy.type() == Proxy.Type.DIRECT) {
+            try {
+                InetAddress.getAllByName(uri.getHost());
+            } catch(UnknownHostException e) {
+                throw new ServiceUnavailableException("Could not resolve host '" + uri.getHost() + "'.", e);
+            }
+        }
+
+        HttpRequest request = new HttpRequest("HEAD", uri);
+        request.setProxy(this.proxy);
+        request.setEndpoint(WARM_UP_ENDPOINT);
+        this.applyTimeout(request);
+
+        // Any response will do; closing it returns the connection to the pool.
+        HttpResponse response = null;
+        try {
+            response = this.getTransport().execute(request);
+        } catch(IOException e) {
+            throw new ServiceUnavailableException("Could not warm up connection to '" + uri + "'.", e);
+        } finally {
+            if(response != null) {
+                try {
+                    response.close();
+                } catch(IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes a request to an endpoint of this service.
+     *
+     * @param endpoint     Name of the endpoint the request is made to.
+     * @param uri          URI to make the request to.
+     * @param input        Input to provide in the request. If null, a GET request is made.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @return The response of the request.
+     * @throws RequestException If an error occurs while making the request.
+     */
+    protected <T> T makeRequest(String endpoint, URI uri, Object input, Class<T> responseType) throws RequestException {
+        return this.makeRequest(endpoint, uri, input, responseType, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Makes a request to an endpoint of this service.
+     *
+     * @param endpoint     Name of the endpoint the request is made to.
+     * @param uri          URI to make the request to.
+     * @param input        Input to provide in the request. If null, a GET request is made.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @param extraHeaders Extra headers to add to the request.
+     * @return The response of the request.
+     * @throws RequestException If an error occurs while making the request.
+     */
+    protected <T> T makeRequest(String endpoint, URI uri, Object input, Class<T> responseType, Map<String, String> extraHeaders) throws RequestException {
+        HttpRequest request = HTTP.createRequest(this.proxy, uri, input, extraHeaders);
+        request.setEndpoint(endpoint);
+        this.applyTimeout(request);
+        return HTTP.makeRequest(this.getTransport(), request, responseType);
+    }
+
+    /**
+     * Makes a form request to an endpoint of this service.
+     *
+     * @param endpoint     Name of the endpoint the request is made to.
+     * @param uri          URI to make the request to.
+     * @param input        Input to provide in the request.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @return The response of the request.
+     * @throws RequestException If an error occurs while making the request.
+     */
+    protected <T> T makeFormRequest(String endpoint, URI uri, Map<String, String> input, Class<T> responseType) throws RequestException {
+        HttpRequest request = HTTP.createFormRequest(this.proxy, uri, input);
+        request.setEndpoint(endpoint);
+        this.applyTimeout(request);
+        return HTTP.makeRequest(this.getTransport(), request, responseType);
+    }
+
+    /**
+     * Makes an asynchronous request to an endpoint of this service.
+     *
+     * @param endpoint     Name of the endpoint the request is made to.
+     * @param uri          URI to make the request to.
+     * @param input        Input to provide in the request. If null, a GET request is made.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @param executor     Executor to complete the future on, or null to use the transport's defaults.
+     * @return A future completed with the response of the request, or exceptionally with a {@link RequestException}.
+     */
+    protected <T> CompletableFuture<T> makeRequestAsync(String endpoint, URI uri, Object input, Class<T> responseType, Executor executor) {
+        HttpRequest request = HTTP.createRequest(this.proxy, uri, input, Collections.<String, String>emptyMap());
+        request.setEndpoint(endpoint);
+        try {
+            this.applyTimeout(request);
+        } catch(RequestTimeoutException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        return HTTP.makeRequestAsync(this.getTransport(), request, responseType, executor);
+    }
 }
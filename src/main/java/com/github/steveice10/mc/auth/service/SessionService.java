@@ -1,35 +1,95 @@
 package com.github.steveice10.mc.auth.service;
 
+import com.github.steveice10.mc.auth.cache.Cache;
+import com.github.steveice10.mc.auth.cache.Weigher;
 import com.github.steveice10.mc.auth.data.GameProfile;
 import com.github.steveice10.mc.auth.exception.profile.ProfileException;
 import com.github.steveice10.mc.auth.exception.profile.ProfileLookupException;
 import com.github.steveice10.mc.auth.exception.profile.ProfileNotFoundException;
 import com.github.steveice10.mc.auth.exception.request.RequestException;
+import com.github.steveice10.mc.auth.util.AsyncUtil;
 import com.github.steveice10.mc.auth.util.HTTP;
+import com.github.steveice10.mc.auth.util.StreamingTypeAdapterFactory;
+import com.github.steveice10.mc.auth.util.TokenBucket;
 import com.github.steveice10.mc.auth.util.UUIDSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import javax.crypto.SecretKey;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Service used for session-related queries.
  */
 public class SessionService extends Service {
+    /**
+     * Weigher that weighs cached profile properties by the combined length of their names, values and signatures.
+     */
+    public static final Weigher<UUID, List<GameProfile.Property>> PROPERTIES_WEIGHER = new Weigher<UUID, List<GameProfile.Property>>() {
+        @Override
+        public long getWeight(UUID key, List<GameProfile.Property> value) {
+            long weight = 0;
+            for(GameProfile.Property property : value) {
+                weight += length(property.getName()) + length(property.getValue()) + length(property.getSignature());
+            }
+
+            return weight;
+        }
+
+        private int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    };
+
+    /**
+     * Name lookups in the profile properties cache are recorded under, unless the cache already has a metrics name.
+     */
+    public static final String PROPERTIES_CACHE_METRICS_NAME = "profile_properties_cache";
+
+    public static final int DEFAULT_BULK_PARALLELISM = 8;
+
     private static final URI DEFAULT_BASE_URI = URI.create("https://sessionserver.mojang.com/session/minecraft/");
     private static final String JOIN_ENDPOINT = "join";
     private static final String HAS_JOINED_ENDPOINT = "hasJoined";
     private static final String PROFILE_ENDPOINT = "profile";
 
+    private static final ThreadLocal<StringBuilder> URI_BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(128);
+        }
+    };
+
+    private volatile UriTemplate hasJoinedTemplate;
+    private volatile Cache<UUID, List<GameProfile.Property>> propertiesCache;
+    private volatile int bulkParallelism = DEFAULT_BULK_PARALLELISM;
+    private final TokenBucket bulkRateLimit = new TokenBucket(Double.POSITIVE_INFINITY, 1);
+
     /**
      * Creates a new SessionService instance.
      */
@@ -68,7 +128,33 @@ public class SessionService extends Service {
      */
     public void joinServer(GameProfile profile, String authenticationToken, String serverId) throws RequestException {
         JoinServerRequest request = new JoinServerRequest(authenticationToken, profile.getId(), serverId);
-        HTTP.makeRequest(this.getProxy(), this.getEndpointUri(JOIN_ENDPOINT), request, null);
+        this.makeRequest(JOIN_ENDPOINT, this.getEndpointUri(JOIN_ENDPOINT), request, null);
+    }
+
+    /**
+     * Joins a server asynchronously.
+     *
+     * @param profile             Profile to join the server with.
+     * @param authenticationToken Authentication token to join the server with.
+     * @param serverId            ID of the server to join.
+     * @return A future completed once the server has been joined, or exceptionally with a {@link RequestException}.
+     */
+    public CompletableFuture<Void> joinServerAsync(GameProfile profile, String authenticationToken, String serverId) {
+        return this.joinServerAsync(profile, authenticationToken, serverId, null);
+    }
+
+    /**
+     * Joins a server asynchronously.
+     *
+     * @param profile             Profile to join the server with.
+     * @param authenticationToken Authentication token to join the server with.
+     * @param serverId            ID of the server to join.
+     * @param executor            Executor to complete the future on, or null to use the transport's defaults.
+     * @return A future completed once the server has been joined, or exceptionally with a {@link RequestException}.
+     */
+    public CompletableFuture<Void> joinServerAsync(GameProfile profile, String authenticationToken, String serverId, Executor executor) {
+        JoinServerRequest request = new JoinServerRequest(authenticationToken, profile.getId(), serverId);
+        return this.<Void>makeRequestAsync(JOIN_ENDPOINT, this.getEndpointUri(JOIN_ENDPOINT), request, null, executor);
     }
 
     /**
@@ -80,18 +166,67 @@ public class SessionService extends Service {
      * @throws RequestException If an error occurs while making the request.
      */
     public GameProfile getProfileByServer(String name, String serverId) throws RequestException {
-        Map<String, String> queryParams = new HashMap<>();
-        queryParams.put("username", name);
-        queryParams.put("serverId", serverId);
+        HasJoinedResponse response = this.makeRequest(HAS_JOINED_ENDPOINT, this.getHasJoinedUri(name, serverId), null, HasJoinedResponse.class);
+        return toProfile(name, response);
+    }
 
-        HasJoinedResponse response = HTTP.makeRequest(this.getProxy(), this.getEndpointUri(HAS_JOINED_ENDPOINT, queryParams), null, HasJoinedResponse.class);
-        if(response != null && response.id != null) {
-            GameProfile result = new GameProfile(response.id, name);
-            result.setProperties(response.properties);
-            return result;
-        } else {
-            return null;
+    /**
+     * Asynchronously gets the profile of the given user if they are currently logged in to the given server.
+     *
+     * @param name     Name of the user to get the profile of.
+     * @param serverId ID of the server to check if they're logged in to.
+     * @return A future completed with the profile of the given user, or null if they are not logged in to the given server.
+     *         The future is completed exceptionally with a {@link RequestException} if an error occurs while making the request.
+     */
+    public CompletableFuture<GameProfile> getProfileByServerAsync(String name, String serverId) {
+        return this.getProfileByServerAsync(name, serverId, null);
+    }
+
+    /**
+     * Asynchronously gets the profile of the given user if they are currently logged in to the given server.
+     *
+     * @param name     Name of the user to get the profile of.
+     * @param serverId ID of the server to check if they're logged in to.
+     * @param executor Executor to complete the future on, or null to use the transport's defaults.
+     * @return A future completed with the profile of the given user, or null if they are not logged in to the given server.
+     *         The future is completed exceptionally with a {@link RequestException} if an error occurs while making the request.
+     */
+    public CompletableFuture<GameProfile> getProfileByServerAsync(final String name, String serverId, Executor executor) {
+        return this.makeRequestAsync(HAS_JOINED_ENDPOINT, this.getHasJoinedUri(name, serverId), null, HasJoinedResponse.class, executor)
+                .thenApply(new Function<HasJoinedResponse, GameProfile>() {
+                    @Override
+                    public GameProfile apply(HasJoinedResponse response) {
+                        return toProfile(name, response);
+                    }
+                });
+    }
+
+    /**
+     * Gets the cache used for profile properties.
+     *
+     * @return The profile properties cache, or null if properties are not cached.
+     */
+    public Cache<UUID, List<GameProfile.Property>> getPropertiesCache() {
+        return this.propertiesCache;
+    }
+
+    /**
+     * Sets the cache used for profile properties.
+     * When set, {@link #fillProfileProperties(GameProfile)} serves properties from the cache while they are live,
+     * and concurrent lookups of the same profile share a single request.
+     * {@link #PROPERTIES_WEIGHER} can be used to bound the cache by the size of the cached properties.
+     * If the cache has a max staleness, stale properties are served while they are refreshed, and are kept
+     * while the session server is unavailable.
+     * Lookups are recorded under {@link #PROPERTIES_CACHE_METRICS_NAME} if the cache has no metrics name yet.
+     *
+     * @param propertiesCache Cache to use, or null to always look properties up.
+     */
+    public void setPropertiesCache(Cache<UUID, List<GameProfile.Property>> propertiesCache) {
+        if(propertiesCache != null && propertiesCache.getMetricsName() == null) {
+            propertiesCache.setMetricsName(PROPERTIES_CACHE_METRICS_NAME);
         }
+
+        this.propertiesCache = propertiesCache;
     }
 
     /**
@@ -101,29 +236,332 @@ public class SessionService extends Service {
      * @return The given profile, after filling in its properties.
      * @throws ProfileException If the property lookup fails.
      */
-    public GameProfile fillProfileProperties(GameProfile profile) throws ProfileException {
+    public GameProfile fillProfileProperties(final GameProfile profile) throws ProfileException {
         if(profile.getId() == null) {
             return profile;
         }
 
-        try {
-            MinecraftProfileResponse response = HTTP.makeRequest(this.getProxy(), this.getEndpointUri(PROFILE_ENDPOINT + "/" + UUIDSerializer.fromUUID(profile.getId()), Collections.singletonMap("unsigned", "false")), null, MinecraftProfileResponse.class);
-            if(response == null) {
-                throw new ProfileNotFoundException("Couldn't fetch profile properties for " + profile + " as the profile does not exist.");
+        Cache<UUID, List<GameProfile.Property>> cache = this.propertiesCache;
+        if(cache == null) {
+            profile.setProperties(this.lookUpProperties(profile));
+            return profile;
+        }
+
+        // The lookup runs asynchronously even here, so that a stale hit is not held up by its refresh.
+        CompletableFuture<List<GameProfile.Property>> future = cache.get(profile.getId(), new Function<UUID, CompletableFuture<List<GameProfile.Property>>>() {
+            @Override
+            public CompletableFuture<List<GameProfile.Property>> apply(UUID id) {
+                return lookUpPropertiesAsync(profile, null);
             }
+        });
 
-            profile.setProperties(response.properties);
+        try {
+            profile.setProperties(future.join());
             return profile;
+        } catch(CompletionException e) {
+            Throwable cause = AsyncUtil.unwrap(e);
+            if(cause instanceof ProfileException) {
+                throw (ProfileException) cause;
+            } else if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new ProfileLookupException("Couldn't look up profile properties for " + profile + ".", cause);
+        }
+    }
+
+    /**
+     * Asynchronously fills in the properties of a profile.
+     *
+     * @param profile Profile to fill in the properties of.
+     * @return A future completed with the given profile after filling in its properties,
+     *         or exceptionally with a {@link ProfileException} if the property lookup fails.
+     */
+    public CompletableFuture<GameProfile> fillProfilePropertiesAsync(GameProfile profile) {
+        return this.fillProfilePropertiesAsync(profile, null);
+    }
+
+    /**
+     * Asynchronously fills in the properties of a profile.
+     *
+     * @param profile  Profile to fill in the properties of.
+     * @param executor Executor to complete the future on, or null to use the transport's defaults.
+     * @return A future completed with the given profile after filling in its properties,
+     *         or exceptionally with a {@link ProfileException} if the property lookup fails.
+     */
+    public CompletableFuture<GameProfile> fillProfilePropertiesAsync(final GameProfile profile, final Executor executor) {
+        if(profile.getId() == null) {
+            return CompletableFuture.completedFuture(profile);
+        }
+
+        CompletableFuture<List<GameProfile.Property>> future;
+        Cache<UUID, List<GameProfile.Property>> cache = this.propertiesCache;
+        if(cache == null) {
+            future = this.lookUpPropertiesAsync(profile, executor);
+        } else {
+            future = cache.get(profile.getId(), new Function<UUID, CompletableFuture<List<GameProfile.Property>>>() {
+                @Override
+                public CompletableFuture<List<GameProfile.Property>> apply(UUID id) {
+                    return lookUpPropertiesAsync(profile, executor);
+                }
+            });
+        }
+
+        return future.thenApply(new Function<List<GameProfile.Property>, GameProfile>() {
+            @Override
+            public GameProfile apply(List<GameProfile.Property> properties) {
+                profile.setProperties(properties);
+                return profile;
+            }
+        });
+    }
+
+    /**
+     * Gets the maximum number of property lookups a bulk fill runs at the same time.
+     *
+     * @return The bulk fill parallelism.
+     */
+    public int getBulkParallelism() {
+        return this.bulkParallelism;
+    }
+
+    /**
+     * Sets the maximum number of property lookups a bulk fill runs at the same time.
+     *
+     * @param bulkParallelism Bulk fill parallelism.
+     * @throws IllegalArgumentException If the parallelism is less than 1.
+     */
+    public void setBulkParallelism(int bulkParallelism) {
+        if(bulkParallelism < 1) {
+            throw new IllegalArgumentException("Bulk parallelism must be at least 1.");
+        }
+
+        this.bulkParallelism = bulkParallelism;
+    }
+
+    /**
+     * Gets the rate at which bulk fills start property lookups.
+     *
+     * @return The number of lookups started per second, or {@link Double#POSITIVE_INFINITY} if unlimited.
+     */
+    public double getBulkRateLimit() {
+        return this.bulkRateLimit.getRate();
+    }
+
+    /**
+     * Sets the rate at which bulk fills start property lookups.
+     * The rate is shared by all bulk fills of this service, and lookups served from the properties cache count towards it.
+     *
+     * @param permitsPerSecond Number of lookups started per second, or {@link Double#POSITIVE_INFINITY} for no limit.
+     * @param burst            Number of lookups that may start at once after a quiet period.
+     * @throws IllegalArgumentException If the rate is not positive or the burst is negative.
+     */
+    public void setBulkRateLimit(double permitsPerSecond, int burst) {
+        this.bulkRateLimit.setRate(permitsPerSecond, burst);
+    }
+
+    /**
+     * Asynchronously fills in the properties of many profiles.
+     * Lookups run in parallel, bounded by the bulk parallelism and rate limit of this service.
+     *
+     * @param profiles Profiles to fill in the properties of.
+     * @return One future per profile, in iteration order, each completed as soon as its own lookup finishes.
+     *         Futures are completed exceptionally with a {@link ProfileException} if their lookup fails.
+     */
+    public List<CompletableFuture<GameProfile>> fillProfilePropertiesAsync(Collection<GameProfile> profiles) {
+        return this.fillProfilePropertiesAsync(profiles, (Executor) null);
+    }
+
+    /**
+     * Asynchronously fills in the properties of many profiles.
+     * Lookups run in parallel, bounded by the bulk parallelism and rate limit of this service.
+     *
+     * @param profiles Profiles to fill in the properties of.
+     * @param executor Executor to complete the futures on, or null to use the transport's defaults.
+     * @return One future per profile, in iteration order, each completed as soon as its own lookup finishes.
+     *         Futures are completed exceptionally with a {@link ProfileException} if their lookup fails.
+     */
+    public List<CompletableFuture<GameProfile>> fillProfilePropertiesAsync(Collection<GameProfile> profiles, Executor executor) {
+        BulkFill fill = new BulkFill(executor);
+        List<CompletableFuture<GameProfile>> results = new ArrayList<>(profiles.size());
+        for(GameProfile profile : profiles) {
+            results.add(fill.add(profile));
+        }
+
+        fill.drain();
+        return results;
+    }
+
+    /**
+     * Asynchronously looks up the properties of many profiles by ID.
+     * Lookups run in parallel, bounded by the bulk parallelism and rate limit of this service.
+     *
+     * @param ids IDs of the profiles to look up.
+     * @return One future per ID, in iteration order, each completed with a profile holding the ID and its properties
+     *         as soon as its own lookup finishes. Futures are completed exceptionally with a {@link ProfileException}
+     *         if their lookup fails.
+     */
+    public List<CompletableFuture<GameProfile>> fillProfilePropertiesByIdAsync(Collection<UUID> ids) {
+        return this.fillProfilePropertiesByIdAsync(ids, null);
+    }
+
+    /**
+     * Asynchronously looks up the properties of many profiles by ID.
+     * Lookups run in parallel, bounded by the bulk parallelism and rate limit of this service.
+     *
+     * @param ids      IDs of the profiles to look up.
+     * @param executor Executor to complete the futures on, or null to use the transport's defaults.
+     * @return One future per ID, in iteration order, each completed with a profile holding the ID and its properties
+     *         as soon as its own lookup finishes. Futures are completed exceptionally with a {@link ProfileException}
+     *         if their lookup fails.
+     */
+    public List<CompletableFuture<GameProfile>> fillProfilePropertiesByIdAsync(Collection<UUID> ids, Executor executor) {
+        List<GameProfile> profiles = new ArrayList<>(ids.size());
+        for(UUID id : ids) {
+            profiles.add(new GameProfile(id, null));
+        }
+
+        return this.fillProfilePropertiesAsync(profiles, executor);
+    }
+
+    /**
+     * Asynchronously fills in the properties of many profiles, reporting each profile to a callback as soon as its
+     * lookup finishes. Lookups run in parallel, bounded by the bulk parallelism and rate limit of this service.
+     *
+     * @param profiles Profiles to fill in the properties of.
+     * @param callback Callback to report each profile to.
+     * @return A future completed once every profile has been reported.
+     */
+    public CompletableFuture<Void> fillProfilePropertiesAsync(Collection<GameProfile> profiles, ProfileService.ProfileLookupCallback callback) {
+        return this.fillProfilePropertiesAsync(profiles, callback, null);
+    }
+
+    /**
+     * Asynchronously fills in the properties of many profiles, reporting each profile to a callback as soon as its
+     * lookup finishes. Lookups run in parallel, bounded by the bulk parallelism and rate limit of this service.
+     *
+     * @param profiles Profiles to fill in the properties of.
+     * @param callback Callback to report each profile to.
+     * @param executor Executor to complete the lookups on, or null to use the transport's defaults.
+     * @return A future completed once every profile has been reported.
+     */
+    public CompletableFuture<Void> fillProfilePropertiesAsync(Collection<GameProfile> profiles, final ProfileService.ProfileLookupCallback callback, Executor executor) {
+        List<CompletableFuture<GameProfile>> results = this.fillProfilePropertiesAsync(profiles, executor);
+        List<CompletableFuture<Void>> reported = new ArrayList<>(results.size());
+        Iterator<GameProfile> iterator = profiles.iterator();
+        for(CompletableFuture<GameProfile> result : results) {
+            final GameProfile profile = iterator.next();
+            reported.add(result.handle(new BiFunction<GameProfile, Throwable, Void>() {
+                @Override
+                public Void apply(GameProfile filled, Throwable error) {
+                    if(error == null) {
+                        callback.onProfileLookupSucceeded(filled);
+                    } else {
+                        Throwable cause = AsyncUtil.unwrap(error);
+                        callback.onProfileLookupFailed(profile, cause instanceof Exception ? (Exception) cause : new ProfileLookupException("Couldn't look up profile properties for " + profile + ".", cause));
+                    }
+
+                    return null;
+                }
+            }));
+        }
+
+        return CompletableFuture.allOf(reported.toArray(new CompletableFuture<?>[reported.size()]));
+    }
+
+    private List<GameProfile.Property> lookUpProperties(GameProfile profile) throws ProfileException {
+        try {
+            MinecraftProfileResponse response = this.makeRequest(PROFILE_ENDPOINT, this.getProfileUri(profile.getId()), null, MinecraftProfileResponse.class);
+            return toProperties(profile, response);
         } catch(RequestException e) {
             throw new ProfileLookupException("Couldn't look up profile properties for " + profile + ".", e);
         }
     }
 
+    private CompletableFuture<List<GameProfile.Property>> lookUpPropertiesAsync(final GameProfile profile, Executor executor) {
+        return this.makeRequestAsync(PROFILE_ENDPOINT, this.getProfileUri(profile.getId()), null, MinecraftProfileResponse.class, executor)
+                .handle(new BiFunction<MinecraftProfileResponse, Throwable, List<GameProfile.Property>>() {
+                    @Override
+                    public List<GameProfile.Property> apply(MinecraftProfileResponse response, Throwable error) {
+                        if(error != null) {
+                            Throwable cause = AsyncUtil.unwrap(error);
+                            if(cause instanceof RequestException) {
+                                cause = new ProfileLookupException("Couldn't look up profile properties for " + profile + ".", cause);
+                            }
+
+                            throw new CompletionException(cause);
+                        }
+
+                        try {
+                            return toProperties(profile, response);
+                        } catch(ProfileNotFoundException e) {
+                            throw new CompletionException(e);
+                        }
+                    }
+                });
+    }
+
+    private URI getHasJoinedUri(String name, String serverId) {
+        // hasJoined is called for every player login, so its URI is built from a cached prefix
+        // in a per-thread buffer rather than through a parameter map.
+        URI baseUri = this.getBaseUri();
+        UriTemplate template = this.hasJoinedTemplate;
+        if(template == null || template.baseUri != baseUri) {
+            URI endpoint = this.getEndpointUri(HAS_JOINED_ENDPOINT);
+            template = new UriTemplate(baseUri, endpoint.getScheme() + "://" + endpoint.getRawAuthority() + endpoint.getRawPath() + "?username=");
+            this.hasJoinedTemplate = template;
+        }
+
+        StringBuilder builder = URI_BUILDER.get();
+        builder.setLength(0);
+        builder.append(template.prefix);
+        appendQueryValue(builder, name);
+        builder.append("&serverId=");
+        appendQueryValue(builder, serverId);
+        return URI.create(builder.toString());
+    }
+
+    private URI getProfileUri(UUID id) {
+        return this.getEndpointUri(PROFILE_ENDPOINT + "/" + UUIDSerializer.fromUUID(id), Collections.singletonMap("unsigned", "false"));
+    }
+
+    private static GameProfile toProfile(String name, HasJoinedResponse response) {
+        if(response != null && response.id != null) {
+            GameProfile result = new GameProfile(response.id, name);
+            result.setProperties(response.properties);
+            return result;
+        } else {
+            return null;
+        }
+    }
+
+    private static List<GameProfile.Property> toProperties(GameProfile profile, MinecraftProfileResponse response) throws ProfileNotFoundException {
+        if(response == null) {
+            throw new ProfileNotFoundException("Couldn't fetch profile properties for " + profile + " as the profile does not exist.");
+        }
+
+        // The list may be cached and shared between profiles, so it is never handed out mutable.
+        return response.properties != null ? Collections.unmodifiableList(response.properties) : Collections.<GameProfile.Property>emptyList();
+    }
+
     @Override
     public String toString() {
         return "SessionService{}";
     }
 
+    private static List<GameProfile.Property> readProperties(JsonReader in, TypeAdapter<GameProfile.Property> propertyAdapter) throws IOException {
+        // Responses usually carry a single textures property.
+        List<GameProfile.Property> properties = new ArrayList<>(1);
+        in.beginArray();
+        while(in.hasNext()) {
+            properties.add(propertyAdapter.read(in));
+        }
+
+        in.endArray();
+        return properties;
+    }
+
+    @JsonAdapter(JoinServerRequest.Adapter.class)
     private static class JoinServerRequest {
         private String accessToken;
         private UUID selectedProfile;
@@ -134,16 +572,176 @@ public class SessionService extends Service {
             this.selectedProfile = selectedProfile;
             this.serverId = serverId;
         }
+
+        private static class Adapter extends StreamingTypeAdapterFactory<JoinServerRequest> {
+            private Adapter() {
+                super(JoinServerRequest.class);
+            }
+
+            @Override
+            protected void write(JsonWriter out, JoinServerRequest value, TypeAdapter<JoinServerRequest> fallback) throws IOException {
+                out.beginObject();
+                out.name("accessToken").value(value.accessToken);
+                out.name("selectedProfile").value(value.selectedProfile != null ? UUIDSerializer.fromUUID(value.selectedProfile) : null);
+                out.name("serverId").value(value.serverId);
+                out.endObject();
+            }
+        }
     }
 
+    /**
+     * Runs the lookups of a bulk fill, starting a new one whenever a running one finishes.
+     */
+    private class BulkFill {
+        private final Executor executor;
+        private final int parallelism = bulkParallelism;
+        private final Queue<BulkTask> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger drains = new AtomicInteger();
+
+        private BulkFill(Executor executor) {
+            this.executor = executor;
+        }
+
+        private CompletableFuture<GameProfile> add(GameProfile profile) {
+            BulkTask task = new BulkTask(profile);
+            this.pending.add(task);
+            return task.result;
+        }
+
+        private void drain() {
+            // Lookups served from the cache finish synchronously, so starting the next lookup from a finished one
+            // could recurse once per profile. Only one thread drains at a time; others just ask it to loop again.
+            if(this.drains.getAndIncrement() != 0) {
+                return;
+            }
+
+            do {
+                while(this.active.get() < this.parallelism) {
+                    BulkTask task = this.pending.poll();
+                    if(task == null) {
+                        break;
+                    }
+
+                    this.active.incrementAndGet();
+                    this.start(task);
+                }
+            } while(this.drains.decrementAndGet() != 0);
+        }
+
+        private void start(final BulkTask task) {
+            AsyncUtil.delay(bulkRateLimit.reserve(), TimeUnit.NANOSECONDS)
+                    .thenCompose(new Function<Void, CompletableFuture<GameProfile>>() {
+                        @Override
+                        public CompletableFuture<GameProfile> apply(Void ignored) {
+                            return fillProfilePropertiesAsync(task.profile, executor);
+                        }
+                    })
+                    .whenComplete(new BiConsumer<GameProfile, Throwable>() {
+                        @Override
+                        public void accept(GameProfile profile, Throwable error) {
+                            active.decrementAndGet();
+                            if(error != null) {
+                                task.result.completeExceptionally(AsyncUtil.unwrap(error));
+                            } else {
+                                task.result.complete(profile);
+                            }
+
+                            drain();
+                        }
+                    });
+        }
+    }
+
+    private static class BulkTask {
+        private final GameProfile profile;
+        private final CompletableFuture<GameProfile> result = new CompletableFuture<>();
+
+        private BulkTask(GameProfile profile) {
+            this.profile = profile;
+        }
+    }
+
+    private static class UriTemplate {
+        private final URI baseUri;
+        private final String prefix;
+
+        private UriTemplate(URI baseUri, String prefix) {
+            this.baseUri = baseUri;
+            this.prefix = prefix;
+        }
+    }
+
+    @JsonAdapter(HasJoinedResponse.Adapter.class)
     private static class HasJoinedResponse {
         public UUID id;
         public List<GameProfile.Property> properties;
+
+        private static class Adapter extends StreamingTypeAdapterFactory<HasJoinedResponse> {
+            private final TypeAdapter<GameProfile.Property> propertyAdapter = HTTP.getGson().getAdapter(GameProfile.Property.class);
+
+            private Adapter() {
+                super(HasJoinedResponse.class);
+            }
+
+            @Override
+            protected HasJoinedResponse read(JsonReader in, TypeAdapter<HasJoinedResponse> fallback) throws IOException {
+                HasJoinedResponse response = new HasJoinedResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("id")) {
+                        response.id = UUIDSerializer.fromString(in.nextString());
+                    } else if(name.equals("properties")) {
+                        response.properties = readProperties(in, this.propertyAdapter);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+        }
     }
 
+    @JsonAdapter(MinecraftProfileResponse.Adapter.class)
     private static class MinecraftProfileResponse {
         public UUID id;
         public String name;
         public List<GameProfile.Property> properties;
+
+        private static class Adapter extends StreamingTypeAdapterFactory<MinecraftProfileResponse> {
+            private final TypeAdapter<GameProfile.Property> propertyAdapter = HTTP.getGson().getAdapter(GameProfile.Property.class);
+
+            private Adapter() {
+                super(MinecraftProfileResponse.class);
+            }
+
+            @Override
+            protected MinecraftProfileResponse read(JsonReader in, TypeAdapter<MinecraftProfileResponse> fallback) throws IOException {
+                MinecraftProfileResponse response = new MinecraftProfileResponse();
+                in.beginObject();
+                while(in.hasNext()) {
+                    String name = in.nextName();
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if(name.equals("id")) {
+                        response.id = UUIDSerializer.fromString(in.nextString());
+                    } else if(name.equals("name")) {
+                        response.name = in.nextString();
+                    } else if(name.equals("properties")) {
+                        response.properties = readProperties(in, this.propertyAdapter);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+        }
     }
 }
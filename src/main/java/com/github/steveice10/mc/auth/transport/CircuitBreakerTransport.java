@@ -0,0 +1,268 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+import com.github.steveice10.mc.auth.util.CircuitBreaker;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Transport that keeps a circuit breaker per endpoint and fails fast while an endpoint is down.
+ * A request fails when the delegate throws an I/O error or the upstream answers with a 5xx status.
+ * Once an endpoint's breaker opens, requests to it are rejected with a {@link CircuitOpenException}
+ * without touching the network, which services report as a ServiceUnavailableException. After the
+ * open duration a limited number of trial requests are let through to probe whether the endpoint recovered.
+ */
+public class CircuitBreakerTransport implements HttpTransport {
+    private final HttpTransport delegate;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private volatile int failureThreshold = CircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+    private volatile long openDuration = CircuitBreaker.DEFAULT_OPEN_DURATION;
+    private volatile int halfOpenTrials = CircuitBreaker.DEFAULT_HALF_OPEN_TRIALS;
+    private volatile CircuitBreaker.Listener listener;
+
+    private final CircuitBreaker.Listener forwardingListener = new CircuitBreaker.Listener() {
+        @Override
+        public void onStateChange(CircuitBreaker breaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+            CircuitBreaker.Listener listener = CircuitBreakerTransport.this.listener;
+            if(listener != null) {
+                listener.onStateChange(breaker, from, to);
+            }
+        }
+    };
+
+    /**
+     * Creates a new CircuitBreakerTransport instance.
+     *
+     * @param delegate Transport to make upstream requests with.
+     * @throws IllegalArgumentException If the given transport is null.
+     */
+    public CircuitBreakerTransport(HttpTransport delegate) {
+        if(delegate == null) {
+            throw new IllegalArgumentException("Delegate transport cannot be null.");
+        }
+
+        this.delegate = delegate;
+    }
+
+    /**
+     * Gets the transport upstream requests are made with.
+     *
+     * @return The delegate transport.
+     */
+    public HttpTransport getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * Sets the number of consecutive failures that open the breaker of an endpoint.
+     *
+     * @param failureThreshold Number of consecutive failures.
+     * @throws IllegalArgumentException If the threshold is less than 1.
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        if(failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1.");
+        }
+
+        this.failureThreshold = failureThreshold;
+        for(CircuitBreaker breaker : this.breakers.values()) {
+            breaker.setFailureThreshold(failureThreshold);
+        }
+    }
+
+    /**
+     * Sets how long the breaker of an endpoint stays open before letting trial requests through.
+     *
+     * @param duration Open duration.
+     * @param unit     Unit of the duration.
+     * @throws IllegalArgumentException If the duration is negative.
+     */
+    public void setOpenDuration(long duration, TimeUnit unit) {
+        if(duration < 0) {
+            throw new IllegalArgumentException("Open duration cannot be negative.");
+        }
+
+        this.openDuration = unit.toMillis(duration);
+        for(CircuitBreaker breaker : this.breakers.values()) {
+            breaker.setOpenDuration(duration, unit);
+        }
+    }
+
+    /**
+     * Sets the number of trial requests that must succeed for a half-open breaker to close.
+     *
+     * @param halfOpenTrials Number of trial requests.
+     * @throws IllegalArgumentException If the number of trials is less than 1.
+     */
+    public void setHalfOpenTrials(int halfOpenTrials) {
+        if(halfOpenTrials < 1) {
+            throw new IllegalArgumentException("Half-open trials must be at least 1.");
+        }
+
+        this.halfOpenTrials = halfOpenTrials;
+        for(CircuitBreaker breaker : this.breakers.values()) {
+            breaker.setHalfOpenTrials(halfOpenTrials);
+        }
+    }
+
+    /**
+     * Sets the listener notified when the breaker of any endpoint changes state.
+     *
+     * @param listener Listener to notify, or null for none.
+     */
+    public void setListener(CircuitBreaker.Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the breaker of an endpoint, creating it if no request has been made to the endpoint yet.
+     *
+     * @param endpoint Endpoint to get the breaker of.
+     * @return The endpoint's breaker.
+     */
+    public CircuitBreaker getBreaker(String endpoint) {
+        CircuitBreaker breaker = this.breakers.get(endpoint);
+        if(breaker == null) {
+            breaker = new CircuitBreaker(endpoint);
+            breaker.setFailureThreshold(this.failureThreshold);
+            breaker.setOpenDuration(this.openDuration, TimeUnit.MILLISECONDS);
+            breaker.setHalfOpenTrials(this.halfOpenTrials);
+            breaker.setListener(this.forwardingListener);
+
+            CircuitBreaker existing = this.breakers.putIfAbsent(endpoint, breaker);
+            if(existing != null) {
+                breaker = existing;
+            }
+        }
+
+        return breaker;
+    }
+
+    /**
+     * Gets the breakers of all endpoints requests have been made to.
+     *
+     * @return An unmodifiable view of the breakers by endpoint.
+     */
+    public Map<String, CircuitBreaker> getBreakers() {
+        return Collections.unmodifiableMap(this.breakers);
+    }
+
+    /**
+     * Gets the state of the breaker of an endpoint.
+     *
+     * @param endpoint Endpoint to get the state of.
+     * @return The state of the endpoint's breaker, or CLOSED if no request has been made to the endpoint yet.
+     */
+    public CircuitBreaker.State getState(String endpoint) {
+        CircuitBreaker breaker = this.breakers.get(endpoint);
+        return breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        CircuitBreaker breaker = this.acquire(request);
+
+        HttpResponse response;
+        try {
+            response = this.delegate.execute(request);
+        } catch(IOException | RuntimeException | Error e) {
+            record(breaker, null, e);
+            throw e;
+        }
+
+        record(breaker, response, null);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+        final CircuitBreaker breaker;
+        try {
+            breaker = this.acquire(request);
+        } catch(CircuitOpenException e) {
+            CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        final CompletableFuture<HttpResponse> upstream;
+        try {
+            upstream = this.delegate.executeAsync(request, executor);
+        } catch(RuntimeException | Error e) {
+            record(breaker, null, e);
+            throw e;
+        }
+
+        // A separate future lets cancellation reach the delegate, so a cancelled request is aborted and recorded
+        // as ignored instead of with whatever outcome it would have had.
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        result.whenComplete(new BiConsumer<HttpResponse, Throwable>() {
+            @Override
+            public void accept(HttpResponse response, Throwable error) {
+                if(result.isCancelled()) {
+                    upstream.cancel(true);
+                }
+
+                record(breaker, response, error);
+            }
+        });
+
+        upstream.whenComplete(new BiConsumer<HttpResponse, Throwable>() {
+            @Override
+            public void accept(HttpResponse response, Throwable error) {
+                if(error != null) {
+                    result.completeExceptionally(AsyncUtil.unwrap(error));
+                } else if(!result.complete(response)) {
+                    try {
+                        response.close();
+                    } catch(IOException ignored) {
+                    }
+                }
+            }
+        });
+
+        return result;
+    }
+
+    private CircuitBreaker acquire(HttpRequest request) throws CircuitOpenException {
+        CircuitBreaker breaker = this.getBreaker(request.getEndpoint());
+        if(!breaker.tryAcquire()) {
+            throw new CircuitOpenException(breaker.getName(), breaker.getRemainingOpenTime(TimeUnit.MILLISECONDS));
+        }
+
+        return breaker;
+    }
+
+    private static void record(CircuitBreaker breaker, HttpResponse response, Throwable error) {
+        if(error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+
+        if(error instanceof CircuitOpenException) {
+            // Rejected by another breaker further down the chain; the endpoint itself was never reached.
+            breaker.onIgnored();
+        } else if(error instanceof CancellationException) {
+            // Cancelled by the caller, such as the losing request of a hedge; says nothing about the endpoint's health.
+            breaker.onIgnored();
+        } else if(error != null || response.getStatusCode() >= 500) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerTransport{delegate=" + this.delegate + ", breakers=" + this.breakers.values() + "}";
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.steveice10.mc.auth.transport;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link CircuitBreakerTransport} when a request is rejected because the circuit of its endpoint is open.
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String endpoint;
+    private final long retryAfter;
+
+    public CircuitOpenException(String endpoint, long retryAfter) {
+        super("Circuit for endpoint '" + endpoint + "' is open.");
+        this.endpoint = endpoint;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Gets the endpoint whose circuit is open.
+     *
+     * @return The endpoint of the rejected request.
+     */
+    public String getEndpoint() {
+        return this.endpoint;
+    }
+
+    /**
+     * Gets the time left until the circuit lets trial requests through.
+     *
+     * @return The time to wait in milliseconds, or 0 if trial requests are already allowed.
+     */
+    public long getRetryAfter() {
+        return this.retryAfter;
+    }
+}
@@ -0,0 +1,260 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Transport that collapses identical in-flight GET requests into a single upstream request.
+ * Requests are identical when they share the same URI, proxy and headers. Every caller waiting on a
+ * collapsed request receives its own copy of the response, or the exception the upstream request failed with.
+ * Requests with a body are always passed straight through.
+ */
+public class CoalescingTransport implements HttpTransport {
+    private static final Function<BufferedResponse, HttpResponse> TO_RESPONSE = new Function<BufferedResponse, HttpResponse>() {
+        @Override
+        public HttpResponse apply(BufferedResponse response) {
+            return response.toResponse();
+        }
+    };
+
+    private final HttpTransport delegate;
+    private final Map<Key, CompletableFuture<BufferedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+
+    /**
+     * Creates a new CoalescingTransport instance.
+     *
+     * @param delegate Transport to make upstream requests with.
+     * @throws IllegalArgumentException If the given transport is null.
+     */
+    public CoalescingTransport(HttpTransport delegate) {
+        if(delegate == null) {
+            throw new IllegalArgumentException("Delegate transport cannot be null.");
+        }
+
+        this.delegate = delegate;
+    }
+
+    /**
+     * Gets the transport upstream requests are made with.
+     *
+     * @return The delegate transport.
+     */
+    public HttpTransport getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * Gets the number of requests eligible for coalescing that have been made through this transport.
+     *
+     * @return The number of eligible requests.
+     */
+    public long getRequestCount() {
+        return this.requests.get();
+    }
+
+    /**
+     * Gets the number of requests that were served by sharing another in-flight request.
+     *
+     * @return The number of collapsed requests.
+     */
+    public long getCollapsedCount() {
+        return this.collapsed.get();
+    }
+
+    /**
+     * Gets the number of distinct upstream requests currently in flight.
+     *
+     * @return The number of in-flight upstream requests.
+     */
+    public int getInFlightCount() {
+        return this.inFlight.size();
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if(!isCoalescible(request)) {
+            return this.delegate.execute(request);
+        }
+
+        this.requests.incrementAndGet();
+
+        Key key = new Key(request);
+        CompletableFuture<BufferedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<BufferedResponse> existing = this.inFlight.putIfAbsent(key, flight);
+        if(existing != null) {
+            this.collapsed.incrementAndGet();
+            return await(existing, request).toResponse();
+        }
+
+        BufferedResponse response;
+        try {
+            response = BufferedResponse.read(this.delegate.execute(request));
+        } catch(IOException | RuntimeException | Error e) {
+            this.inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+
+        this.inFlight.remove(key, flight);
+        flight.complete(response);
+        return response.toResponse();
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+        if(!isCoalescible(request)) {
+            return this.delegate.executeAsync(request, executor);
+        }
+
+        this.requests.incrementAndGet();
+
+        final Key key = new Key(request);
+        final CompletableFuture<BufferedResponse> flight = new CompletableFuture<>();
+        CompletableFuture<BufferedResponse> existing = this.inFlight.putIfAbsent(key, flight);
+        if(existing != null) {
+            this.collapsed.incrementAndGet();
+            return existing.thenApply(TO_RESPONSE);
+        }
+
+        CompletableFuture<HttpResponse> upstream;
+        try {
+            upstream = this.delegate.executeAsync(request, executor);
+        } catch(RuntimeException | Error e) {
+            this.inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            return flight.thenApply(TO_RESPONSE);
+        }
+
+        upstream.whenComplete(new BiConsumer<HttpResponse, Throwable>() {
+            @Override
+            public void accept(HttpResponse response, Throwable error) {
+                inFlight.remove(key, flight);
+                if(error != null) {
+                    flight.completeExceptionally(AsyncUtil.unwrap(error));
+                    return;
+                }
+
+                try {
+                    flight.complete(BufferedResponse.read(response));
+                } catch(Throwable t) {
+                    flight.completeExceptionally(t);
+                }
+            }
+        });
+
+        // Callers get a dependent future so that cancelling it does not affect other waiters.
+        return flight.thenApply(TO_RESPONSE);
+    }
+
+    private static boolean isCoalescible(HttpRequest request) {
+        return request.getMethod().equals("GET") && request.getBody() == null;
+    }
+
+    private static BufferedResponse await(CompletableFuture<BufferedResponse> flight, HttpRequest request) throws IOException {
+        try {
+            return flight.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for coalesced request to '" + request.getUri() + "'.");
+        } catch(ExecutionException e) {
+            Throwable cause = AsyncUtil.unwrap(e);
+            if(cause instanceof IOException) {
+                // Waiters get the leader's own exception, like async waiters do, so its type (such as a timeout) is kept.
+                throw (IOException) cause;
+            } else if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException("Coalesced request to '" + request.getUri() + "' failed.", cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingTransport{delegate=" + this.delegate + ", requests=" + this.requests.get() + ", collapsed=" + this.collapsed.get() + "}";
+    }
+
+    private static class Key {
+        private final URI uri;
+        private final Proxy proxy;
+        private final Map<String, String> headers;
+
+        protected Key(HttpRequest request) {
+            this.uri = request.getUri();
+            this.proxy = request.getProxy();
+            this.headers = request.getHeaders();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            } else if(o instanceof Key) {
+                Key that = (Key) o;
+                return this.uri.equals(that.uri) && this.proxy.equals(that.proxy) && this.headers.equals(that.headers);
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            int result = this.uri.hashCode();
+            result = 31 * result + this.proxy.hashCode();
+            result = 31 * result + this.headers.hashCode();
+            return result;
+        }
+    }
+
+    private static class BufferedResponse {
+        private final int statusCode;
+        private final URI uri;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        private BufferedResponse(int statusCode, URI uri, Map<String, List<String>> headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.uri = uri;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public static BufferedResponse read(HttpResponse response) throws IOException {
+            try(InputStream in = response.getBody()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int length;
+                while((length = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, length);
+                }
+
+                return new BufferedResponse(response.getStatusCode(), response.getUri(), response.getHeaders(), out.toByteArray());
+            }
+        }
+
+        public HttpResponse toResponse() {
+            return new HttpResponse(this.statusCode, this.uri, this.headers, new ByteArrayInputStream(this.body));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.steveice10.mc.auth.transport;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Thrown by transports when a connection could not be established within the request's timeout.
+ * Nothing has been sent when it is thrown, so the request can safely be retried elsewhere.
+ */
+public class ConnectTimeoutException extends SocketTimeoutException {
+    private static final long serialVersionUID = 1L;
+
+    public ConnectTimeoutException(String message) {
+        super(message);
+    }
+}
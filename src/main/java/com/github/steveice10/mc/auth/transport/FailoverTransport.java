@@ -0,0 +1,590 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Transport that spreads requests below a base URI across several equivalent base URIs, such as regional
+ * mirrors of a service, and fails over between them.
+ * Requests whose URI starts with a configured base URI are rewritten to one of that base URI's targets.
+ * If a target cannot be connected to, including when connecting to it times out, the request is retried on the
+ * next target. GET and HEAD requests are also retried when a target answers with a 5xx status; other methods are
+ * not, since the failed target may already have processed them.
+ * Targets that fail are marked down and skipped until they recover, which is checked by probing them
+ * with a HEAD request at most once per probe interval. The latency of responses and probes is tracked per
+ * target as an exponentially weighted moving average, which {@link Selection#LATENCY} uses to prefer fast targets.
+ */
+public class FailoverTransport implements HttpTransport {
+    private static final long DEFAULT_PROBE_INTERVAL = 10000;
+    private static final long DEFAULT_PROBE_TIMEOUT = 5000;
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final String PROBE_ENDPOINT = "probe";
+
+    /**
+     * How the target a request is sent to first is selected.
+     */
+    public enum Selection {
+        /**
+         * The first healthy target in the order they were configured in.
+         */
+        ORDERED,
+        /**
+         * A random healthy target, chosen with a probability proportional to its weight.
+         */
+        WEIGHTED,
+        /**
+         * A random healthy target, chosen with a probability proportional to its weight divided by its average latency.
+         */
+        LATENCY;
+    }
+
+    private final HttpTransport delegate;
+    private final Map<String, List<Target>> targets = new ConcurrentHashMap<>();
+
+    private volatile Selection selection = Selection.ORDERED;
+    private volatile long probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_PROBE_INTERVAL);
+    private volatile long probeTimeout = DEFAULT_PROBE_TIMEOUT;
+
+    private final AtomicLong failoverCount = new AtomicLong();
+
+    /**
+     * Creates a new FailoverTransport instance.
+     * Until targets are set, requests are passed to the delegate unchanged.
+     *
+     * @param delegate Transport to make upstream requests with.
+     * @throws IllegalArgumentException If the given transport is null.
+     */
+    public FailoverTransport(HttpTransport delegate) {
+        if(delegate == null) {
+            throw new IllegalArgumentException("Delegate transport cannot be null.");
+        }
+
+        this.delegate = delegate;
+    }
+
+    /**
+     * Gets the transport upstream requests are made with.
+     *
+     * @return The delegate transport.
+     */
+    public HttpTransport getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * Sets the targets requests below a base URI are sent to, all with a weight of 1.
+     *
+     * @param baseUri Base URI of the requests, such as the base URI of a service.
+     * @param targets Base URIs to send the requests to, in order of preference. The base URI itself
+     *                is only used if it is one of the targets. Null or empty to stop rewriting the requests.
+     * @throws IllegalArgumentException If the base URI or any target is null.
+     */
+    public void setTargets(URI baseUri, List<URI> targets) {
+        Map<URI, Double> weights = new LinkedHashMap<>();
+        if(targets != null) {
+            for(URI target : targets) {
+                weights.put(target, 1D);
+            }
+        }
+
+        this.setTargets(baseUri, weights);
+    }
+
+    /**
+     * Sets the targets requests below a base URI are sent to.
+     *
+     * @param baseUri Base URI of the requests, such as the base URI of a service.
+     * @param targets Base URIs to send the requests to mapped to their weights, in the map's iteration order
+     *                of preference. The base URI itself is only used if it is one of the targets.
+     *                Null or empty to stop rewriting the requests.
+     * @throws IllegalArgumentException If the base URI or any target is null, or any weight is not positive.
+     */
+    public void setTargets(URI baseUri, Map<URI, Double> targets) {
+        if(baseUri == null) {
+            throw new IllegalArgumentException("Base URI cannot be null.");
+        }
+
+        if(targets == null || targets.isEmpty()) {
+            this.targets.remove(baseUri.toString());
+            return;
+        }
+
+        List<Target> list = new ArrayList<>(targets.size());
+        for(Map.Entry<URI, Double> entry : targets.entrySet()) {
+            if(entry.getKey() == null) {
+                throw new IllegalArgumentException("Target cannot be null.");
+            }
+
+            if(entry.getValue() == null || !(entry.getValue() > 0) || entry.getValue().isInfinite()) {
+                throw new IllegalArgumentException("Target weight must be positive.");
+            }
+
+            list.add(new Target(entry.getKey(), entry.getValue()));
+        }
+
+        this.targets.put(baseUri.toString(), Collections.unmodifiableList(list));
+    }
+
+    /**
+     * Gets the targets requests below a base URI are sent to.
+     *
+     * @param baseUri Base URI of the requests.
+     * @return The base URI's targets in order of preference, or an empty list if none are set.
+     */
+    public List<Target> getTargets(URI baseUri) {
+        List<Target> targets = baseUri != null ? this.targets.get(baseUri.toString()) : null;
+        return targets != null ? targets : Collections.<Target>emptyList();
+    }
+
+    /**
+     * Gets how the target a request is sent to first is selected.
+     *
+     * @return The target selection.
+     */
+    public Selection getSelection() {
+        return this.selection;
+    }
+
+    /**
+     * Sets how the target a request is sent to first is selected.
+     * Should the selected target fail, the remaining healthy targets are tried from most to least preferred.
+     *
+     * @param selection Target selection to use.
+     * @throws IllegalArgumentException If the selection is null.
+     */
+    public void setSelection(Selection selection) {
+        if(selection == null) {
+            throw new IllegalArgumentException("Selection cannot be null.");
+        }
+
+        this.selection = selection;
+    }
+
+    /**
+     * Sets how often each target is probed.
+     * Probes are started by requests, so targets are not probed while no requests are made.
+     *
+     * @param interval Probe interval.
+     * @param unit     Unit of the interval.
+     * @throws IllegalArgumentException If the interval is not positive.
+     */
+    public void setProbeInterval(long interval, TimeUnit unit) {
+        if(interval <= 0) {
+            throw new IllegalArgumentException("Probe interval must be positive.");
+        }
+
+        this.probeIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Sets the timeout of probe requests.
+     *
+     * @param timeout Probe timeout.
+     * @param unit    Unit of the timeout.
+     * @throws IllegalArgumentException If the timeout is less than one millisecond.
+     */
+    public void setProbeTimeout(long timeout, TimeUnit unit) {
+        long millis = unit.toMillis(timeout);
+        if(millis <= 0) {
+            throw new IllegalArgumentException("Probe timeout must be at least one millisecond.");
+        }
+
+        this.probeTimeout = millis;
+    }
+
+    /**
+     * Gets the number of times a request was retried on another target.
+     *
+     * @return The number of failovers.
+     */
+    public long getFailoverCount() {
+        return this.failoverCount.get();
+    }
+
+    /**
+     * Probes every target now, regardless of the probe interval.
+     *
+     * @return A future completed once every target was probed.
+     */
+    public CompletableFuture<Void> probe() {
+        List<CompletableFuture<Void>> probes = new ArrayList<>();
+        for(List<Target> targets : this.targets.values()) {
+            for(Target target : targets) {
+                target.lastProbe.set(System.nanoTime());
+                probes.add(this.probe(target));
+            }
+        }
+
+        return CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[probes.size()]));
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        String base = this.match(request);
+        if(base == null) {
+            return this.delegate.execute(request);
+        }
+
+        List<Target> candidates = this.order(this.targets.get(base));
+        this.probeDue(candidates);
+
+        IOException error = null;
+        for(int i = 0; i < candidates.size(); i++) {
+            Target target = candidates.get(i);
+            boolean last = i == candidates.size() - 1;
+            if(i > 0) {
+                this.failoverCount.incrementAndGet();
+            }
+
+            long start = System.nanoTime();
+            HttpResponse response;
+            try {
+                response = this.delegate.execute(rewrite(request, base, target));
+            } catch(IOException e) {
+                if(isInterruption(e)) {
+                    throw e;
+                }
+
+                target.onFailure();
+                if(error != null) {
+                    e.addSuppressed(error);
+                }
+
+                if(last || !isConnectFailure(e)) {
+                    throw e;
+                }
+
+                error = e;
+                continue;
+            }
+
+            if(response.getStatusCode() >= 500) {
+                target.onFailure();
+                if(!last && isIdempotent(request)) {
+                    closeQuietly(response);
+                    continue;
+                }
+            } else {
+                target.onSuccess(System.nanoTime() - start);
+            }
+
+            return response;
+        }
+
+        throw error;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+        String base = this.match(request);
+        if(base == null) {
+            return this.delegate.executeAsync(request, executor);
+        }
+
+        List<Target> candidates = this.order(this.targets.get(base));
+        this.probeDue(candidates);
+        return this.attemptAsync(request, base, candidates, 0, executor, null);
+    }
+
+    private CompletableFuture<HttpResponse> attemptAsync(final HttpRequest request, final String base, final List<Target> candidates, final int index, final Executor executor, final Throwable previous) {
+        final Target target = candidates.get(index);
+        final boolean last = index == candidates.size() - 1;
+        if(index > 0) {
+            this.failoverCount.incrementAndGet();
+        }
+
+        CompletableFuture<HttpResponse> future;
+        try {
+            future = this.delegate.executeAsync(rewrite(request, base, target), executor);
+        } catch(RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+
+        final long start = System.nanoTime();
+        return future.handle(new BiFunction<HttpResponse, Throwable, CompletableFuture<HttpResponse>>() {
+            @Override
+            public CompletableFuture<HttpResponse> apply(HttpResponse response, Throwable error) {
+                if(error != null) {
+                    Throwable cause = AsyncUtil.unwrap(error);
+                    if(cause instanceof IOException && !isInterruption(cause)) {
+                        target.onFailure();
+                    }
+
+                    if(previous != null && cause != previous) {
+                        cause.addSuppressed(previous);
+                    }
+
+                    if(!last && cause instanceof IOException && isConnectFailure((IOException) cause)) {
+                        return attemptAsync(request, base, candidates, index + 1, executor, cause);
+                    }
+
+                    CompletableFuture<HttpResponse> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(cause);
+                    return failed;
+                }
+
+                if(response.getStatusCode() >= 500) {
+                    target.onFailure();
+                    if(!last && isIdempotent(request)) {
+                        closeQuietly(response);
+                        return attemptAsync(request, base, candidates, index + 1, executor, null);
+                    }
+                } else {
+                    target.onSuccess(System.nanoTime() - start);
+                }
+
+                return CompletableFuture.completedFuture(response);
+            }
+        }).thenCompose(Function.<CompletableFuture<HttpResponse>>identity());
+    }
+
+    private String match(HttpRequest request) {
+        if(this.targets.isEmpty()) {
+            return null;
+        }
+
+        String uri = request.getUri().toString();
+        String bestMatch = null;
+        for(String baseUri : this.targets.keySet()) {
+            if(uri.startsWith(baseUri) && (bestMatch == null || baseUri.length() > bestMatch.length())) {
+                bestMatch = baseUri;
+            }
+        }
+
+        return bestMatch;
+    }
+
+    private List<Target> order(List<Target> targets) {
+        List<Target> healthy = new ArrayList<>(targets.size());
+        List<Target> down = new ArrayList<>();
+        for(Target target : targets) {
+            (target.isHealthy() ? healthy : down).add(target);
+        }
+
+        Selection selection = this.selection;
+        if(selection != Selection.ORDERED && healthy.size() > 1) {
+            // Targets without a latency yet are assumed to be as fast as the fastest known target, so they get tried.
+            double fastest = Double.MAX_VALUE;
+            for(Target target : healthy) {
+                double latency = target.getAverageLatency();
+                if(latency > 0 && latency < fastest) {
+                    fastest = latency;
+                }
+            }
+
+            double[] scores = new double[healthy.size()];
+            double total = 0;
+            for(int i = 0; i < scores.length; i++) {
+                Target target = healthy.get(i);
+                double score = target.getWeight();
+                if(selection == Selection.LATENCY && fastest != Double.MAX_VALUE) {
+                    double latency = target.getAverageLatency();
+                    score /= latency > 0 ? latency : fastest;
+                }
+
+                scores[i] = score;
+                total += score;
+            }
+
+            double point = ThreadLocalRandom.current().nextDouble() * total;
+            int chosen = scores.length - 1;
+            for(int i = 0; i < scores.length; i++) {
+                point -= scores[i];
+                if(point < 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+
+            // The chosen target goes first; the others keep their order of preference as fallbacks.
+            healthy.add(0, healthy.remove(chosen));
+        }
+
+        // Targets that are down are only tried once every healthy target has failed.
+        healthy.addAll(down);
+        return healthy;
+    }
+
+    private void probeDue(List<Target> targets) {
+        long now = System.nanoTime();
+        for(Target target : targets) {
+            long lastProbe = target.lastProbe.get();
+            if(now - lastProbe >= this.probeIntervalNanos && target.lastProbe.compareAndSet(lastProbe, now)) {
+                this.probe(target);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> probe(final Target target) {
+        HttpRequest request = new HttpRequest("HEAD", target.getUri());
+        request.setEndpoint(PROBE_ENDPOINT);
+        request.setTimeout(this.probeTimeout, TimeUnit.MILLISECONDS);
+
+        final long start = System.nanoTime();
+        CompletableFuture<HttpResponse> future;
+        try {
+            future = this.delegate.executeAsync(request, null);
+        } catch(RuntimeException e) {
+            target.onFailure();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return future.handle(new BiFunction<HttpResponse, Throwable, Void>() {
+            @Override
+            public Void apply(HttpResponse response, Throwable error) {
+                if(response != null) {
+                    closeQuietly(response);
+                }
+
+                // Any answer other than a server error means the target is up.
+                if(error != null || response.getStatusCode() >= 500) {
+                    target.onFailure();
+                } else {
+                    target.onSuccess(System.nanoTime() - start);
+                }
+
+                return null;
+            }
+        });
+    }
+
+    private static HttpRequest rewrite(HttpRequest request, String base, Target target) {
+        String uri = request.getUri().toString();
+        String targetUri = target.getUri().toString();
+        if(targetUri.equals(base)) {
+            return request;
+        }
+
+        HttpRequest rewritten = new HttpRequest(request.getMethod(), URI.create(targetUri + uri.substring(base.length())));
+        rewritten.setProxy(request.getProxy());
+        rewritten.setHeaders(request.getHeaders());
+        rewritten.setEndpoint(request.getEndpoint());
+        rewritten.setTimeout(request.getTimeout(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        if(request.getBody() != null) {
+            rewritten.setBody(request.getHeaders().get("Content-Type"), request.getBody());
+        }
+
+        return rewritten;
+    }
+
+    private static void closeQuietly(HttpResponse response) {
+        try {
+            response.close();
+        } catch(IOException ignored) {
+        }
+    }
+
+    private static boolean isInterruption(Throwable error) {
+        return error instanceof InterruptedIOException && !(error instanceof SocketTimeoutException);
+    }
+
+    private static boolean isIdempotent(HttpRequest request) {
+        return request.getMethod().equals("GET") || request.getMethod().equals("HEAD");
+    }
+
+    private static boolean isConnectFailure(IOException e) {
+        // Only failures before anything was sent are retried, so retrying never makes two targets process a request.
+        return e instanceof ConnectException || e instanceof ConnectTimeoutException || e instanceof NoRouteToHostException || e instanceof UnknownHostException;
+    }
+
+    @Override
+    public String toString() {
+        return "FailoverTransport{delegate=" + this.delegate + ", targets=" + this.targets + ", selection=" + this.selection + "}";
+    }
+
+    /**
+     * A base URI requests can be sent to, along with its health and latency.
+     */
+    public static class Target {
+        private final URI uri;
+        private final double weight;
+        private final AtomicLong lastProbe;
+
+        private volatile boolean healthy = true;
+        private double averageLatency;
+
+        private Target(URI uri, double weight) {
+            this.uri = uri;
+            this.weight = weight;
+            // Targets are due for a probe as soon as the first request is made.
+            this.lastProbe = new AtomicLong(System.nanoTime() - Long.MAX_VALUE / 2);
+        }
+
+        /**
+         * Gets the base URI of the target.
+         *
+         * @return The target's base URI.
+         */
+        public URI getUri() {
+            return this.uri;
+        }
+
+        /**
+         * Gets the weight of the target.
+         *
+         * @return The target's weight.
+         */
+        public double getWeight() {
+            return this.weight;
+        }
+
+        /**
+         * Gets whether the target is healthy.
+         * A target is marked down when a request or probe to it fails, and healthy again once one succeeds.
+         *
+         * @return Whether the target is healthy.
+         */
+        public boolean isHealthy() {
+            return this.healthy;
+        }
+
+        /**
+         * Gets the exponentially weighted moving average of the target's latency.
+         *
+         * @param unit Unit to return the latency in.
+         * @return The target's average latency, or 0 if no latency has been recorded yet.
+         */
+        public long getLatency(TimeUnit unit) {
+            return unit.convert((long) this.getAverageLatency(), TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized double getAverageLatency() {
+            return this.averageLatency;
+        }
+
+        private synchronized void onSuccess(long nanos) {
+            this.averageLatency = this.averageLatency == 0 ? nanos : this.averageLatency + LATENCY_SMOOTHING * (nanos - this.averageLatency);
+            this.healthy = true;
+        }
+
+        private void onFailure() {
+            this.healthy = false;
+        }
+
+        @Override
+        public String toString() {
+            return "Target{uri=" + this.uri + ", weight=" + this.weight + ", healthy=" + this.healthy + ", latency=" + this.getLatency(TimeUnit.MILLISECONDS) + "ms}";
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Transport that hedges slow GET requests to cut tail latency.
+ * If a request has not been answered within a delay derived from a percentile of the endpoint's recent
+ * latencies, an identical request is sent, optionally to an alternate base URI. Whichever response arrives
+ * first is used and the other request is cancelled. Hedges are limited to a fraction of the hedgeable
+ * requests so that a slow upstream is never hit with much more than its usual load.
+ * Cancelling the other request is best-effort: {@link UrlConnectionTransport} and the JDK HTTP client transport
+ * abort a request in progress when they are the delegate, but other delegates may let it run to completion and
+ * only discard its response.
+ */
+public class HedgingTransport implements HttpTransport {
+    private static final double DEFAULT_PERCENTILE = 0.95;
+    private static final long DEFAULT_INITIAL_DELAY = 100;
+    private static final long DEFAULT_MIN_DELAY = 5;
+    private static final double DEFAULT_BUDGET = 0.05;
+
+    private final HttpTransport delegate;
+    private final Set<String> endpoints = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Map<String, URI> alternateBaseUris = new ConcurrentHashMap<>();
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private volatile double percentile = DEFAULT_PERCENTILE;
+    private volatile long initialDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_INITIAL_DELAY);
+    private volatile long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_DELAY);
+    private volatile double budget = DEFAULT_BUDGET;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+    /**
+     * Creates a new HedgingTransport instance.
+     * Until endpoints are added, every GET request without a body is hedged.
+     *
+     * @param delegate Transport to make upstream requests with.
+     * @throws IllegalArgumentException If the given transport is null.
+     */
+    public HedgingTransport(HttpTransport delegate) {
+        if(delegate == null) {
+            throw new IllegalArgumentException("Delegate transport cannot be null.");
+        }
+
+        this.delegate = delegate;
+    }
+
+    /**
+     * Gets the transport upstream requests are made with.
+     *
+     * @return The delegate transport.
+     */
+    public HttpTransport getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * Restricts hedging to the given endpoint in addition to any previously added endpoints,
+     * such as "hasJoined" for {@link com.github.steveice10.mc.auth.service.SessionService#getProfileByServer(String, String)}.
+     *
+     * @param endpoint Endpoint to hedge requests to.
+     */
+    public void addEndpoint(String endpoint) {
+        if(endpoint == null) {
+            throw new IllegalArgumentException("Endpoint cannot be null.");
+        }
+
+        this.endpoints.add(endpoint);
+    }
+
+    /**
+     * Stops hedging requests to the given endpoint.
+     * Once no endpoints remain, every GET request without a body is hedged again.
+     *
+     * @param endpoint Endpoint to stop hedging requests to.
+     */
+    public void removeEndpoint(String endpoint) {
+        this.endpoints.remove(endpoint);
+    }
+
+    /**
+     * Sets an alternate base URI that hedges of requests below the given base URI are sent to.
+     *
+     * @param baseUri          Base URI of the primary requests, such as the base URI of a service.
+     * @param alternateBaseUri Base URI to send hedges to instead, or null to send hedges to the primary base URI.
+     * @throws IllegalArgumentException If the base URI is null.
+     */
+    public void setAlternateBaseUri(URI baseUri, URI alternateBaseUri) {
+        if(baseUri == null) {
+            throw new IllegalArgumentException("Base URI cannot be null.");
+        }
+
+        if(alternateBaseUri != null) {
+            this.alternateBaseUris.put(baseUri.toString(), alternateBaseUri);
+        } else {
+            this.alternateBaseUris.remove(baseUri.toString());
+        }
+    }
+
+    /**
+     * Sets the percentile of recent latencies after which a request is hedged.
+     *
+     * @param percentile Percentile between 0 and 1, exclusive.
+     * @throws IllegalArgumentException If the percentile is out of range.
+     */
+    public void setPercentile(double percentile) {
+        if(!(percentile > 0 && percentile < 1)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1.");
+        }
+
+        this.percentile = percentile;
+    }
+
+    /**
+     * Sets the delay after which requests are hedged while too few latencies are known for an endpoint.
+     *
+     * @param delay Initial hedge delay.
+     * @param unit  Unit of the delay.
+     * @throws IllegalArgumentException If the delay is negative.
+     */
+    public void setInitialDelay(long delay, TimeUnit unit) {
+        if(delay < 0) {
+            throw new IllegalArgumentException("Initial delay cannot be negative.");
+        }
+
+        this.initialDelayNanos = unit.toNanos(delay);
+    }
+
+    /**
+     * Sets the shortest delay after which a request is hedged, regardless of recent latencies.
+     *
+     * @param delay Minimum hedge delay.
+     * @param unit  Unit of the delay.
+     * @throws IllegalArgumentException If the delay is negative.
+     */
+    public void setMinDelay(long delay, TimeUnit unit) {
+        if(delay < 0) {
+            throw new IllegalArgumentException("Min delay cannot be negative.");
+        }
+
+        this.minDelayNanos = unit.toNanos(delay);
+    }
+
+    /**
+     * Sets the largest fraction of hedgeable requests that may be hedged.
+     *
+     * @param budget Fraction between 0 and 1, inclusive.
+     * @throws IllegalArgumentException If the budget is out of range.
+     */
+    public void setBudget(double budget) {
+        if(!(budget >= 0 && budget <= 1)) {
+            throw new IllegalArgumentException("Budget must be between 0 and 1.");
+        }
+
+        this.budget = budget;
+    }
+
+    /**
+     * Gets the number of hedgeable requests made through this transport.
+     *
+     * @return The number of hedgeable requests.
+     */
+    public long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    /**
+     * Gets the number of hedges sent.
+     *
+     * @return The number of hedges.
+     */
+    public long getHedgeCount() {
+        return this.hedgeCount.get();
+    }
+
+    /**
+     * Gets the number of hedges that answered before the request they hedged.
+     *
+     * @return The number of winning hedges.
+     */
+    public long getHedgeWinCount() {
+        return this.hedgeWinCount.get();
+    }
+
+    /**
+     * Gets the delay after which requests to an endpoint are currently hedged.
+     *
+     * @param endpoint Endpoint to get the delay of.
+     * @param unit     Unit to return the delay in.
+     * @return The current hedge delay.
+     */
+    public long getHedgeDelay(String endpoint, TimeUnit unit) {
+        LatencyWindow window = this.latencies.get(endpoint);
+        return unit.convert(window != null ? this.getDelay(window) : this.initialDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if(!this.isHedgeable(request)) {
+            return this.delegate.execute(request);
+        }
+
+        CompletableFuture<HttpResponse> future = this.hedge(request, null);
+        try {
+            return future.get();
+        } catch(InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while making request to '" + request.getUri() + "'.");
+        } catch(ExecutionException e) {
+            Throwable cause = AsyncUtil.unwrap(e);
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+        if(!this.isHedgeable(request)) {
+            return this.delegate.executeAsync(request, executor);
+        }
+
+        return this.hedge(request, executor);
+    }
+
+    private boolean isHedgeable(HttpRequest request) {
+        return request.getMethod().equals("GET") && request.getBody() == null
+                && (this.endpoints.isEmpty() || this.endpoints.contains(request.getEndpoint()));
+    }
+
+    private CompletableFuture<HttpResponse> hedge(HttpRequest request, Executor executor) {
+        this.requestCount.incrementAndGet();
+
+        LatencyWindow window = this.latencies.get(request.getEndpoint());
+        if(window == null) {
+            window = new LatencyWindow();
+            LatencyWindow existing = this.latencies.putIfAbsent(request.getEndpoint(), window);
+            if(existing != null) {
+                window = existing;
+            }
+        }
+
+        HedgedCall call = new HedgedCall(request, executor, window);
+        call.start(this.getDelay(window));
+        return call.result;
+    }
+
+    private long getDelay(LatencyWindow window) {
+        long delay = window.getPercentile(this.percentile);
+        return delay < 0 ? this.initialDelayNanos : Math.max(this.minDelayNanos, delay);
+    }
+
+    private boolean tryAcquireHedge() {
+        while(true) {
+            long hedges = this.hedgeCount.get();
+            if(hedges + 1 > this.budget * this.requestCount.get()) {
+                return false;
+            }
+
+            if(this.hedgeCount.compareAndSet(hedges, hedges + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private HttpRequest toHedgeRequest(HttpRequest request) {
+        String target = request.getUri().toString();
+        String bestMatch = null;
+        for(String baseUri : this.alternateBaseUris.keySet()) {
+            if(target.startsWith(baseUri) && (bestMatch == null || baseUri.length() > bestMatch.length())) {
+                bestMatch = baseUri;
+            }
+        }
+
+        URI alternate = bestMatch != null ? this.alternateBaseUris.get(bestMatch) : null;
+        if(alternate == null) {
+            return request;
+        }
+
+        HttpRequest hedge = new HttpRequest(request.getMethod(), URI.create(alternate.toString() + target.substring(bestMatch.length())));
+        hedge.setProxy(request.getProxy());
+        hedge.setHeaders(request.getHeaders());
+        hedge.setEndpoint(request.getEndpoint());
+        hedge.setTimeout(request.getTimeout(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        return hedge;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingTransport{delegate=" + this.delegate + ", requests=" + this.requestCount.get() + ", hedges=" + this.hedgeCount.get() + "}";
+    }
+
+    private class HedgedCall {
+        private final HttpRequest request;
+        private final Executor executor;
+        private final LatencyWindow window;
+        private final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        private final List<CompletableFuture<HttpResponse>> attempts = new ArrayList<>(2);
+
+        private int pending = 1;
+        private boolean hedgeable = true;
+
+        private HedgedCall(HttpRequest request, Executor executor, LatencyWindow window) {
+            this.request = request;
+            this.executor = executor;
+            this.window = window;
+        }
+
+        private void start(long delay) {
+            this.send(this.request, false);
+            AsyncUtil.delay(delay, TimeUnit.NANOSECONDS).thenRun(new Runnable() {
+                @Override
+                public void run() {
+                    sendHedge();
+                }
+            });
+
+            this.result.whenComplete(new BiConsumer<HttpResponse, Throwable>() {
+                @Override
+                public void accept(HttpResponse response, Throwable error) {
+                    List<CompletableFuture<HttpResponse>> attempts;
+                    synchronized(HedgedCall.this) {
+                        attempts = new ArrayList<>(HedgedCall.this.attempts);
+                    }
+
+                    // The winner is already complete; this only cancels the loser.
+                    for(CompletableFuture<HttpResponse> attempt : attempts) {
+                        attempt.cancel(true);
+                    }
+                }
+            });
+        }
+
+        private void sendHedge() {
+            synchronized(this) {
+                if(this.result.isDone() || !this.hedgeable) {
+                    return;
+                }
+
+                this.hedgeable = false;
+                if(!tryAcquireHedge()) {
+                    return;
+                }
+
+                this.pending++;
+            }
+
+            this.send(toHedgeRequest(this.request), true);
+        }
+
+        private void send(HttpRequest request, final boolean hedge) {
+            final long start = System.nanoTime();
+            CompletableFuture<HttpResponse> attempt;
+            try {
+                attempt = delegate.executeAsync(request, this.executor);
+            } catch(Throwable t) {
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(t);
+            }
+
+            synchronized(this) {
+                this.attempts.add(attempt);
+            }
+
+            attempt.whenComplete(new BiConsumer<HttpResponse, Throwable>() {
+                @Override
+                public void accept(HttpResponse response, Throwable error) {
+                    // A primary request cancelled in favor of its hedge took at least this long.
+                    if(!hedge && (error == null || AsyncUtil.unwrap(error) instanceof CancellationException)) {
+                        window.record(System.nanoTime() - start);
+                    }
+
+                    if(error == null) {
+                        if(result.complete(response)) {
+                            if(hedge) {
+                                hedgeWinCount.incrementAndGet();
+                            }
+                        } else {
+                            try {
+                                response.close();
+                            } catch(IOException ignored) {
+                            }
+                        }
+
+                        return;
+                    }
+
+                    boolean failed;
+                    synchronized(HedgedCall.this) {
+                        failed = --pending == 0;
+                        if(failed) {
+                            hedgeable = false;
+                        }
+                    }
+
+                    if(failed) {
+                        result.completeExceptionally(AsyncUtil.unwrap(error));
+                    }
+                }
+            });
+        }
+    }
+
+    private static class LatencyWindow {
+        private static final int SIZE = 256;
+        private static final int MIN_SAMPLES = 20;
+        private static final int RECOMPUTE_INTERVAL = 16;
+
+        private final long[] samples = new long[SIZE];
+        private int count;
+        private int index;
+        private int sinceRecompute;
+        private double cachedPercentile = Double.NaN;
+        private long cachedValue = -1;
+
+        public synchronized void record(long nanos) {
+            this.samples[this.index] = nanos;
+            this.index = (this.index + 1) % SIZE;
+            if(this.count < SIZE) {
+                this.count++;
+            }
+
+            this.sinceRecompute++;
+        }
+
+        public synchronized long getPercentile(double percentile) {
+            if(this.count < MIN_SAMPLES) {
+                return -1;
+            }
+
+            // Sorting the window on every request would dominate the cost of hedging, so the value is reused for a while.
+            if(this.sinceRecompute >= RECOMPUTE_INTERVAL || percentile != this.cachedPercentile || this.cachedValue < 0) {
+                long[] sorted = Arrays.copyOf(this.samples, this.count);
+                Arrays.sort(sorted);
+                this.cachedValue = sorted[Math.min(this.count - 1, (int) Math.ceil(percentile * this.count) - 1)];
+                this.cachedPercentile = percentile;
+                this.sinceRecompute = 0;
+            }
+
+            return this.cachedValue;
+        }
+    }
+}
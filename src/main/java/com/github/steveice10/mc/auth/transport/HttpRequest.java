@@ -0,0 +1,194 @@
+package com.github.steveice10.mc.auth.transport;
+
+import java.net.Proxy;
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An HTTP request to be executed by a {@link HttpTransport}.
+ */
+public class HttpRequest {
+    /**
+     * Default timeout of a request in milliseconds.
+     */
+    public static final int DEFAULT_TIMEOUT = 15000;
+
+    private final String method;
+    private final URI uri;
+    private String endpoint;
+    private Proxy proxy = Proxy.NO_PROXY;
+    private Map<String, String> headers;
+    private byte[] body;
+    private long timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * Creates a new HttpRequest instance.
+     *
+     * @param method HTTP method of the request.
+     * @param uri    URI to make the request to.
+     * @throws IllegalArgumentException If the given method or URI is null.
+     */
+    public HttpRequest(String method, URI uri) {
+        if(method == null) {
+            throw new IllegalArgumentException("Method cannot be null.");
+        } else if(uri == null) {
+            throw new IllegalArgumentException("URI cannot be null.");
+        }
+
+        this.method = method;
+        this.uri = uri;
+    }
+
+    /**
+     * Gets the HTTP method of the request.
+     *
+     * @return The request's method.
+     */
+    public String getMethod() {
+        return this.method;
+    }
+
+    /**
+     * Gets the URI the request is made to.
+     *
+     * @return The request's URI.
+     */
+    public URI getUri() {
+        return this.uri;
+    }
+
+    /**
+     * Gets the name of the service endpoint the request is made to.
+     * Used to group requests for circuit breaking, metrics and timeouts.
+     *
+     * @return The request's endpoint name, or the URI's host and path if none was set.
+     */
+    public String getEndpoint() {
+        return this.endpoint != null ? this.endpoint : this.uri.getHost() + this.uri.getPath();
+    }
+
+    /**
+     * Sets the name of the service endpoint the request is made to.
+     *
+     * @param endpoint Endpoint name to set.
+     */
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Gets the timeout of the request.
+     * Transports apply it to establishing the connection and to waiting for the response.
+     *
+     * @param unit Unit to return the timeout in.
+     * @return The request's timeout.
+     */
+    public long getTimeout(TimeUnit unit) {
+        return unit.convert(this.timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the timeout of the request.
+     *
+     * @param timeout Timeout to set.
+     * @param unit    Unit of the timeout.
+     * @throws IllegalArgumentException If the timeout is not positive.
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        long millis = unit.toMillis(timeout);
+        if(millis <= 0) {
+            throw new IllegalArgumentException("Timeout must be at least one millisecond.");
+        }
+
+        this.timeout = millis;
+    }
+
+    /**
+     * Gets the proxy to make the request through.
+     *
+     * @return The request's proxy.
+     */
+    public Proxy getProxy() {
+        return this.proxy;
+    }
+
+    /**
+     * Sets the proxy to make the request through.
+     *
+     * @param proxy Proxy to use. Null will be converted to NO_PROXY.
+     */
+    public void setProxy(Proxy proxy) {
+        this.proxy = proxy != null ? proxy : Proxy.NO_PROXY;
+    }
+
+    /**
+     * Gets an immutable map of the headers sent with the request.
+     *
+     * @return The request's headers.
+     */
+    public Map<String, String> getHeaders() {
+        if(this.headers == null) {
+            return Collections.emptyMap();
+        }
+
+        return Collections.unmodifiableMap(this.headers);
+    }
+
+    /**
+     * Sets a header to send with the request.
+     *
+     * @param name  Name of the header.
+     * @param value Value of the header.
+     */
+    public void setHeader(String name, String value) {
+        this.mutableHeaders().put(name, value);
+    }
+
+    /**
+     * Sets multiple headers to send with the request.
+     *
+     * @param headers Headers to set.
+     */
+    public void setHeaders(Map<String, String> headers) {
+        if(headers != null && !headers.isEmpty()) {
+            this.mutableHeaders().putAll(headers);
+        }
+    }
+
+    /**
+     * Gets the body of the request.
+     *
+     * @return The request's body, or null if it has none.
+     */
+    public byte[] getBody() {
+        return this.body;
+    }
+
+    /**
+     * Sets the body of the request along with its content type.
+     *
+     * @param contentType Content type of the body.
+     * @param body        Body to send.
+     */
+    public void setBody(String contentType, byte[] body) {
+        this.mutableHeaders().put("Content-Type", contentType);
+        this.body = body;
+    }
+
+    private Map<String, String> mutableHeaders() {
+        // Most requests carry no headers, so the map is only created once one is set.
+        if(this.headers == null) {
+            this.headers = new LinkedHashMap<>();
+        }
+
+        return this.headers;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpRequest{method=" + this.method + ", uri=" + this.uri + ", endpoint=" + this.getEndpoint() + ", proxy=" + this.proxy + "}";
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.steveice10.mc.auth.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An HTTP response produced by a {@link HttpTransport}.
+ * Closing the response releases its underlying connection.
+ */
+public class HttpResponse implements Closeable {
+    private final int statusCode;
+    private final URI uri;
+    private final Map<String, List<String>> headers;
+    private final InputStream body;
+
+    /**
+     * Creates a new HttpResponse instance.
+     *
+     * @param statusCode Status code of the response.
+     * @param uri        URI the response was received from, after following redirects.
+     * @param headers    Headers of the response.
+     * @param body       Body of the response, or null if it has none.
+     */
+    public HttpResponse(int statusCode, URI uri, Map<String, List<String>> headers, InputStream body) {
+        this.statusCode = statusCode;
+        this.uri = uri;
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if(headers != null) {
+            for(Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if(header.getKey() != null) {
+                    this.headers.put(header.getKey(), header.getValue());
+                }
+            }
+        }
+
+        this.body = body != null ? body : new ByteArrayInputStream(new byte[0]);
+    }
+
+    /**
+     * Gets the status code of the response.
+     *
+     * @return The response's status code.
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * Gets the URI the response was received from, after following redirects.
+     *
+     * @return The response's URI.
+     */
+    public URI getUri() {
+        return this.uri;
+    }
+
+    /**
+     * Gets an immutable map of the headers of the response.
+     * Header names are matched case-insensitively.
+     *
+     * @return The response's headers.
+     */
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(this.headers);
+    }
+
+    /**
+     * Gets the last value of a header of the response.
+     *
+     * @param name Name of the header.
+     * @return The header's value, or null if it is not present.
+     */
+    public String getHeader(String name) {
+        List<String> values = this.headers.get(name);
+        return values != null && !values.isEmpty() ? values.get(values.size() - 1) : null;
+    }
+
+    /**
+     * Gets the time the server asked to wait before retrying, as given by the Retry-After header.
+     *
+     * @return The time to wait in milliseconds, or -1 if the header is absent or invalid.
+     */
+    public long getRetryAfter() {
+        String value = this.getHeader("Retry-After");
+        if(value == null) {
+            return -1;
+        }
+
+        value = value.trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch(NumberFormatException ignored) {
+        }
+
+        try {
+            return Math.max(0, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch(DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the body of the response.
+     *
+     * @return The response's body.
+     */
+    public InputStream getBody() {
+        return this.body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.body.close();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpResponse{statusCode=" + this.statusCode + ", uri=" + this.uri + "}";
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Transport used to carry out HTTP exchanges on behalf of services.
+ */
+public interface HttpTransport {
+    /**
+     * Executes an HTTP request, blocking until the response headers are available.
+     * The caller is responsible for closing the returned response.
+     *
+     * @param request Request to execute.
+     * @return The response of the request.
+     * @throws IOException If an I/O error occurs while executing the request.
+     */
+    public HttpResponse execute(HttpRequest request) throws IOException;
+
+    /**
+     * Executes an HTTP request asynchronously.
+     * The caller is responsible for closing the response the future completes with.
+     * Transports that cannot perform non-blocking I/O run {@link #execute(HttpRequest)} on the given executor.
+     * Cancelling the returned future is best-effort: a request that has not started yet is skipped, but by default
+     * one already in progress keeps running until it completes, and its response is then closed.
+     * Transports that can abort requests in progress override this method to do so.
+     *
+     * @param request  Request to execute.
+     * @param executor Executor to run blocking work on, or null to use the default executor.
+     * @return A future completed with the response of the request, or exceptionally with an {@link IOException}.
+     */
+    public default CompletableFuture<HttpResponse> executeAsync(final HttpRequest request, Executor executor) {
+        final CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        try {
+            (executor != null ? executor : AsyncUtil.getDefaultExecutor()).execute(new Runnable() {
+                @Override
+                public void run() {
+                    if(future.isDone()) {
+                        return;
+                    }
+
+                    try {
+                        HttpResponse response = execute(request);
+                        if(!future.complete(response)) {
+                            response.close();
+                        }
+                    } catch(Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch(Throwable t) {
+            future.completeExceptionally(t);
+        }
+
+        return future;
+    }
+}
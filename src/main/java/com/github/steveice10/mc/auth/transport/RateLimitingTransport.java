@@ -0,0 +1,308 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+import com.github.steveice10.mc.auth.util.TokenBucket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Transport that paces requests with a token bucket per upstream host and honors HTTP 429 responses.
+ * When an upstream answers with 429, its bucket is paused for the time given by the Retry-After header
+ * and the request is queued and retried instead of failing. Limits can be configured per service base URI;
+ * requests that do not match a configured base URI share a bucket per host using the default limit.
+ */
+public class RateLimitingTransport implements HttpTransport {
+    private static final long DEFAULT_RETRY_DELAY = 1000;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_MAX_RETRY_DELAY = 60000;
+
+    private final HttpTransport delegate;
+    private final Map<String, TokenBucket> baseUriBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> hostBuckets = new ConcurrentHashMap<>();
+
+    private volatile double defaultPermitsPerSecond = Double.POSITIVE_INFINITY;
+    private volatile int defaultBurst = 1;
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+    private volatile long maxRetryDelay = DEFAULT_MAX_RETRY_DELAY;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+
+    /**
+     * Creates a new RateLimitingTransport instance.
+     * Requests are not paced until a limit is configured, but 429 responses are always honored.
+     *
+     * @param delegate Transport to make upstream requests with.
+     * @throws IllegalArgumentException If the given transport is null.
+     */
+    public RateLimitingTransport(HttpTransport delegate) {
+        if(delegate == null) {
+            throw new IllegalArgumentException("Delegate transport cannot be null.");
+        }
+
+        this.delegate = delegate;
+    }
+
+    /**
+     * Gets the transport upstream requests are made with.
+     *
+     * @return The delegate transport.
+     */
+    public HttpTransport getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * Sets the limit applied to each host without a base URI specific limit.
+     *
+     * @param permitsPerSecond Requests allowed per second, or {@link Double#POSITIVE_INFINITY} for no limit.
+     * @param burst            Requests allowed in a burst after a quiet period.
+     * @throws IllegalArgumentException If the rate is not positive or the burst is negative.
+     */
+    public void setDefaultLimit(double permitsPerSecond, int burst) {
+        if(!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Permits per second must be positive.");
+        } else if(burst < 0) {
+            throw new IllegalArgumentException("Burst cannot be negative.");
+        }
+
+        this.defaultPermitsPerSecond = permitsPerSecond;
+        this.defaultBurst = burst;
+        for(TokenBucket bucket : this.hostBuckets.values()) {
+            bucket.setRate(permitsPerSecond, burst);
+        }
+    }
+
+    /**
+     * Sets the limit applied to requests made below a base URI, such as the base URI of a service.
+     *
+     * @param baseUri          Base URI to limit.
+     * @param permitsPerSecond Requests allowed per second, or {@link Double#POSITIVE_INFINITY} for no limit.
+     * @param burst            Requests allowed in a burst after a quiet period.
+     * @throws IllegalArgumentException If the base URI is null, the rate is not positive or the burst is negative.
+     */
+    public void setLimit(URI baseUri, double permitsPerSecond, int burst) {
+        if(baseUri == null) {
+            throw new IllegalArgumentException("Base URI cannot be null.");
+        }
+
+        TokenBucket bucket = this.baseUriBuckets.get(baseUri.toString());
+        if(bucket != null) {
+            bucket.setRate(permitsPerSecond, burst);
+        } else {
+            this.baseUriBuckets.put(baseUri.toString(), new TokenBucket(permitsPerSecond, burst));
+        }
+    }
+
+    /**
+     * Removes the limit applied to requests made below a base URI.
+     *
+     * @param baseUri Base URI to remove the limit of.
+     */
+    public void removeLimit(URI baseUri) {
+        if(baseUri != null) {
+            this.baseUriBuckets.remove(baseUri.toString());
+        }
+    }
+
+    /**
+     * Sets how many times a request answered with 429 is retried before the response is passed on.
+     *
+     * @param maxRetries Maximum number of retries.
+     * @throws IllegalArgumentException If the number of retries is negative.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if(maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries cannot be negative.");
+        }
+
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Sets the longest Retry-After delay that is waited out.
+     * Responses asking for a longer delay are passed on immediately.
+     *
+     * @param delay Maximum delay.
+     * @param unit  Unit of the delay.
+     */
+    public void setMaxRetryDelay(long delay, TimeUnit unit) {
+        this.maxRetryDelay = unit.toMillis(delay);
+    }
+
+    /**
+     * Gets the number of requests currently queued waiting for a permit.
+     *
+     * @return The current queue depth.
+     */
+    public int getQueueDepth() {
+        return this.queueDepth.get();
+    }
+
+    /**
+     * Gets the number of times a request had to wait for a permit.
+     *
+     * @return The number of waits.
+     */
+    public long getWaitCount() {
+        return this.waitCount.get();
+    }
+
+    /**
+     * Gets the total time requests have spent waiting for permits.
+     *
+     * @param unit Unit to return the time in.
+     * @return The total wait time.
+     */
+    public long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(this.totalWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the number of 429 responses received from upstreams.
+     *
+     * @return The number of throttled responses.
+     */
+    public long getThrottledCount() {
+        return this.throttledCount.get();
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        TokenBucket bucket = this.getBucket(request.getUri());
+        for(int attempt = 0; ; attempt++) {
+            long wait = this.reserve(bucket);
+            if(wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to make request to '" + request.getUri() + "'.");
+                } finally {
+                    this.queueDepth.decrementAndGet();
+                }
+            }
+
+            HttpResponse response = this.delegate.execute(request);
+            if(!this.shouldRetry(bucket, response, attempt)) {
+                return response;
+            }
+
+            response.close();
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+        return this.executeAsync(this.getBucket(request.getUri()), request, executor, 0);
+    }
+
+    private CompletableFuture<HttpResponse> executeAsync(final TokenBucket bucket, final HttpRequest request, final Executor executor, final int attempt) {
+        long wait = this.reserve(bucket);
+        CompletableFuture<Void> ready = AsyncUtil.delay(wait, TimeUnit.NANOSECONDS);
+        if(wait > 0) {
+            ready = ready.whenComplete(new BiConsumer<Void, Throwable>() {
+                @Override
+                public void accept(Void ignored, Throwable error) {
+                    queueDepth.decrementAndGet();
+                }
+            });
+        }
+
+        return ready.thenCompose(new Function<Void, CompletableFuture<HttpResponse>>() {
+            @Override
+            public CompletableFuture<HttpResponse> apply(Void ignored) {
+                return delegate.executeAsync(request, executor);
+            }
+        }).thenCompose(new Function<HttpResponse, CompletableFuture<HttpResponse>>() {
+            @Override
+            public CompletableFuture<HttpResponse> apply(HttpResponse response) {
+                if(!shouldRetry(bucket, response, attempt)) {
+                    return CompletableFuture.completedFuture(response);
+                }
+
+                try {
+                    response.close();
+                } catch(IOException ignored) {
+                }
+
+                return executeAsync(bucket, request, executor, attempt + 1);
+            }
+        });
+    }
+
+    private long reserve(TokenBucket bucket) {
+        long wait = bucket.reserve();
+        if(wait > 0) {
+            this.queueDepth.incrementAndGet();
+            this.waitCount.incrementAndGet();
+            this.totalWaitNanos.addAndGet(wait);
+        }
+
+        return wait;
+    }
+
+    private boolean shouldRetry(TokenBucket bucket, HttpResponse response, int attempt) {
+        if(response.getStatusCode() != 429) {
+            return false;
+        }
+
+        this.throttledCount.incrementAndGet();
+
+        long delay = response.getRetryAfter();
+        if(delay < 0) {
+            delay = DEFAULT_RETRY_DELAY;
+        }
+
+        // Hold back every request to this upstream, not only the one that was rejected.
+        bucket.pause(delay, TimeUnit.MILLISECONDS);
+        return attempt < this.maxRetries && delay <= this.maxRetryDelay;
+    }
+
+    private TokenBucket getBucket(URI uri) {
+        if(!this.baseUriBuckets.isEmpty()) {
+            String target = uri.toString();
+            String bestMatch = null;
+            for(String baseUri : this.baseUriBuckets.keySet()) {
+                if(target.startsWith(baseUri) && (bestMatch == null || baseUri.length() > bestMatch.length())) {
+                    bestMatch = baseUri;
+                }
+            }
+
+            TokenBucket bucket = bestMatch != null ? this.baseUriBuckets.get(bestMatch) : null;
+            if(bucket != null) {
+                return bucket;
+            }
+        }
+
+        String host = uri.getScheme() + "://" + uri.getAuthority();
+        TokenBucket bucket = this.hostBuckets.get(host);
+        if(bucket == null) {
+            bucket = new TokenBucket(this.defaultPermitsPerSecond, this.defaultBurst);
+            TokenBucket existing = this.hostBuckets.putIfAbsent(host, bucket);
+            if(existing != null) {
+                bucket = existing;
+            }
+        }
+
+        return bucket;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitingTransport{delegate=" + this.delegate + ", queueDepth=" + this.queueDepth.get() + ", throttled=" + this.throttledCount.get() + "}";
+    }
+}
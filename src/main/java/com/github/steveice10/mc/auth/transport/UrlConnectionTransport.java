@@ -0,0 +1,130 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+import com.github.steveice10.mc.auth.util.HTTP;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport backed by {@link HttpURLConnection}.
+ * Connections are kept alive and reused through the JVM's built-in keep-alive cache.
+ * Used when no more capable transport is available on the running JVM.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        return execute(request, HTTP.createUrlConnection(request.getProxy(), request.getUri()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Cancelling the returned future disconnects the underlying connection, aborting a request that is already
+     * in progress, since blocking connection I/O does not respond to interrupts.
+     */
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(final HttpRequest request, Executor executor) {
+        final HttpURLConnection connection;
+        try {
+            connection = HTTP.createUrlConnection(request.getProxy(), request.getUri());
+        } catch(IOException | RuntimeException e) {
+            CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        final CompletableFuture<HttpResponse> future = new CompletableFuture<HttpResponse>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if(cancelled) {
+                    connection.disconnect();
+                }
+
+                return cancelled;
+            }
+        };
+
+        try {
+            (executor != null ? executor : AsyncUtil.getDefaultExecutor()).execute(new Runnable() {
+                @Override
+                public void run() {
+                    if(future.isDone()) {
+                        return;
+                    }
+
+                    try {
+                        HttpResponse response = execute(request, connection);
+                        if(!future.complete(response)) {
+                            response.close();
+                        }
+                    } catch(Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch(Throwable t) {
+            future.completeExceptionally(t);
+        }
+
+        return future;
+    }
+
+    private static HttpResponse execute(HttpRequest request, HttpURLConnection connection) throws IOException {
+        int timeout = (int) Math.min(Integer.MAX_VALUE, request.getTimeout(TimeUnit.MILLISECONDS));
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setRequestMethod(request.getMethod());
+        for(Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        connection.setDoInput(true);
+
+        byte[] body = request.getBody();
+        if(body != null) {
+            connection.setRequestProperty("Content-Length", String.valueOf(body.length));
+            connection.setDoOutput(true);
+        }
+
+        try {
+            connection.connect();
+        } catch(SocketTimeoutException e) {
+            // Nothing has been sent yet, which lets callers such as FailoverTransport retry on another target.
+            ConnectTimeoutException connectTimeout = new ConnectTimeoutException(e.getMessage());
+            connectTimeout.initCause(e);
+            throw connectTimeout;
+        }
+
+        if(body != null) {
+            try(OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+
+        int statusCode = connection.getResponseCode();
+        InputStream in = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        try {
+            return new HttpResponse(statusCode, connection.getURL().toURI(), connection.getHeaderFields(), in);
+        } catch(URISyntaxException e) {
+            if(in != null) {
+                in.close();
+            }
+
+            throw new IOException("Received response from invalid URL '" + connection.getURL() + "'.", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UrlConnectionTransport{}";
+    }
+}
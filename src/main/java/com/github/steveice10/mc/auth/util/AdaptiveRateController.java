@@ -0,0 +1,312 @@
+package com.github.steveice10.mc.auth.util;
+
+import com.github.steveice10.mc.auth.exception.request.TooManyRequestsException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces requests to a rate that adapts to how the upstream responds.
+ * While requests succeed the rate grows by a fixed amount per second, and on failure it is cut by a factor (AIMD),
+ * staying between a minimum and a maximum. Failures within one base retry delay of a cut usually come from the same
+ * overload, such as concurrent requests all answered with 429, so they do not cut the rate again.
+ * Failed requests are retried after an exponentially growing, jittered delay, and 429 responses with a Retry-After
+ * hold back all requests for the time the upstream asked for, capped at the maximum retry delay.
+ */
+public class AdaptiveRateController {
+    public static final double DEFAULT_INITIAL_RATE = 10;
+    public static final double DEFAULT_MIN_RATE = 0.5;
+    public static final double DEFAULT_MAX_RATE = 50;
+    public static final double DEFAULT_RATE_INCREASE = 10;
+    public static final double DEFAULT_RATE_DECREASE_FACTOR = 0.5;
+    public static final long DEFAULT_BASE_RETRY_DELAY = 750;
+    public static final long DEFAULT_MAX_RETRY_DELAY = 30000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private final TokenBucket bucket;
+
+    private double rate;
+    private double minRate = DEFAULT_MIN_RATE;
+    private double maxRate = DEFAULT_MAX_RATE;
+    private double rateIncrease = DEFAULT_RATE_INCREASE;
+    private double rateDecreaseFactor = DEFAULT_RATE_DECREASE_FACTOR;
+    private long baseRetryDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BASE_RETRY_DELAY);
+    private long maxRetryDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_RETRY_DELAY);
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private long lastDecrease;
+    private boolean decreased;
+    private long successCount;
+    private long failureCount;
+
+    /**
+     * Creates a new AdaptiveRateController instance with the default settings.
+     */
+    public AdaptiveRateController() {
+        this(DEFAULT_INITIAL_RATE);
+    }
+
+    /**
+     * Creates a new AdaptiveRateController instance.
+     *
+     * @param initialRate Number of requests per second to start at.
+     * @throws IllegalArgumentException If the rate is not positive and finite.
+     */
+    public AdaptiveRateController(double initialRate) {
+        checkRate(initialRate);
+        this.rate = initialRate;
+        this.bucket = new TokenBucket(initialRate, 1);
+    }
+
+    /**
+     * Gets the current number of requests per second.
+     *
+     * @return The current rate.
+     */
+    public synchronized double getRate() {
+        return this.rate;
+    }
+
+    /**
+     * Sets the current number of requests per second.
+     * The rate keeps adapting from the given value.
+     *
+     * @param rate Current rate.
+     * @throws IllegalArgumentException If the rate is not positive and finite.
+     */
+    public synchronized void setRate(double rate) {
+        checkRate(rate);
+        this.updateRate(rate);
+    }
+
+    /**
+     * Gets the lowest number of requests per second failures can cut the rate to.
+     *
+     * @return The minimum rate.
+     */
+    public synchronized double getMinRate() {
+        return this.minRate;
+    }
+
+    /**
+     * Gets the highest number of requests per second successes can raise the rate to.
+     *
+     * @return The maximum rate.
+     */
+    public synchronized double getMaxRate() {
+        return this.maxRate;
+    }
+
+    /**
+     * Sets the bounds the rate adapts between.
+     * The current rate is moved into the new bounds if needed.
+     *
+     * @param minRate Minimum number of requests per second.
+     * @param maxRate Maximum number of requests per second.
+     * @throws IllegalArgumentException If either rate is not positive and finite, or the minimum exceeds the maximum.
+     */
+    public synchronized void setRateBounds(double minRate, double maxRate) {
+        checkRate(minRate);
+        checkRate(maxRate);
+        if(minRate > maxRate) {
+            throw new IllegalArgumentException("Minimum rate cannot exceed the maximum rate.");
+        }
+
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.updateRate(this.rate);
+    }
+
+    /**
+     * Gets the number of requests per second added to the rate for every second of successful requests.
+     *
+     * @return The rate increase.
+     */
+    public synchronized double getRateIncrease() {
+        return this.rateIncrease;
+    }
+
+    /**
+     * Gets the factor the rate is multiplied by after each failure.
+     *
+     * @return The rate decrease factor.
+     */
+    public synchronized double getRateDecreaseFactor() {
+        return this.rateDecreaseFactor;
+    }
+
+    /**
+     * Sets how the rate adapts to successes and failures.
+     *
+     * @param increase       Number of requests per second added to the rate for every second of successful requests.
+     * @param decreaseFactor Factor the rate is multiplied by after each failure.
+     * @throws IllegalArgumentException If the increase is negative or the factor is not between 0 exclusive and 1 inclusive.
+     */
+    public synchronized void setRateAdjustment(double increase, double decreaseFactor) {
+        if(!(increase >= 0) || Double.isInfinite(increase)) {
+            throw new IllegalArgumentException("Rate increase must be finite and cannot be negative.");
+        } else if(!(decreaseFactor > 0 && decreaseFactor <= 1)) {
+            throw new IllegalArgumentException("Rate decrease factor must be greater than 0 and at most 1.");
+        }
+
+        this.rateIncrease = increase;
+        this.rateDecreaseFactor = decreaseFactor;
+    }
+
+    /**
+     * Gets the delay before the first retry of a failed request.
+     *
+     * @param unit Unit to get the delay in.
+     * @return The base retry delay.
+     */
+    public synchronized long getBaseRetryDelay(TimeUnit unit) {
+        return unit.convert(this.baseRetryDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the longest delay before retrying a failed request.
+     *
+     * @param unit Unit to get the delay in.
+     * @return The maximum retry delay.
+     */
+    public synchronized long getMaxRetryDelay(TimeUnit unit) {
+        return unit.convert(this.maxRetryDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the delays before retrying a failed request.
+     * The delay doubles with every attempt of the same request, up to the maximum.
+     *
+     * @param baseDelay Delay before the first retry.
+     * @param maxDelay  Longest delay before a retry.
+     * @param unit      Unit of the delays.
+     * @throws IllegalArgumentException If either delay is negative or the base delay exceeds the maximum.
+     */
+    public synchronized void setRetryDelay(long baseDelay, long maxDelay, TimeUnit unit) {
+        if(baseDelay < 0 || maxDelay < 0) {
+            throw new IllegalArgumentException("Retry delays cannot be negative.");
+        } else if(baseDelay > maxDelay) {
+            throw new IllegalArgumentException("Base retry delay cannot exceed the maximum retry delay.");
+        }
+
+        this.baseRetryDelayNanos = unit.toNanos(baseDelay);
+        this.maxRetryDelayNanos = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * Gets the number of times a request is attempted before its failure is reported.
+     *
+     * @return The maximum number of attempts.
+     */
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    /**
+     * Sets the number of times a request is attempted before its failure is reported.
+     *
+     * @param maxAttempts Maximum number of attempts.
+     * @throws IllegalArgumentException If the number of attempts is not positive.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if(maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive.");
+        }
+
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Gets the number of successful requests reported to this controller.
+     *
+     * @return The number of successes.
+     */
+    public synchronized long getSuccessCount() {
+        return this.successCount;
+    }
+
+    /**
+     * Gets the number of failed requests reported to this controller.
+     *
+     * @return The number of failures.
+     */
+    public synchronized long getFailureCount() {
+        return this.failureCount;
+    }
+
+    /**
+     * Reserves a slot for a request at the current rate.
+     *
+     * @return The time in nanoseconds the caller must wait before making the request.
+     */
+    public long reserve() {
+        return this.bucket.reserve();
+    }
+
+    /**
+     * Reports a successful request, raising the rate.
+     */
+    public synchronized void onSuccess() {
+        this.successCount++;
+        // A second's worth of successes at the current rate adds the full increase.
+        this.updateRate(this.rate + this.rateIncrease / this.rate);
+    }
+
+    /**
+     * Reports a failed request, cutting the rate unless it was cut within the base retry delay.
+     * If the upstream sent a Retry-After delay with a 429 response, all requests are held back for that long,
+     * up to the {@link #getMaxRetryDelay(TimeUnit) maximum retry delay}.
+     *
+     * @param attempt Number of times the failed request has been attempted, starting at 1.
+     * @param error   Error the request failed with.
+     * @return The time in nanoseconds to wait before retrying the request, or -1 if it should not be retried
+     *         because it has been attempted {@link #getMaxAttempts()} times.
+     */
+    public synchronized long onFailure(int attempt, Throwable error) {
+        this.failureCount++;
+        long now = System.nanoTime();
+        if(!this.decreased || now - this.lastDecrease >= this.baseRetryDelayNanos) {
+            this.decreased = true;
+            this.lastDecrease = now;
+            this.updateRate(this.rate * this.rateDecreaseFactor);
+        }
+
+        long retryAfter = -1;
+        Throwable cause = AsyncUtil.unwrap(error);
+        if(cause instanceof TooManyRequestsException && ((TooManyRequestsException) cause).getRetryAfter() > 0) {
+            // A misbehaving upstream could ask for any delay, so it is capped like the back-off itself.
+            retryAfter = Math.min(TimeUnit.MILLISECONDS.toNanos(((TooManyRequestsException) cause).getRetryAfter()), this.maxRetryDelayNanos);
+            this.bucket.pause(retryAfter, TimeUnit.NANOSECONDS);
+        }
+
+        if(attempt >= this.maxAttempts) {
+            return -1;
+        }
+
+        // Equal jitter: half of the exponential delay is fixed and the other half random, so retries of requests
+        // that failed together spread out without any of them retrying right away.
+        long delay = this.baseRetryDelayNanos << Math.min(Math.max(attempt - 1, 0), 30);
+        if(delay < 0 || delay > this.maxRetryDelayNanos) {
+            delay = this.maxRetryDelayNanos;
+        }
+
+        delay = delay / 2 + (delay > 1 ? ThreadLocalRandom.current().nextLong(delay / 2 + 1) : 0);
+        return Math.max(delay, retryAfter);
+    }
+
+    private void updateRate(double rate) {
+        this.rate = Math.max(this.minRate, Math.min(this.maxRate, rate));
+        this.bucket.setRate(this.rate, 1);
+    }
+
+    private static void checkRate(double rate) {
+        if(!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Rate must be positive and finite.");
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveRateController{rate=" + this.rate + ", minRate=" + this.minRate + ", maxRate=" + this.maxRate + ", maxAttempts=" + this.maxAttempts + "}";
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.steveice10.mc.auth.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utilities for running work asynchronously.
+ */
+public class AsyncUtil {
+    private static final ExecutorService DEFAULT_EXECUTOR = ThreadUtil.newExecutor("MCAuthLib-Async-");
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "MCAuthLib-Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private AsyncUtil() {
+    }
+
+    /**
+     * Gets the executor used for asynchronous work when no executor is provided.
+     * Tasks run on this executor may block. On Java 21 and newer, each task runs on its own virtual thread.
+     *
+     * @return The default executor.
+     */
+    public static Executor getDefaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Creates a future that completes after the given delay.
+     * Dependent actions that are not run asynchronously run on a shared scheduler thread and must not block.
+     *
+     * @param delay Time to wait before completing the future.
+     * @param unit  Unit of the delay.
+     * @return A future completed after the delay.
+     */
+    public static CompletableFuture<Void> delay(long delay, TimeUnit unit) {
+        if(delay <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                future.complete(null);
+            }
+        }, delay, unit);
+        return future;
+    }
+
+    /**
+     * Unwraps the exception a future was completed with.
+     *
+     * @param error Exception to unwrap.
+     * @return The underlying cause of the exception.
+     */
+    public static Throwable unwrap(Throwable error) {
+        while((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+
+        return error;
+    }
+}
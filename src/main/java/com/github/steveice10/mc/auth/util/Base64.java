@@ -1,7 +1,15 @@
 package com.github.steveice10.mc.auth.util;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * Methods for encoding and decoding base64 data.
+ * Besides the methods that return new arrays, data can be encoded and decoded into caller-supplied arrays and
+ * buffers, and decoded straight from a String, so that hot paths do not allocate.
+ * Whitespace in encoded data is ignored, decoding stops at padding, and a trailing group of fewer than four
+ * characters without padding is ignored.
  */
 public class Base64 {
     private static final byte EQUALS_SIGN = (byte) '=';
@@ -10,9 +18,48 @@ public class Base64 {
     private static final byte[] ALPHABET = new byte[] {(byte) 'A', (byte) 'B', (byte) 'C', (byte) 'D', (byte) 'E', (byte) 'F', (byte) 'G', (byte) 'H', (byte) 'I', (byte) 'J', (byte) 'K', (byte) 'L', (byte) 'M', (byte) 'N', (byte) 'O', (byte) 'P', (byte) 'Q', (byte) 'R', (byte) 'S', (byte) 'T', (byte) 'U', (byte) 'V', (byte) 'W', (byte) 'X', (byte) 'Y', (byte) 'Z', (byte) 'a', (byte) 'b', (byte) 'c', (byte) 'd', (byte) 'e', (byte) 'f', (byte) 'g', (byte) 'h', (byte) 'i', (byte) 'j', (byte) 'k', (byte) 'l', (byte) 'm', (byte) 'n', (byte) 'o', (byte) 'p', (byte) 'q', (byte) 'r', (byte) 's', (byte) 't', (byte) 'u', (byte) 'v', (byte) 'w', (byte) 'x', (byte) 'y', (byte) 'z', (byte) '0', (byte) '1', (byte) '2', (byte) '3', (byte) '4', (byte) '5', (byte) '6', (byte) '7', (byte) '8', (byte) '9', (byte) '+', (byte) '/'};
     private static final byte[] DECODABET = new byte[] {-9, -9, -9, -9, -9, -9, -9, -9, -9, -5, -5, -9, -9, -5, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -5, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, 62, -9, -9, -9, 63, 52, 53, 54, 55, 56, 57, 58, 59, 60, 61, -9, -9, -9, -1, -9, -9, -9, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, -9, -9, -9, -9, -9, -9, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 46, 47, 48, 49, 50, 51, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9, -9};
 
+    private static final java.util.Base64.Encoder ENCODER = java.util.Base64.getEncoder();
+    private static final java.util.Base64.Decoder DECODER = java.util.Base64.getDecoder();
+
     private Base64() {
     }
 
+    /**
+     * Gets the number of bytes encoding data of the given length produces.
+     *
+     * @param length Length of the data to encode.
+     * @return The length of the encoded data.
+     * @throws IllegalArgumentException If the length is negative or the encoded length does not fit in an int.
+     */
+    public static int getEncodedLength(int length) {
+        if(length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative.");
+        }
+
+        long encoded = (length + 2L) / 3 * 4;
+        if(encoded > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Encoded length of " + length + " bytes is too large.");
+        }
+
+        return (int) encoded;
+    }
+
+    /**
+     * Gets the maximum number of bytes decoding base64 data of the given length produces.
+     * Destinations of this size are always large enough, no matter how much padding and whitespace the data contains.
+     *
+     * @param length Length of the data to decode.
+     * @return The maximum length of the decoded data.
+     * @throws IllegalArgumentException If the length is negative.
+     */
+    public static int getMaxDecodedLength(int length) {
+        if(length < 0) {
+            throw new IllegalArgumentException("Length cannot be negative.");
+        }
+
+        return length / 4 * 3;
+    }
+
     /**
      * Encodes a byte array to base64.
      *
@@ -24,25 +71,90 @@ public class Base64 {
             throw new NullPointerException("Cannot serialize a null array.");
         }
 
-        byte[] outBuff = new byte[(source.length / 3) * 4 + (source.length % 3 > 0 ? 4 : 0)];
-        int d = 0;
-        int e = 0;
-        for(; d < source.length - 2; d += 3, e += 4) {
-            encode3to4(source, d, 3, outBuff, e);
+        // The JDK's encoder produces the same output and is an intrinsic on newer JVMs.
+        return ENCODER.encode(source);
+    }
+
+    /**
+     * Encodes part of a byte array to base64 into an existing byte array.
+     * The destination must have room for {@link #getEncodedLength(int)} bytes.
+     *
+     * @param source      Byte array to encode.
+     * @param offset      Offset of the data to encode in the source.
+     * @param length      Length of the data to encode.
+     * @param destination Byte array to write the encoded data to.
+     * @param destOffset  Offset in the destination to start writing at.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the ranges do not fit in the arrays.
+     */
+    public static int encode(byte[] source, int offset, int length, byte[] destination, int destOffset) {
+        checkRange("Source", source.length, offset, length);
+        int encodedLength = getEncodedLength(length);
+        checkRange("Destination", destination.length, destOffset, encodedLength);
+
+        int s = offset;
+        int d = destOffset;
+        int end = offset + length / 3 * 3;
+        while(s < end) {
+            int bits = (source[s] & 0xFF) << 16 | (source[s + 1] & 0xFF) << 8 | (source[s + 2] & 0xFF);
+            destination[d] = ALPHABET[bits >>> 18];
+            destination[d + 1] = ALPHABET[(bits >>> 12) & 0x3F];
+            destination[d + 2] = ALPHABET[(bits >>> 6) & 0x3F];
+            destination[d + 3] = ALPHABET[bits & 0x3F];
+            s += 3;
+            d += 4;
+        }
+
+        int remaining = offset + length - s;
+        if(remaining > 0) {
+            int bits = (source[s] & 0xFF) << 16 | (remaining > 1 ? (source[s + 1] & 0xFF) << 8 : 0);
+            destination[d] = ALPHABET[bits >>> 18];
+            destination[d + 1] = ALPHABET[(bits >>> 12) & 0x3F];
+            destination[d + 2] = remaining > 1 ? ALPHABET[(bits >>> 6) & 0x3F] : EQUALS_SIGN;
+            destination[d + 3] = EQUALS_SIGN;
         }
 
-        if(d < source.length) {
-            encode3to4(source, d, source.length - d, outBuff, e);
-            e += 4;
+        return encodedLength;
+    }
+
+    /**
+     * Encodes the remaining bytes of a buffer to base64 into another buffer.
+     * The positions of both buffers are advanced past the bytes read and written.
+     *
+     * @param source      Buffer to encode.
+     * @param destination Buffer to write the encoded data to.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the destination does not have enough bytes remaining.
+     */
+    public static int encode(ByteBuffer source, ByteBuffer destination) {
+        int length = source.remaining();
+        int encodedLength = getEncodedLength(length);
+        if(destination.remaining() < encodedLength) {
+            throw new IllegalArgumentException(String.format("Destination buffer with %d bytes remaining cannot store %d bytes.", destination.remaining(), encodedLength));
         }
 
-        if(e <= outBuff.length - 1) {
-            byte[] finalOut = new byte[e];
-            System.arraycopy(outBuff, 0, finalOut, 0, e);
-            return finalOut;
+        if(source.hasArray() && destination.hasArray()) {
+            encode(source.array(), source.arrayOffset() + source.position(), length, destination.array(), destination.arrayOffset() + destination.position());
         } else {
-            return outBuff;
+            int s = source.position();
+            int d = destination.position();
+            int end = s + length;
+            while(s < end) {
+                int remaining = end - s;
+                int bits = (source.get(s) & 0xFF) << 16 | (remaining > 1 ? (source.get(s + 1) & 0xFF) << 8 : 0) | (remaining > 2 ? source.get(s + 2) & 0xFF : 0);
+                destination.put(d, ALPHABET[bits >>> 18]);
+                destination.put(d + 1, ALPHABET[(bits >>> 12) & 0x3F]);
+                destination.put(d + 2, remaining > 1 ? ALPHABET[(bits >>> 6) & 0x3F] : EQUALS_SIGN);
+                destination.put(d + 3, remaining > 2 ? ALPHABET[bits & 0x3F] : EQUALS_SIGN);
+                s += 3;
+                d += 4;
+            }
         }
+
+        // Buffer casts keep the Java 8 position(int) signature when built on a newer JDK.
+        ((Buffer) source).position(source.position() + length);
+        ((Buffer) destination).position(destination.position() + encodedLength);
+        return encodedLength;
     }
 
     /**
@@ -56,91 +168,315 @@ public class Base64 {
             throw new NullPointerException("Cannot decode null source array.");
         }
 
-        byte[] outBuff = new byte[source.length * 3 / 4];
-        byte[] b4 = new byte[4];
-        int outBuffPosn = 0;
-        int b4Posn = 0;
-        for(int i = 0; i < source.length; i++) {
-            byte sbiDecode = DECODABET[source[i] & 0xFF];
-            if(sbiDecode >= WHITE_SPACE_ENC) {
-                if(sbiDecode >= EQUALS_SIGN_ENC) {
-                    b4[b4Posn++] = source[i];
-                    if(b4Posn > 3) {
-                        outBuffPosn += decode4to3(b4, 0, outBuff, outBuffPosn);
-                        b4Posn = 0;
-                        if(source[i] == EQUALS_SIGN) {
-                            break;
-                        }
-                    }
+        int padding = 0;
+        if(source.length % 4 == 0) {
+            // Padded input without whitespace, which is what the session server sends, decodes the same with the
+            // JDK's stricter decoder. Anything it rejects is decoded again leniently, or reported, below.
+            try {
+                return DECODER.decode(source);
+            } catch(IllegalArgumentException e) {
+            }
+
+            // Sized exactly for padded input without whitespace, so the result usually needs no copy.
+            while(padding < 2 && padding < source.length && source[source.length - 1 - padding] == EQUALS_SIGN) {
+                padding++;
+            }
+        }
+
+        byte[] out = new byte[Math.max(0, getMaxDecodedLength(source.length) - padding)];
+        int length = decode(source, 0, source.length, out, 0);
+        return length == out.length ? out : Arrays.copyOf(out, length);
+    }
+
+    /**
+     * Decodes a String or other character sequence from base64.
+     *
+     * @param source Characters to decode.
+     * @return The resulting data.
+     */
+    public static byte[] decode(CharSequence source) {
+        if(source == null) {
+            throw new NullPointerException("Cannot decode null source.");
+        }
+
+        int padding = 0;
+        if(source.length() % 4 == 0) {
+            while(padding < 2 && padding < source.length() && source.charAt(source.length() - 1 - padding) == EQUALS_SIGN) {
+                padding++;
+            }
+        }
+
+        byte[] out = new byte[Math.max(0, getMaxDecodedLength(source.length()) - padding)];
+        int length = decode(source, 0, source.length(), out, 0);
+        return length == out.length ? out : Arrays.copyOf(out, length);
+    }
+
+    /**
+     * Decodes part of a byte array from base64 into an existing byte array.
+     * A destination with room for {@link #getMaxDecodedLength(int)} bytes is always large enough.
+     *
+     * @param source      Byte array to decode.
+     * @param offset      Offset of the data to decode in the source.
+     * @param length      Length of the data to decode.
+     * @param destination Byte array to write the decoded data to.
+     * @param destOffset  Offset in the destination to start writing at.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the source contains invalid characters, or the ranges do not fit in the arrays.
+     */
+    public static int decode(byte[] source, int offset, int length, byte[] destination, int destOffset) {
+        checkRange("Source", source.length, offset, length);
+        checkRange("Destination", destination.length, destOffset, 0);
+        return decode(source, offset, length, destination, destOffset, destination.length);
+    }
+
+    private static int decode(byte[] source, int offset, int length, byte[] destination, int destOffset, int destEnd) {
+        int s = offset;
+        int end = offset + length;
+        int d = destOffset;
+
+        // Whole groups of alphabet characters are decoded without branching per character.
+        // Any padding, whitespace or invalid character has a negative table entry and ends the fast path.
+        int groups = Math.min(length / 4, (destEnd - destOffset) / 3);
+        for(int group = 0; group < groups; group++) {
+            int b0 = DECODABET[source[s] & 0xFF];
+            int b1 = DECODABET[source[s + 1] & 0xFF];
+            int b2 = DECODABET[source[s + 2] & 0xFF];
+            int b3 = DECODABET[source[s + 3] & 0xFF];
+            if((b0 | b1 | b2 | b3) < 0) {
+                break;
+            }
+
+            int bits = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+            destination[d] = (byte) (bits >> 16);
+            destination[d + 1] = (byte) (bits >> 8);
+            destination[d + 2] = (byte) bits;
+            s += 4;
+            d += 3;
+        }
+
+        int bits = 0;
+        int count = 0;
+        int padding = 0;
+        for(; s < end; s++) {
+            int c = source[s] & 0xFF;
+            int value = DECODABET[c];
+            if(value == WHITE_SPACE_ENC) {
+                continue;
+            }
+
+            if(value < EQUALS_SIGN_ENC) {
+                throw new IllegalArgumentException(String.format("Bad Base64 input character decimal %d in array position %d", c, s));
+            }
+
+            bits = bits << 6 | (value == EQUALS_SIGN_ENC ? 0 : value);
+            padding = nextPadding(padding, count, value == EQUALS_SIGN_ENC);
+            if(++count == 4) {
+                int written = 3 - padding;
+                checkRange("Destination", destEnd, d, written);
+                writeGroup(bits, written, destination, d);
+                d += written;
+                if(padding > 0) {
+                    break;
                 }
-            } else {
-                throw new IllegalArgumentException(String.format("Bad Base64 input character decimal %d in array position %d", source[i] & 0xFF, i));
-            }
-        }
-
-        byte[] out = new byte[outBuffPosn];
-        System.arraycopy(outBuff, 0, out, 0, outBuffPosn);
-        return out;
-    }
-
-    private static byte[] encode3to4(byte[] source, int srcOffset, int numSigBytes, byte[] destination, int destOffset) {
-        int inBuff = (numSigBytes > 0 ? ((source[srcOffset] << 24) >>> 8) : 0) | (numSigBytes > 1 ? ((source[srcOffset + 1] << 24) >>> 16) : 0) | (numSigBytes > 2 ? ((source[srcOffset + 2] << 24) >>> 24) : 0);
-        switch(numSigBytes) {
-            case 3:
-                destination[destOffset] = ALPHABET[(inBuff >>> 18)];
-                destination[destOffset + 1] = ALPHABET[(inBuff >>> 12) & 0x3f];
-                destination[destOffset + 2] = ALPHABET[(inBuff >>> 6) & 0x3f];
-                destination[destOffset + 3] = ALPHABET[(inBuff) & 0x3f];
-                return destination;
-            case 2:
-                destination[destOffset] = ALPHABET[(inBuff >>> 18)];
-                destination[destOffset + 1] = ALPHABET[(inBuff >>> 12) & 0x3f];
-                destination[destOffset + 2] = ALPHABET[(inBuff >>> 6) & 0x3f];
-                destination[destOffset + 3] = EQUALS_SIGN;
-                return destination;
-            case 1:
-                destination[destOffset] = ALPHABET[(inBuff >>> 18)];
-                destination[destOffset + 1] = ALPHABET[(inBuff >>> 12) & 0x3f];
-                destination[destOffset + 2] = EQUALS_SIGN;
-                destination[destOffset + 3] = EQUALS_SIGN;
-                return destination;
-            default:
-                return destination;
-        }
-    }
-
-    private static int decode4to3(byte[] source, int srcOffset, byte[] destination, int destOffset) {
+
+                bits = 0;
+                count = 0;
+            }
+        }
+
+        return d - destOffset;
+    }
+
+    /**
+     * Decodes base64 characters into an existing byte array.
+     * The destination must have room for at least three bytes per four characters of the source.
+     *
+     * @param source      Characters to decode.
+     * @param destination Byte array to write the decoded data to.
+     * @param destOffset  Offset in the destination to start writing at.
+     * @return The number of bytes written.
+     */
+    public static int decode(CharSequence source, byte[] destination, int destOffset) {
         if(source == null) {
-            throw new NullPointerException("Source array was null.");
+            throw new NullPointerException("Cannot decode null source.");
         }
 
         if(destination == null) {
             throw new NullPointerException("Destination array was null.");
         }
 
-        if(srcOffset < 0 || srcOffset + 3 >= source.length) {
-            throw new IllegalArgumentException(String.format("Source array with length %d cannot have offset of %d and still process four bytes.", source.length, srcOffset));
+        return decode(source, 0, source.length(), destination, destOffset);
+    }
+
+    /**
+     * Decodes part of a String or other character sequence from base64 into an existing byte array.
+     * A destination with room for {@link #getMaxDecodedLength(int)} bytes is always large enough.
+     *
+     * @param source      Characters to decode.
+     * @param offset      Offset of the characters to decode in the source.
+     * @param length      Number of characters to decode.
+     * @param destination Byte array to write the decoded data to.
+     * @param destOffset  Offset in the destination to start writing at.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the source contains invalid characters, or the ranges do not fit.
+     */
+    public static int decode(CharSequence source, int offset, int length, byte[] destination, int destOffset) {
+        checkRange("Source", source.length(), offset, length);
+        checkRange("Destination", destination.length, destOffset, 0);
+
+        int s = offset;
+        int end = offset + length;
+        int d = destOffset;
+
+        int groups = Math.min(length / 4, (destination.length - destOffset) / 3);
+        for(int group = 0; group < groups; group++) {
+            int b0 = decodeChar(source.charAt(s));
+            int b1 = decodeChar(source.charAt(s + 1));
+            int b2 = decodeChar(source.charAt(s + 2));
+            int b3 = decodeChar(source.charAt(s + 3));
+            if((b0 | b1 | b2 | b3) < 0) {
+                break;
+            }
+
+            int bits = b0 << 18 | b1 << 12 | b2 << 6 | b3;
+            destination[d] = (byte) (bits >> 16);
+            destination[d + 1] = (byte) (bits >> 8);
+            destination[d + 2] = (byte) bits;
+            s += 4;
+            d += 3;
         }
 
-        if(destOffset < 0 || destOffset + 2 >= destination.length) {
-            throw new IllegalArgumentException(String.format("Destination array with length %d cannot have offset of %d and still store three bytes.", destination.length, destOffset));
+        int bits = 0;
+        int count = 0;
+        int padding = 0;
+        for(; s < end; s++) {
+            char c = source.charAt(s);
+            int value = decodeChar(c);
+            if(value == WHITE_SPACE_ENC) {
+                continue;
+            }
+
+            if(value < EQUALS_SIGN_ENC) {
+                throw new IllegalArgumentException(String.format("Bad Base64 input character decimal %d in position %d", (int) c, s));
+            }
+
+            bits = bits << 6 | (value == EQUALS_SIGN_ENC ? 0 : value);
+            padding = nextPadding(padding, count, value == EQUALS_SIGN_ENC);
+            if(++count == 4) {
+                int written = 3 - padding;
+                checkRange("Destination", destination.length, d, written);
+                writeGroup(bits, written, destination, d);
+                d += written;
+                if(padding > 0) {
+                    break;
+                }
+
+                bits = 0;
+                count = 0;
+            }
         }
 
-        if(source[srcOffset + 2] == EQUALS_SIGN) {
-            int outBuff = ((DECODABET[source[srcOffset]] & 0xFF) << 18) | ((DECODABET[source[srcOffset + 1]] & 0xFF) << 12);
-            destination[destOffset] = (byte) (outBuff >>> 16);
-            return 1;
-        } else if(source[srcOffset + 3] == EQUALS_SIGN) {
-            int outBuff = ((DECODABET[source[srcOffset]] & 0xFF) << 18) | ((DECODABET[source[srcOffset + 1]] & 0xFF) << 12) | ((DECODABET[source[srcOffset + 2]] & 0xFF) << 6);
-            destination[destOffset] = (byte) (outBuff >>> 16);
-            destination[destOffset + 1] = (byte) (outBuff >>> 8);
-            return 2;
+        return d - destOffset;
+    }
+
+    /**
+     * Decodes the remaining bytes of a buffer from base64 into another buffer.
+     * The source is consumed entirely and the destination's position is advanced past the bytes written.
+     * A destination with {@link #getMaxDecodedLength(int)} bytes remaining is always large enough.
+     *
+     * @param source      Buffer to decode.
+     * @param destination Buffer to write the decoded data to.
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException If the source contains invalid characters, or the destination is too small.
+     */
+    public static int decode(ByteBuffer source, ByteBuffer destination) {
+        int written;
+        if(source.hasArray() && destination.hasArray()) {
+            int destOffset = destination.arrayOffset() + destination.position();
+            written = decode(source.array(), source.arrayOffset() + source.position(), source.remaining(), destination.array(), destOffset, destination.arrayOffset() + destination.limit());
+            ((Buffer) destination).position(destination.position() + written);
         } else {
-            int outBuff = ((DECODABET[source[srcOffset]] & 0xFF) << 18) | ((DECODABET[source[srcOffset + 1]] & 0xFF) << 12) | ((DECODABET[source[srcOffset + 2]] & 0xFF) << 6) | ((DECODABET[source[srcOffset + 3]] & 0xFF));
-            destination[destOffset] = (byte) (outBuff >> 16);
-            destination[destOffset + 1] = (byte) (outBuff >> 8);
-            destination[destOffset + 2] = (byte) (outBuff);
-            return 3;
+            written = decodeToBuffer(source, destination);
+        }
+
+        ((Buffer) source).position(source.limit());
+        return written;
+    }
+
+    private static int decodeToBuffer(ByteBuffer source, ByteBuffer destination) {
+        int start = destination.position();
+        int d = start;
+        int bits = 0;
+        int count = 0;
+        int padding = 0;
+        for(int s = source.position(); s < source.limit(); s++) {
+            int c = source.get(s) & 0xFF;
+            int value = DECODABET[c];
+            if(value == WHITE_SPACE_ENC) {
+                continue;
+            }
+
+            if(value < EQUALS_SIGN_ENC) {
+                throw new IllegalArgumentException(String.format("Bad Base64 input character decimal %d in buffer position %d", c, s));
+            }
+
+            bits = bits << 6 | (value == EQUALS_SIGN_ENC ? 0 : value);
+            padding = nextPadding(padding, count, value == EQUALS_SIGN_ENC);
+            if(++count == 4) {
+                int written = 3 - padding;
+                if(destination.limit() - d < written) {
+                    throw new IllegalArgumentException(String.format("Destination buffer with %d bytes remaining cannot store %d more bytes.", destination.limit() - d, written));
+                }
+
+                for(int i = 0; i < written; i++) {
+                    destination.put(d++, (byte) (bits >> (16 - 8 * i)));
+                }
+
+                if(padding > 0) {
+                    break;
+                }
+
+                bits = 0;
+                count = 0;
+            }
+        }
+
+        ((Buffer) destination).position(d);
+        return d - start;
+    }
+
+    private static int decodeChar(char c) {
+        return c <= 0xFF ? DECODABET[c] : -9;
+    }
+
+    private static int nextPadding(int padding, int count, boolean pad) {
+        if(pad) {
+            // Padding can only fill the last one or two characters of a group.
+            if(count < 2) {
+                throw new IllegalArgumentException("Bad Base64 padding at character " + (count + 1) + " of a group.");
+            }
+
+            return padding + 1;
+        } else if(padding > 0) {
+            throw new IllegalArgumentException("Bad Base64 input character after padding.");
+        }
+
+        return padding;
+    }
+
+    private static void writeGroup(int bits, int length, byte[] destination, int destOffset) {
+        destination[destOffset] = (byte) (bits >> 16);
+        if(length > 1) {
+            destination[destOffset + 1] = (byte) (bits >> 8);
+            if(length > 2) {
+                destination[destOffset + 2] = (byte) bits;
+            }
+        }
+    }
+
+    private static void checkRange(String name, int arrayLength, int offset, int length) {
+        if(offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IllegalArgumentException(String.format("%s with length %d cannot have offset of %d and still hold %d bytes.", name, arrayLength, offset, length));
         }
     }
 }
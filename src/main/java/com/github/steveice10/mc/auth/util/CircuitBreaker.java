@@ -0,0 +1,349 @@
+package com.github.steveice10.mc.auth.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker that stops calls to a failing dependency for a while.
+ * After a number of consecutive failures the breaker opens and rejects every call until the open duration
+ * has passed. It then lets a limited number of trial calls through; if they all succeed the breaker closes
+ * again, and if any of them fails it opens for another full duration.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_DURATION = 30000;
+    public static final int DEFAULT_HALF_OPEN_TRIALS = 1;
+
+    /**
+     * State of a circuit breaker.
+     */
+    public enum State {
+        /**
+         * Calls are allowed and failures are counted.
+         */
+        CLOSED,
+        /**
+         * Calls are rejected until the open duration has passed.
+         */
+        OPEN,
+        /**
+         * A limited number of trial calls are allowed to probe whether the dependency has recovered.
+         */
+        HALF_OPEN;
+    }
+
+    /**
+     * Listener notified when the state of a circuit breaker changes.
+     */
+    public interface Listener {
+        /**
+         * Called after the state of a circuit breaker has changed.
+         *
+         * @param breaker Breaker that changed state.
+         * @param from    Previous state.
+         * @param to      New state.
+         */
+        public void onStateChange(CircuitBreaker breaker, State from, State to);
+    }
+
+    private final String name;
+
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long openDurationNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_OPEN_DURATION);
+    private int halfOpenTrials = DEFAULT_HALF_OPEN_TRIALS;
+    private volatile Listener listener;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    private long ignoredCount;
+
+    /**
+     * Creates a new CircuitBreaker instance with the default settings.
+     *
+     * @param name Name of the breaker, usually the name of the guarded endpoint.
+     * @throws IllegalArgumentException If the given name is null.
+     */
+    public CircuitBreaker(String name) {
+        if(name == null) {
+            throw new IllegalArgumentException("Name cannot be null.");
+        }
+
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of this breaker.
+     *
+     * @return The breaker's name.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the current state of this breaker.
+     * An open breaker whose open duration has passed is reported as half-open.
+     *
+     * @return The breaker's state.
+     */
+    public State getState() {
+        Transition transition;
+        State state;
+        synchronized(this) {
+            transition = this.checkOpenExpired(System.nanoTime());
+            state = this.state;
+        }
+
+        this.fireTransition(transition);
+        return state;
+    }
+
+    /**
+     * Sets the number of consecutive failures that open this breaker.
+     *
+     * @param failureThreshold Number of consecutive failures.
+     * @throws IllegalArgumentException If the threshold is less than 1.
+     */
+    public synchronized void setFailureThreshold(int failureThreshold) {
+        if(failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1.");
+        }
+
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * Sets how long this breaker stays open before letting trial calls through.
+     *
+     * @param duration Open duration.
+     * @param unit     Unit of the duration.
+     * @throws IllegalArgumentException If the duration is negative.
+     */
+    public synchronized void setOpenDuration(long duration, TimeUnit unit) {
+        if(duration < 0) {
+            throw new IllegalArgumentException("Open duration cannot be negative.");
+        }
+
+        this.openDurationNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * Sets the number of trial calls that must succeed while half-open for this breaker to close.
+     *
+     * @param halfOpenTrials Number of trial calls.
+     * @throws IllegalArgumentException If the number of trials is less than 1.
+     */
+    public synchronized void setHalfOpenTrials(int halfOpenTrials) {
+        if(halfOpenTrials < 1) {
+            throw new IllegalArgumentException("Half-open trials must be at least 1.");
+        }
+
+        this.halfOpenTrials = halfOpenTrials;
+    }
+
+    /**
+     * Sets the listener notified when the state of this breaker changes.
+     *
+     * @param listener Listener to notify, or null for none.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the number of consecutive failures recorded since the last success.
+     *
+     * @return The number of consecutive failures.
+     */
+    public synchronized int getConsecutiveFailures() {
+        return this.consecutiveFailures;
+    }
+
+    /**
+     * Gets the total number of successful calls recorded by this breaker.
+     *
+     * @return The number of successes.
+     */
+    public synchronized long getSuccessCount() {
+        return this.successCount;
+    }
+
+    /**
+     * Gets the total number of failed calls recorded by this breaker.
+     *
+     * @return The number of failures.
+     */
+    public synchronized long getFailureCount() {
+        return this.failureCount;
+    }
+
+    /**
+     * Gets the total number of calls rejected by this breaker.
+     *
+     * @return The number of rejected calls.
+     */
+    public synchronized long getRejectedCount() {
+        return this.rejectedCount;
+    }
+
+    /**
+     * Gets the total number of calls released without an outcome, such as cancelled calls.
+     *
+     * @return The number of ignored calls.
+     */
+    public synchronized long getIgnoredCount() {
+        return this.ignoredCount;
+    }
+
+    /**
+     * Gets the time left until this breaker lets trial calls through.
+     *
+     * @param unit Unit to return the time in.
+     * @return The remaining open time, or 0 if the breaker is not open.
+     */
+    public synchronized long getRemainingOpenTime(TimeUnit unit) {
+        if(this.state != State.OPEN) {
+            return 0;
+        }
+
+        return unit.convert(Math.max(0, this.openedAt + this.openDurationNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Tries to acquire permission to make a call.
+     * Every acquired permission must be followed by exactly one call to {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #onIgnored()}.
+     *
+     * @return Whether the call may be made.
+     */
+    public boolean tryAcquire() {
+        Transition transition;
+        boolean acquired;
+        synchronized(this) {
+            transition = this.checkOpenExpired(System.nanoTime());
+            if(this.state == State.CLOSED) {
+                acquired = true;
+            } else if(this.state == State.HALF_OPEN && this.trialsInFlight + this.trialSuccesses < this.halfOpenTrials) {
+                this.trialsInFlight++;
+                acquired = true;
+            } else {
+                this.rejectedCount++;
+                acquired = false;
+            }
+        }
+
+        this.fireTransition(transition);
+        return acquired;
+    }
+
+    /**
+     * Records a successful call.
+     */
+    public void onSuccess() {
+        Transition transition = null;
+        synchronized(this) {
+            this.successCount++;
+            this.consecutiveFailures = 0;
+            if(this.state == State.HALF_OPEN) {
+                this.trialsInFlight = Math.max(0, this.trialsInFlight - 1);
+                if(++this.trialSuccesses >= this.halfOpenTrials) {
+                    transition = this.transition(State.CLOSED);
+                }
+            }
+        }
+
+        this.fireTransition(transition);
+    }
+
+    /**
+     * Records a failed call.
+     */
+    public void onFailure() {
+        Transition transition = null;
+        synchronized(this) {
+            this.failureCount++;
+            this.consecutiveFailures++;
+            if(this.state == State.HALF_OPEN || (this.state == State.CLOSED && this.consecutiveFailures >= this.failureThreshold)) {
+                transition = this.transition(State.OPEN);
+            }
+        }
+
+        this.fireTransition(transition);
+    }
+
+    /**
+     * Releases a permission without recording an outcome, such as when the call was never made.
+     */
+    public synchronized void onIgnored() {
+        this.ignoredCount++;
+        if(this.state == State.HALF_OPEN) {
+            this.trialsInFlight = Math.max(0, this.trialsInFlight - 1);
+        }
+    }
+
+    /**
+     * Closes this breaker and clears its failure count.
+     */
+    public void reset() {
+        Transition transition;
+        synchronized(this) {
+            this.consecutiveFailures = 0;
+            transition = this.transition(State.CLOSED);
+        }
+
+        this.fireTransition(transition);
+    }
+
+    private Transition checkOpenExpired(long now) {
+        if(this.state == State.OPEN && now - this.openedAt >= this.openDurationNanos) {
+            return this.transition(State.HALF_OPEN);
+        }
+
+        return null;
+    }
+
+    private Transition transition(State to) {
+        State from = this.state;
+        if(from == to) {
+            return null;
+        }
+
+        this.state = to;
+        this.trialsInFlight = 0;
+        this.trialSuccesses = 0;
+        if(to == State.OPEN) {
+            this.openedAt = System.nanoTime();
+        }
+
+        return new Transition(from, to);
+    }
+
+    private void fireTransition(Transition transition) {
+        // Listeners are called outside of the lock so they can safely query the breaker.
+        Listener listener = this.listener;
+        if(transition != null && listener != null) {
+            listener.onStateChange(this, transition.from, transition.to);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{name=" + this.name + ", state=" + this.state + ", consecutiveFailures=" + this.consecutiveFailures + "}";
+    }
+
+    private static class Transition {
+        private final State from;
+        private final State to;
+
+        private Transition(State from, State to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.steveice10.mc.auth.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which an operation spanning several requests must complete.
+ * Each request made under a deadline is given at most the time that remains of it.
+ */
+public class Deadline {
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline the given time from now.
+     *
+     * @param timeout Time until the deadline.
+     * @param unit    Unit of the time.
+     * @return The created deadline.
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Gets the time remaining until this deadline.
+     *
+     * @param unit Unit to return the time in.
+     * @return The remaining time, or 0 if the deadline has passed.
+     */
+    public long getRemaining(TimeUnit unit) {
+        return unit.convert(Math.max(0, this.deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets whether this deadline has passed.
+     *
+     * @return Whether the deadline has passed.
+     */
+    public boolean isExpired() {
+        return this.deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remaining=" + this.getRemaining(TimeUnit.MILLISECONDS) + "ms}";
+    }
+}
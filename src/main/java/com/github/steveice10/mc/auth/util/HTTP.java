@@ -1,34 +1,98 @@
 package com.github.steveice10.mc.auth.util;
 
+import com.github.steveice10.mc.auth.data.GameProfile;
 import com.github.steveice10.mc.auth.exception.request.*;
+import com.github.steveice10.mc.auth.metrics.MetricsRegistry;
+import com.github.steveice10.mc.auth.transport.HttpRequest;
+import com.github.steveice10.mc.auth.transport.HttpResponse;
+import com.github.steveice10.mc.auth.transport.HttpTransport;
+import com.github.steveice10.mc.auth.transport.UrlConnectionTransport;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.Proxy;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.security.GeneralSecurityException;
+import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 /**
  * Utilities for making HTTP requests.
  */
 public class HTTP {
     private static final Gson GSON;
+    private static final String JDK_TRANSPORT_CLASS = "com.github.steveice10.mc.auth.transport.JdkHttpTransport";
+
+    private static final int TLS_SESSION_CACHE_SIZE = 1024;
+    private static final int TLS_SESSION_TIMEOUT = 86400;
+
+    private static volatile HttpTransport defaultTransport;
+    private static volatile SSLContext sslContext;
+    private static volatile SSLSocketFactory sslSocketFactory;
 
     static {
-        GSON = new GsonBuilder().registerTypeAdapter(UUID.class, new UUIDSerializer()).create();
+        // Profile adapters are registered here rather than on the class, so other Gson instances keep their own behavior.
+        GSON = new GsonBuilder().registerTypeAdapter(UUID.class, new UUIDSerializer()).registerTypeAdapterFactory(GameProfile.getTypeAdapterFactory()).create();
+        defaultTransport = createDefaultTransport();
     }
 
     private HTTP() {
     }
 
+    /**
+     * Gets the Gson instance shared by the library for encoding requests and decoding responses.
+     * Request and response types bind through their own streaming adapters rather than reflection.
+     *
+     * @return The shared Gson instance.
+     */
+    public static Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Gets the transport used by default for making requests.
+     * This is the pooled, HTTP/2-capable JDK client when the running JVM provides one,
+     * and {@link UrlConnectionTransport} otherwise.
+     *
+     * @return The default transport.
+     */
+    public static HttpTransport getDefaultTransport() {
+        return defaultTransport;
+    }
+
+    /**
+     * Sets the transport used by default for making requests.
+     *
+     * @param transport Transport to use. Null will restore the built-in default.
+     */
+    public static void setDefaultTransport(HttpTransport transport) {
+        defaultTransport = transport != null ? transport : createDefaultTransport();
+    }
+
     /**
      * Makes an HTTP request.
      *
@@ -56,71 +120,272 @@ public class HTTP {
      * @throws RequestException If an error occurs while making the request.
      */
     public static <T> T makeRequest(Proxy proxy, URI uri, Object input, Class<T> responseType, Map<String, String> extraHeaders) throws RequestException {
+        return makeRequest(defaultTransport, proxy, uri, input, responseType, extraHeaders);
+    }
+
+    public static <T> T makeRequest(Proxy proxy, URI uri, Object input, Class<T> responseType) throws RequestException {
+        return makeRequest(proxy, uri, input, responseType, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Makes an HTTP request using the given transport.
+     *
+     * @param transport Transport to make the request with.
+     * @param proxy     Proxy to use when making the request.
+     * @param uri       URI to make the request to.
+     * @param input     Input to provide in the request.
+     * @throws IllegalArgumentException If the given transport, proxy or URI is null.
+     * @throws RequestException If an error occurs while making the request.
+     */
+    public static void makeRequest(HttpTransport transport, Proxy proxy, URI uri, Object input) throws RequestException {
+        makeRequest(transport, proxy, uri, input, null);
+    }
+
+    public static <T> T makeRequest(HttpTransport transport, Proxy proxy, URI uri, Object input, Class<T> responseType) throws RequestException {
+        return makeRequest(transport, proxy, uri, input, responseType, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Makes an HTTP request using the given transport.
+     *
+     * @param transport    Transport to make the request with.
+     * @param proxy        Proxy to use when making the request.
+     * @param uri          URI to make the request to.
+     * @param input        Input to provide in the request.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @param extraHeaders Extra headers to add to the request.
+     * @return The response of the request.
+     * @throws IllegalArgumentException If the given transport, proxy or URI is null.
+     * @throws RequestException If an error occurs while making the request.
+     */
+    public static <T> T makeRequest(HttpTransport transport, Proxy proxy, URI uri, Object input, Class<T> responseType, Map<String, String> extraHeaders) throws RequestException {
         if(proxy == null) {
             throw new IllegalArgumentException("Proxy cannot be null.");
         } else if(uri == null) {
             throw new IllegalArgumentException("URI cannot be null.");
         }
 
-        JsonElement response;
+        return makeRequest(transport, createRequest(proxy, uri, input, extraHeaders), responseType);
+    }
+
+    /**
+     * Makes an HTTP request as a from.
+     *
+     * @param proxy        Proxy to use when making the request.
+     * @param uri          URI to make the request to.
+     * @param input        Input to provide in the request.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @return The response of the request.
+     * @throws IllegalArgumentException If the given proxy or URI is null.
+     * @throws RequestException If an error occurs while making the request.
+     */
+    public static <T> T makeRequestForm(Proxy proxy, URI uri, Map<String, String> input, Class<T> responseType) throws RequestException {
+        return makeRequestForm(defaultTransport, proxy, uri, input, responseType);
+    }
+
+    /**
+     * Makes an HTTP request as a form using the given transport.
+     *
+     * @param transport    Transport to make the request with.
+     * @param proxy        Proxy to use when making the request.
+     * @param uri          URI to make the request to.
+     * @param input        Input to provide in the request.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @return The response of the request.
+     * @throws IllegalArgumentException If the given transport, proxy or URI is null.
+     * @throws RequestException If an error occurs while making the request.
+     */
+    public static <T> T makeRequestForm(HttpTransport transport, Proxy proxy, URI uri, Map<String, String> input, Class<T> responseType) throws RequestException {
+        if(proxy == null) {
+            throw new IllegalArgumentException("Proxy cannot be null.");
+        } else if(uri == null) {
+            throw new IllegalArgumentException("URI cannot be null.");
+        }
+
+        return makeRequest(transport, createFormRequest(proxy, uri, input), responseType);
+    }
+
+    /**
+     * Executes an HTTP request using the given transport and decodes its JSON response.
+     *
+     * @param transport    Transport to make the request with.
+     * @param request      Request to make.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @return The response of the request.
+     * @throws IllegalArgumentException If the given transport or request is null.
+     * @throws RequestException If an error occurs while making the request.
+     */
+    public static <T> T makeRequest(HttpTransport transport, HttpRequest request, Class<T> responseType) throws RequestException {
+        if(transport == null) {
+            throw new IllegalArgumentException("Transport cannot be null.");
+        } else if(request == null) {
+            throw new IllegalArgumentException("Request cannot be null.");
+        }
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        long start = metrics.start(request.getEndpoint());
         try {
-            response = input == null ? performGetRequest(proxy, uri, extraHeaders) : performPostRequest(proxy, uri, extraHeaders, GSON.toJson(input), "application/json");
-        } catch(IOException e) {
-            throw new ServiceUnavailableException("Could not make request to '" + uri + "'.", e);
+            T result = execute(transport, request, responseType);
+            metrics.end(request.getEndpoint(), start, null);
+            return result;
+        } catch(RequestException | RuntimeException e) {
+            metrics.end(request.getEndpoint(), start, e);
+            throw e;
         }
+    }
 
-        if(response != null) {
-            checkForError(response);
+    private static <T> T execute(HttpTransport transport, HttpRequest request, Class<T> responseType) throws RequestException {
+        try(HttpResponse response = transport.execute(request)) {
+            return readResponse(response, responseType);
+        } catch(IOException e) {
+            throw toRequestException(request, e);
+        }
+    }
 
-            if(responseType != null) {
-                return GSON.fromJson(response, responseType);
-            }
+    private static RequestException toRequestException(HttpRequest request, IOException e) {
+        if(e instanceof SocketTimeoutException) {
+            return new RequestTimeoutException("Request to '" + request.getUri() + "' timed out.", e);
         }
 
-        return null;
+        return new ServiceUnavailableException("Could not make request to '" + request.getUri() + "'.", e);
     }
 
-    public static <T> T makeRequest(Proxy proxy, URI uri, Object input, Class<T> responseType) throws RequestException {
-        return makeRequest(proxy, uri, input, responseType, new HashMap<String, String>());
+    /**
+     * Makes an HTTP request asynchronously using the given transport.
+     *
+     * @param transport Transport to make the request with.
+     * @param proxy     Proxy to use when making the request.
+     * @param uri       URI to make the request to.
+     * @param input     Input to provide in the request.
+     * @param executor  Executor to run blocking work and callbacks on, or null to use the transport's defaults.
+     * @return A future completed once the request finishes, or exceptionally with a {@link RequestException}.
+     * @throws IllegalArgumentException If the given transport, proxy or URI is null.
+     */
+    public static CompletableFuture<Void> makeRequestAsync(HttpTransport transport, Proxy proxy, URI uri, Object input, Executor executor) {
+        return HTTP.<Void>makeRequestAsync(transport, proxy, uri, input, null, Collections.<String, String>emptyMap(), executor);
     }
 
     /**
-     * Makes an HTTP request as a from.
+     * Makes an HTTP request asynchronously using the given transport.
      *
+     * @param transport    Transport to make the request with.
      * @param proxy        Proxy to use when making the request.
      * @param uri          URI to make the request to.
      * @param input        Input to provide in the request.
      * @param responseType Class to provide the response as.
      * @param <T>          Type to provide the response as.
-     * @return The response of the request.
-     * @throws IllegalArgumentException If the given proxy or URI is null.
-     * @throws RequestException If an error occurs while making the request.
+     * @param extraHeaders Extra headers to add to the request.
+     * @param executor     Executor to run blocking work and callbacks on, or null to use the transport's defaults.
+     * @return A future completed with the response of the request, or exceptionally with a {@link RequestException}.
+     * @throws IllegalArgumentException If the given transport, proxy or URI is null.
      */
-    public static <T> T makeRequestForm(Proxy proxy, URI uri, Map<String, String> input, Class<T> responseType) throws RequestException {
+    public static <T> CompletableFuture<T> makeRequestAsync(HttpTransport transport, Proxy proxy, URI uri, Object input, Class<T> responseType, Map<String, String> extraHeaders, Executor executor) {
         if(proxy == null) {
             throw new IllegalArgumentException("Proxy cannot be null.");
         } else if(uri == null) {
             throw new IllegalArgumentException("URI cannot be null.");
         }
 
-        String inputString = formMapToString(input);
+        return makeRequestAsync(transport, createRequest(proxy, uri, input, extraHeaders), responseType, executor);
+    }
 
-        JsonElement response;
-        try {
-            response = performPostRequest(proxy, uri, new HashMap<String, String>(), inputString, "application/x-www-form-urlencoded");
-        } catch(IOException e) {
-            throw new ServiceUnavailableException("Could not make request to '" + uri + "'.", e);
+    /**
+     * Executes an HTTP request asynchronously using the given transport and decodes its JSON response.
+     *
+     * @param transport    Transport to make the request with.
+     * @param request      Request to make.
+     * @param responseType Class to provide the response as.
+     * @param <T>          Type to provide the response as.
+     * @param executor     Executor to run blocking work and callbacks on, or null to use the transport's defaults.
+     * @return A future completed with the response of the request, or exceptionally with a {@link RequestException}.
+     * @throws IllegalArgumentException If the given transport or request is null.
+     */
+    public static <T> CompletableFuture<T> makeRequestAsync(HttpTransport transport, final HttpRequest request, final Class<T> responseType, Executor executor) {
+        if(transport == null) {
+            throw new IllegalArgumentException("Transport cannot be null.");
+        } else if(request == null) {
+            throw new IllegalArgumentException("Request cannot be null.");
         }
 
-        if(response != null) {
-            checkForError(response);
+        BiFunction<HttpResponse, Throwable, T> handler = new BiFunction<HttpResponse, Throwable, T>() {
+            @Override
+            public T apply(HttpResponse response, Throwable error) {
+                if(error != null) {
+                    Throwable cause = AsyncUtil.unwrap(error);
+                    if(cause instanceof IOException) {
+                        cause = toRequestException(request, (IOException) cause);
+                    }
+
+                    throw new CompletionException(cause);
+                }
 
-            if(responseType != null) {
-                return GSON.fromJson(response, responseType);
+                try(HttpResponse r = response) {
+                    return readResponse(r, responseType);
+                } catch(IOException e) {
+                    throw new CompletionException(toRequestException(request, e));
+                } catch(RequestException e) {
+                    throw new CompletionException(e);
+                }
+            }
+        };
+
+        final MetricsRegistry metrics = MetricsRegistry.getDefault();
+        final long start = metrics.start(request.getEndpoint());
+
+        CompletableFuture<T> result;
+        try {
+            CompletableFuture<HttpResponse> future = transport.executeAsync(request, executor);
+            result = executor != null ? future.handleAsync(handler, executor) : future.handle(handler);
+        } catch(RuntimeException e) {
+            metrics.end(request.getEndpoint(), start, e);
+            throw e;
+        }
+
+        return result.whenComplete(new BiConsumer<T, Throwable>() {
+            @Override
+            public void accept(T response, Throwable error) {
+                metrics.end(request.getEndpoint(), start, error);
             }
+        });
+    }
+
+    /**
+     * Creates a request, sending the given input as JSON if present.
+     *
+     * @param proxy        Proxy to use when making the request.
+     * @param uri          URI to make the request to.
+     * @param input        Input to provide in the request. If null, a GET request is created.
+     * @param extraHeaders Extra headers to add to the request.
+     * @return The created request.
+     */
+    public static HttpRequest createRequest(Proxy proxy, URI uri, Object input, Map<String, String> extraHeaders) {
+        HttpRequest request = new HttpRequest(input == null ? "GET" : "POST", uri);
+        request.setProxy(proxy);
+        if(input != null) {
+            request.setBody("application/json; charset=utf-8", GSON.toJson(input).getBytes(StandardCharsets.UTF_8));
         }
 
-        return null;
+        request.setHeaders(extraHeaders);
+        return request;
+    }
+
+    /**
+     * Creates a request, sending the given input as a form.
+     *
+     * @param proxy Proxy to use when making the request.
+     * @param uri   URI to make the request to.
+     * @param input Input to provide in the request.
+     * @return The created request.
+     */
+    public static HttpRequest createFormRequest(Proxy proxy, URI uri, Map<String, String> input) {
+        HttpRequest request = new HttpRequest("POST", uri);
+        request.setProxy(proxy);
+        request.setBody("application/x-www-form-urlencoded; charset=utf-8", formMapToString(input).getBytes(StandardCharsets.UTF_8));
+        return request;
     }
 
     public static String formMapToString(Map<String, String> input) {
@@ -140,71 +405,383 @@ public class HTTP {
         return inputString.toString();
     }
 
-    private static void checkForError(JsonElement response) throws RequestException {
-        if(response.isJsonObject()) {
-            JsonObject object = response.getAsJsonObject();
-            if(object.has("error")) {
-                String error = object.get("error").getAsString();
-                String cause = object.has("cause") ? object.get("cause").getAsString() : "";
-                String errorMessage = object.has("errorMessage") ? object.get("errorMessage").getAsString() : "";
-                errorMessage = object.has("error_description") ? object.get("error_description").getAsString() : errorMessage;
-                if(!error.equals("")) {
-                    if(error.equals("ForbiddenOperationException")) {
-                        if (cause != null && cause.equals("UserMigratedException")) {
-                            throw new UserMigratedException(errorMessage);
-                        } else {
-                            throw new InvalidCredentialsException(errorMessage);
-                        }
-                    } else if (error.equals("authorization_pending")) {
-                        throw new AuthPendingException(errorMessage);
+    private static void checkForError(String error, String cause, String errorMessage, String errorDescription) throws RequestException {
+        if(error != null) {
+            errorMessage = errorDescription != null ? errorDescription : errorMessage != null ? errorMessage : "";
+            if(!error.equals("")) {
+                if(error.equals("ForbiddenOperationException")) {
+                    if (cause != null && cause.equals("UserMigratedException")) {
+                        throw new UserMigratedException(errorMessage);
                     } else {
-                        throw new RequestException(errorMessage);
+                        throw new InvalidCredentialsException(errorMessage);
                     }
+                } else if (error.equals("authorization_pending")) {
+                    throw new AuthPendingException(errorMessage);
+                } else {
+                    throw new RequestException(errorMessage);
+                }
+            }
+        }
+    }
+
+    public static HttpURLConnection createUrlConnection(Proxy proxy, URI uri) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection(proxy);
+        connection.setConnectTimeout(HttpRequest.DEFAULT_TIMEOUT);
+        connection.setReadTimeout(HttpRequest.DEFAULT_TIMEOUT);
+        connection.setUseCaches(false);
+        if(connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(getSslSocketFactory());
+        }
+
+        return connection;
+    }
+
+    /**
+     * Gets the TLS context shared by all transports.
+     * Sharing one context lets new connections to a host resume the TLS session of an earlier connection
+     * instead of performing a full handshake.
+     *
+     * @return The shared TLS context.
+     */
+    public static SSLContext getSslContext() {
+        initSsl();
+        return sslContext;
+    }
+
+    /**
+     * Gets the socket factory of the shared TLS context.
+     * The same instance is always returned, since pooled connections are only reused for the factory they were created with.
+     *
+     * @return The shared TLS socket factory.
+     */
+    public static SSLSocketFactory getSslSocketFactory() {
+        initSsl();
+        return sslSocketFactory;
+    }
+
+    private static void initSsl() {
+        if(sslSocketFactory != null) {
+            return;
+        }
+
+        synchronized(HTTP.class) {
+            if(sslSocketFactory != null) {
+                return;
+            }
+
+            SSLContext context;
+            try {
+                context = SSLContext.getInstance("TLS");
+                context.init(null, null, null);
+                context.getClientSessionContext().setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+                context.getClientSessionContext().setSessionTimeout(TLS_SESSION_TIMEOUT);
+            } catch(GeneralSecurityException e) {
+                try {
+                    context = SSLContext.getDefault();
+                } catch(GeneralSecurityException e2) {
+                    throw new IllegalStateException("No TLS implementation available.", e2);
                 }
             }
+
+            sslContext = context;
+            sslSocketFactory = context.getSocketFactory();
         }
     }
 
-    private static JsonElement performGetRequest(Proxy proxy, URI uri, Map<String, String> extraHeaders) throws IOException {
-        HttpURLConnection connection = createUrlConnection(proxy, uri);
-        for (Map.Entry<String, String> header : extraHeaders.entrySet()) {
-            connection.setRequestProperty(header.getKey(), header.getValue());
+
+    private static <T> T readResponse(HttpResponse response, Class<T> responseType) throws IOException, RequestException {
+        // Only successful responses and error responses carry a body worth decoding.
+        if(response.getStatusCode() != 200 && response.getStatusCode() < 400) {
+            return null;
         }
-        connection.setDoInput(true);
 
-        return processResponse(connection);
+        // Decode the body in a single pass, picking up error fields while binding the response type.
+        BodyReader body = BodyReader.open(response.getBody());
+        try {
+            return readResponse(response, responseType, new ResponseReader(body));
+        } finally {
+            body.release();
+        }
     }
 
-    private static JsonElement performPostRequest(Proxy proxy, URI uri, Map<String, String> extraHeaders, String post, String type) throws IOException {
-        byte[] bytes = post.getBytes(StandardCharsets.UTF_8);
+    private static <T> T readResponse(HttpResponse response, Class<T> responseType, ResponseReader reader) throws IOException, RequestException {
+        if(response.getStatusCode() == 429) {
+            throw new TooManyRequestsException(reader.readErrorMessage("Too many requests to '" + response.getUri() + "'."), response.getRetryAfter());
+        } else if(response.getStatusCode() >= 500) {
+            throw new ServiceUnavailableException(reader.readErrorMessage("Server error " + response.getStatusCode() + " from '" + response.getUri() + "'."));
+        }
+
+        JsonToken token;
+        try {
+            token = reader.peek();
+        } catch(EOFException e) {
+            return null;
+        }
 
-        HttpURLConnection connection = createUrlConnection(proxy, uri);
-        connection.setRequestProperty("Content-Type", type + "; charset=utf-8");
-        connection.setRequestProperty("Content-Length", String.valueOf(bytes.length));
-        for (Map.Entry<String, String> header : extraHeaders.entrySet()) {
-            connection.setRequestProperty(header.getKey(), header.getValue());
+        T result = null;
+        boolean unexpectedObject = token == JsonToken.BEGIN_OBJECT && (responseType == null || responseType.isArray());
+        try {
+            if(unexpectedObject) {
+                reader.skipObject();
+            } else if(responseType != null) {
+                result = GSON.fromJson(reader, responseType);
+            }
+        } catch(JsonParseException e) {
+            // Error responses may not fit the response type; report the error they carry if one was read.
+            reader.checkForError();
+            throw e;
         }
-        connection.setDoInput(true);
-        connection.setDoOutput(true);
 
-        try(OutputStream out = connection.getOutputStream()) {
-            out.write(bytes);
+        reader.checkForError();
+        if(unexpectedObject && responseType != null) {
+            throw new JsonSyntaxException("Expected " + responseType.getSimpleName() + " but received an object.");
         }
 
-        return processResponse(connection);
+        return result;
     }
 
-    public static HttpURLConnection createUrlConnection(Proxy proxy, URI uri) throws IOException {
-        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection(proxy);
-        connection.setConnectTimeout(15000);
-        connection.setReadTimeout(15000);
-        connection.setUseCaches(false);
-        return connection;
+    private static HttpTransport createDefaultTransport() {
+        try {
+            // Only present in the Java 11 layer of the multi-release JAR.
+            return (HttpTransport) Class.forName(JDK_TRANSPORT_CLASS).getConstructor().newInstance();
+        } catch(ReflectiveOperationException | LinkageError e) {
+            return new UrlConnectionTransport();
+        }
     }
 
-    private static JsonElement processResponse(HttpURLConnection connection) throws IOException {
-        try(InputStream in = connection.getResponseCode() == 200 ? connection.getInputStream() : connection.getErrorStream()) {
-            return in != null ? GSON.fromJson(new InputStreamReader(in), JsonElement.class) : null;
+    /**
+     * Reader that decodes a UTF-8 body straight from its stream.
+     * Each thread keeps one instance, so the decoder and its byte buffer are reused across responses instead of being
+     * allocated for every response as an InputStreamReader would.
+     */
+    private static class BodyReader extends Reader {
+        private static final int BUFFER_SIZE = 8192;
+        private static final ThreadLocal<BodyReader> CURRENT = new ThreadLocal<BodyReader>() {
+            @Override
+            protected BodyReader initialValue() {
+                return new BodyReader();
+            }
+        };
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        private final char[] pair = new char[2];
+
+        private InputStream in;
+        private boolean endOfInput;
+        private boolean flushed;
+        private boolean hasLeftover;
+        private char leftover;
+
+        public static BodyReader open(InputStream in) {
+            BodyReader reader = CURRENT.get();
+            if(reader.in != null) {
+                // Already decoding another body on this thread.
+                reader = new BodyReader();
+            }
+
+            reader.in = in;
+            reader.endOfInput = false;
+            reader.flushed = false;
+            reader.hasLeftover = false;
+            reader.decoder.reset();
+            // Buffer casts keep the Java 8 signatures when built on a newer JDK.
+            ((Buffer) reader.bytes).clear();
+            ((Buffer) reader.bytes).flip();
+            return reader;
+        }
+
+        /**
+         * Detaches the reader from its stream so the thread can reuse it. The stream is closed with its response.
+         */
+        public void release() {
+            this.in = null;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if(this.in == null) {
+                throw new IOException("Reader has been released.");
+            } else if(length == 0) {
+                return 0;
+            }
+
+            int read = 0;
+            if(this.hasLeftover) {
+                this.hasLeftover = false;
+                buffer[offset] = this.leftover;
+                if(length == 1) {
+                    return 1;
+                }
+
+                read = 1;
+            }
+
+            if(length - read == 1) {
+                // The decoder cannot split a surrogate pair, so decode into a buffer that fits one and keep the rest.
+                int decoded = this.decode(this.pair, 0, 2);
+                if(decoded <= 0) {
+                    return read > 0 ? read : -1;
+                }
+
+                buffer[offset + read] = this.pair[0];
+                if(decoded == 2) {
+                    this.leftover = this.pair[1];
+                    this.hasLeftover = true;
+                }
+
+                return read + 1;
+            }
+
+            int decoded = this.decode(buffer, offset + read, length - read);
+            return decoded > 0 ? read + decoded : (read > 0 ? read : -1);
+        }
+
+        private int decode(char[] buffer, int offset, int length) throws IOException {
+            CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+            while(true) {
+                if(!this.flushed) {
+                    CoderResult result = this.decoder.decode(this.bytes, out, this.endOfInput);
+                    if(this.endOfInput && result.isUnderflow()) {
+                        this.flushed = this.decoder.flush(out).isUnderflow();
+                    }
+                }
+
+                int decoded = out.position() - offset;
+                if(decoded > 0 || this.flushed) {
+                    return decoded;
+                }
+
+                this.bytes.compact();
+                int read = this.in.read(this.bytes.array(), this.bytes.position(), this.bytes.remaining());
+                if(read == -1) {
+                    this.endOfInput = true;
+                } else {
+                    ((Buffer) this.bytes).position(this.bytes.position() + read);
+                }
+
+                ((Buffer) this.bytes).flip();
+            }
+        }
+
+        @Override
+        public void close() {
+            this.release();
+        }
+    }
+
+    /**
+     * Reader that captures the top-level error fields of a response while it is being decoded.
+     */
+    private static class ResponseReader extends JsonReader {
+        private int depth;
+        private String pendingField;
+
+        private String error;
+        private String cause;
+        private String errorMessage;
+        private String errorDescription;
+
+        protected ResponseReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            super.beginObject();
+            this.depth++;
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            super.endObject();
+            this.depth--;
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            super.beginArray();
+            this.depth++;
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            super.endArray();
+            this.depth--;
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            String name = super.nextName();
+            this.pendingField = this.depth == 1 ? name : null;
+            return name;
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            String value = super.nextString();
+            this.capture(value);
+            return value;
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            JsonToken token = this.peek();
+            if(this.pendingField != null && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                this.nextString();
+            } else {
+                this.pendingField = null;
+                super.skipValue();
+            }
+        }
+
+        public void skipObject() throws IOException {
+            this.beginObject();
+            while(this.hasNext()) {
+                this.nextName();
+                this.skipValue();
+            }
+
+            this.endObject();
+        }
+
+        public String readErrorMessage(String defaultMessage) {
+            try {
+                if(this.peek() == JsonToken.BEGIN_OBJECT) {
+                    this.skipObject();
+                }
+            } catch(IOException | RuntimeException ignored) {
+                // Rate limit and server error responses are not guaranteed to carry a JSON body.
+            }
+
+            return this.errorMessage != null ? this.errorMessage : defaultMessage;
+        }
+
+        public void checkForError() throws RequestException {
+            HTTP.checkForError(this.error, this.cause, this.errorMessage, this.errorDescription);
+        }
+
+        private void capture(String value) {
+            String field = this.pendingField;
+            this.pendingField = null;
+            if(field == null || this.depth != 1) {
+                return;
+            }
+
+            switch(field) {
+                case "error":
+                    this.error = value;
+                    break;
+                case "cause":
+                    this.cause = value;
+                    break;
+                case "errorMessage":
+                    this.errorMessage = value;
+                    break;
+                case "error_description":
+                    this.errorDescription = value;
+                    break;
+            }
         }
     }
 }
@@ -0,0 +1,405 @@
+package com.github.steveice10.mc.auth.util;
+
+import com.github.steveice10.mc.auth.cache.Cache;
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.github.steveice10.mc.auth.exception.property.SignatureValidateException;
+import com.github.steveice10.mc.auth.metrics.MetricsRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Verifies the signatures of profile properties against a public key.
+ * Each thread keeps its own {@link Signature} initialized with the key, so verifying does not look up
+ * a signature implementation or parse the key again. Property values and signatures that were verified
+ * successfully are remembered by their digest, so verifying the same property again skips the RSA operation.
+ */
+public class SignatureVerifier {
+    /**
+     * Default number of verified digests remembered by a verifier.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    private static final String ALGORITHM = "SHA1withRSA";
+    private static final String OPERATION_NAME = "signature_verification";
+    // Properties are verified in batches of this size per fork-join task.
+    private static final int BATCH_THRESHOLD = 8;
+    private static final int MAX_SHARED_VERIFIERS = 16;
+
+    private static final SignatureVerifier DEFAULT;
+    private static final Map<PublicKey, SignatureVerifier> SHARED = new LinkedHashMap<PublicKey, SignatureVerifier>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PublicKey, SignatureVerifier> eldest) {
+            return this.size() > MAX_SHARED_VERIFIERS;
+        }
+    };
+
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch(NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 digest not supported.", e);
+            }
+        }
+    };
+
+    static {
+        try(InputStream in = SignatureVerifier.class.getResourceAsStream("/yggdrasil_session_pubkey.der")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            byte[] buffer = new byte[4096];
+            int length = -1;
+            while((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+            }
+
+            out.close();
+
+            DEFAULT = new SignatureVerifier(KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(out.toByteArray())));
+        } catch(Exception e) {
+            throw new ExceptionInInitializerError("Missing/invalid yggdrasil public key.");
+        }
+    }
+
+    private final PublicKey key;
+    private final ThreadLocal<Signature> signature = new ThreadLocal<>();
+    private final LinkedHashMap<DigestKey, Boolean> verified = new LinkedHashMap<>(16, 0.75f, true);
+
+    private volatile int cacheSize = DEFAULT_CACHE_SIZE;
+    private long verifyCount;
+    private long cacheHitCount;
+
+    /**
+     * Creates a new SignatureVerifier instance.
+     *
+     * @param key Public key to verify signatures against.
+     * @throws IllegalArgumentException If the key is null.
+     */
+    public SignatureVerifier(PublicKey key) {
+        if(key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+
+        this.key = key;
+    }
+
+    /**
+     * Gets the verifier for signatures made by the Yggdrasil session server, such as those of profile textures.
+     *
+     * @return The default verifier.
+     */
+    public static SignatureVerifier getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets a verifier for a key that is shared with other callers asking for the same key.
+     * The default verifier is returned for the Yggdrasil key, and verifiers for the most recently used other keys
+     * are kept, so their per-thread signatures and verified digests are reused.
+     *
+     * @param key Public key to verify signatures against.
+     * @return A verifier for the key.
+     * @throws IllegalArgumentException If the key is null.
+     */
+    public static SignatureVerifier forKey(PublicKey key) {
+        if(key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        } else if(key.equals(DEFAULT.key)) {
+            return DEFAULT;
+        }
+
+        synchronized(SHARED) {
+            SignatureVerifier verifier = SHARED.get(key);
+            if(verifier == null) {
+                verifier = new SignatureVerifier(key);
+                SHARED.put(key, verifier);
+            }
+
+            return verifier;
+        }
+    }
+
+    /**
+     * Gets the public key signatures are verified against.
+     *
+     * @return The verifier's key.
+     */
+    public PublicKey getKey() {
+        return this.key;
+    }
+
+    /**
+     * Gets the number of verified digests remembered by the verifier.
+     *
+     * @return The cache size.
+     */
+    public int getCacheSize() {
+        return this.cacheSize;
+    }
+
+    /**
+     * Sets the number of verified digests remembered by the verifier.
+     * The least recently used digests are forgotten first.
+     *
+     * @param cacheSize Cache size, or 0 to always verify signatures.
+     * @throws IllegalArgumentException If the cache size is negative.
+     */
+    public synchronized void setCacheSize(int cacheSize) {
+        if(cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative.");
+        }
+
+        this.cacheSize = cacheSize;
+        this.trim();
+    }
+
+    /**
+     * Gets the number of signatures verified with an RSA operation.
+     *
+     * @return The number of verifications.
+     */
+    public synchronized long getVerifyCount() {
+        return this.verifyCount;
+    }
+
+    /**
+     * Gets the number of signatures found valid in the cache of verified digests.
+     *
+     * @return The number of cache hits.
+     */
+    public synchronized long getCacheHitCount() {
+        return this.cacheHitCount;
+    }
+
+    /**
+     * Forgets all verified digests.
+     */
+    public synchronized void clearCache() {
+        this.verified.clear();
+    }
+
+    /**
+     * Gets whether a property's signature is valid.
+     *
+     * @param property Property to verify.
+     * @return Whether the property is signed and its signature is valid.
+     * @throws SignatureValidateException If the signature could not be validated.
+     */
+    public boolean verify(GameProfile.Property property) throws SignatureValidateException {
+        if(property == null) {
+            throw new IllegalArgumentException("Property cannot be null.");
+        }
+
+        return property.hasSignature() && property.getValue() != null && this.verify(property.getValue(), property.getSignature());
+    }
+
+    /**
+     * Gets whether a signature of a value is valid.
+     *
+     * @param value     Value that was signed.
+     * @param signature Base64-encoded signature of the value.
+     * @return Whether the signature is valid.
+     * @throws SignatureValidateException If the signature could not be validated.
+     */
+    public boolean verify(String value, String signature) throws SignatureValidateException {
+        if(value == null) {
+            throw new IllegalArgumentException("Value cannot be null.");
+        }
+
+        if(signature == null) {
+            throw new IllegalArgumentException("Signature cannot be null.");
+        }
+
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] signatureBytes = signature.getBytes(StandardCharsets.UTF_8);
+
+        DigestKey digest = this.cacheSize > 0 ? digest(valueBytes, signatureBytes) : null;
+        if(digest != null) {
+            boolean cached;
+            synchronized(this) {
+                cached = this.verified.get(digest) != null;
+                if(cached) {
+                    this.cacheHitCount++;
+                }
+            }
+
+            // Digest cache lookups are counted apart from the verifications themselves.
+            MetricsRegistry.getDefault().count(OPERATION_NAME, cached ? Cache.HIT : Cache.MISS);
+            if(cached) {
+                return true;
+            }
+        }
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        long start = metrics.start(OPERATION_NAME);
+        boolean valid;
+        try {
+            valid = this.verify(valueBytes, Base64.decode(signatureBytes));
+        } catch(GeneralSecurityException | RuntimeException e) {
+            SignatureValidateException error = new SignatureValidateException("Could not validate property signature.", e);
+            metrics.end(OPERATION_NAME, start, error);
+            throw error;
+        }
+
+        metrics.end(OPERATION_NAME, start, null);
+        synchronized(this) {
+            this.verifyCount++;
+            // Only valid signatures are remembered, so tampered properties cannot push out genuine ones.
+            if(valid && digest != null) {
+                this.verified.put(digest, Boolean.TRUE);
+                this.trim();
+            }
+        }
+
+        return valid;
+    }
+
+    /**
+     * Verifies the signatures of many properties in parallel on the common fork-join pool.
+     *
+     * @param properties Properties to verify.
+     * @return Whether each property is signed and its signature is valid, in the order of the given properties.
+     *         Properties whose signature could not be validated are reported as invalid.
+     */
+    public boolean[] verifyAll(List<GameProfile.Property> properties) {
+        return this.verifyAll(properties, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Verifies the signatures of many properties in parallel.
+     *
+     * @param properties Properties to verify.
+     * @param pool       Pool to verify the properties on.
+     * @return Whether each property is signed and its signature is valid, in the order of the given properties.
+     *         Properties whose signature could not be validated are reported as invalid.
+     */
+    public boolean[] verifyAll(List<GameProfile.Property> properties, ForkJoinPool pool) {
+        if(properties == null) {
+            throw new IllegalArgumentException("Properties cannot be null.");
+        }
+
+        if(pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null.");
+        }
+
+        boolean[] results = new boolean[properties.size()];
+        if(results.length <= BATCH_THRESHOLD) {
+            this.verifyRange(properties, results, 0, results.length);
+        } else {
+            pool.invoke(new VerifyTask(properties, results, 0, results.length));
+        }
+
+        return results;
+    }
+
+    private void verifyRange(List<GameProfile.Property> properties, boolean[] results, int from, int to) {
+        for(int i = from; i < to; i++) {
+            GameProfile.Property property = properties.get(i);
+            try {
+                results[i] = property != null && this.verify(property);
+            } catch(SignatureValidateException e) {
+                results[i] = false;
+            }
+        }
+    }
+
+    private boolean verify(byte[] value, byte[] signature) throws GeneralSecurityException {
+        Signature sig = this.signature.get();
+        if(sig == null) {
+            sig = Signature.getInstance(ALGORITHM);
+            sig.initVerify(this.key);
+            this.signature.set(sig);
+        }
+
+        try {
+            sig.update(value);
+            return sig.verify(signature);
+        } catch(GeneralSecurityException | RuntimeException e) {
+            // The signature may be left mid-operation, so the next verification starts over with a fresh one.
+            this.signature.remove();
+            throw e;
+        }
+    }
+
+    private void trim() {
+        while(this.verified.size() > this.cacheSize) {
+            this.verified.remove(this.verified.keySet().iterator().next());
+        }
+    }
+
+    private static DigestKey digest(byte[] value, byte[] signature) {
+        MessageDigest digest = DIGEST.get();
+        digest.update(value);
+        // Neither base64 value contains a zero byte, so the separator keeps the pair unambiguous.
+        digest.update((byte) 0);
+        return new DigestKey(digest.digest(signature));
+    }
+
+    @Override
+    public String toString() {
+        return "SignatureVerifier{key=" + this.key.getAlgorithm() + ", cacheSize=" + this.getCacheSize() + "}";
+    }
+
+    private static class DigestKey {
+        private final byte[] digest;
+        private final int hashCode;
+
+        private DigestKey(byte[] digest) {
+            this.digest = digest;
+            this.hashCode = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof DigestKey && Arrays.equals(this.digest, ((DigestKey) o).digest));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    private class VerifyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<GameProfile.Property> properties;
+        private final boolean[] results;
+        private final int from;
+        private final int to;
+
+        private VerifyTask(List<GameProfile.Property> properties, boolean[] results, int from, int to) {
+            this.properties = properties;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.to - this.from <= BATCH_THRESHOLD) {
+                verifyRange(this.properties, this.results, this.from, this.to);
+                return;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new VerifyTask(this.properties, this.results, this.from, middle), new VerifyTask(this.properties, this.results, middle, this.to));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.steveice10.mc.auth.util;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Factory for a type that is bound through hand-written streaming code in the direction the library uses it.
+ * Subclasses override {@link #read(JsonReader, TypeAdapter)}, {@link #write(JsonWriter, Object, TypeAdapter)} or both;
+ * a direction that is not overridden falls back to Gson's reflective adapter, so the type still converts both ways.
+ * Can be attached to a type with {@link com.google.gson.annotations.JsonAdapter} or registered on a GsonBuilder.
+ *
+ * @param <T> Type the factory binds.
+ */
+public abstract class StreamingTypeAdapterFactory<T> implements TypeAdapterFactory {
+    private final Class<T> type;
+
+    /**
+     * Creates a new StreamingTypeAdapterFactory instance.
+     *
+     * @param type Type the factory binds.
+     */
+    protected StreamingTypeAdapterFactory(Class<T> type) {
+        if(type == null) {
+            throw new IllegalArgumentException("Type cannot be null.");
+        }
+
+        this.type = type;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> typeToken) {
+        if(typeToken.getRawType() != this.type) {
+            return null;
+        }
+
+        final TypeAdapter<T> fallback = gson.getDelegateAdapter(this, TypeToken.get(this.type));
+        return (TypeAdapter<R>) new TypeAdapter<T>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                if(value == null) {
+                    out.nullValue();
+                } else {
+                    StreamingTypeAdapterFactory.this.write(out, value, fallback);
+                }
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                if(in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+
+                return StreamingTypeAdapterFactory.this.read(in, fallback);
+            }
+        };
+    }
+
+    /**
+     * Writes a non-null value. By default the value is written by the fallback adapter.
+     *
+     * @param out      Writer to write the value to.
+     * @param value    Value to write.
+     * @param fallback Gson's reflective adapter for the type.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected void write(JsonWriter out, T value, TypeAdapter<T> fallback) throws IOException {
+        fallback.write(out, value);
+    }
+
+    /**
+     * Reads a non-null value. By default the value is read by the fallback adapter.
+     *
+     * @param in       Reader to read the value from.
+     * @param fallback Gson's reflective adapter for the type.
+     * @return The value read.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected T read(JsonReader in, TypeAdapter<T> fallback) throws IOException {
+        return fallback.read(in);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.steveice10.mc.auth.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utilities for creating the threads the library runs blocking work on.
+ * On Java 21 and newer, the multi-release JAR replaces this class with one whose executors use virtual threads.
+ */
+public class ThreadUtil {
+    private ThreadUtil() {
+    }
+
+    /**
+     * Gets whether executors created by this class run their tasks on virtual threads.
+     *
+     * @return Whether virtual threads are used.
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * Creates an unstarted, non-daemon platform thread.
+     *
+     * @param runnable Task to run on the thread.
+     * @param name     Name of the thread.
+     * @return The created thread.
+     */
+    public static Thread newThread(Runnable runnable, String name) {
+        return new Thread(runnable, name);
+    }
+
+    /**
+     * Creates an executor for blocking tasks whose threads do not keep the JVM alive.
+     *
+     * @param prefix Prefix of the names of the executor's threads.
+     * @return The created executor.
+     */
+    public static ExecutorService newExecutor(final String prefix) {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix + this.count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
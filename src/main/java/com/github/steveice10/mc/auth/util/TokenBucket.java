@@ -0,0 +1,123 @@
+package com.github.steveice10.mc.auth.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket used to pace requests to a fixed rate with bursts.
+ * Permits are reserved ahead of time, so callers can either sleep or schedule their work for the returned delay.
+ */
+public class TokenBucket {
+    private double permitsPerSecond;
+    private double maxPermits;
+    private double storedPermits;
+    private long nextFreeTicket;
+
+    /**
+     * Creates a new TokenBucket instance.
+     *
+     * @param permitsPerSecond Rate at which permits become available, or {@link Double#POSITIVE_INFINITY} for no limit.
+     * @param burst            Maximum number of permits that can be stored for bursts.
+     * @throws IllegalArgumentException If the rate is not positive or the burst is negative.
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.nextFreeTicket = System.nanoTime();
+        this.setRate(permitsPerSecond, burst);
+        this.storedPermits = this.maxPermits;
+    }
+
+    /**
+     * Gets the rate at which permits become available.
+     *
+     * @return The number of permits per second.
+     */
+    public synchronized double getRate() {
+        return this.permitsPerSecond;
+    }
+
+    /**
+     * Sets the rate at which permits become available.
+     *
+     * @param permitsPerSecond Rate at which permits become available, or {@link Double#POSITIVE_INFINITY} for no limit.
+     * @param burst            Maximum number of permits that can be stored for bursts.
+     * @throws IllegalArgumentException If the rate is not positive or the burst is negative.
+     */
+    public synchronized void setRate(double permitsPerSecond, int burst) {
+        if(!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Permits per second must be positive.");
+        } else if(burst < 0) {
+            throw new IllegalArgumentException("Burst cannot be negative.");
+        }
+
+        this.refill(System.nanoTime());
+        this.permitsPerSecond = permitsPerSecond;
+        this.maxPermits = burst;
+        this.storedPermits = Math.min(this.storedPermits, this.maxPermits);
+    }
+
+    /**
+     * Reserves a permit.
+     *
+     * @return The time in nanoseconds the caller must wait before using the permit.
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        this.refill(now);
+
+        long wait = Math.max(0, this.nextFreeTicket - now);
+        if(!Double.isInfinite(this.permitsPerSecond)) {
+            double stored = Math.min(1, this.storedPermits);
+            this.storedPermits -= stored;
+            this.nextFreeTicket = Math.max(this.nextFreeTicket, now) + (long) ((1 - stored) * TimeUnit.SECONDS.toNanos(1) / this.permitsPerSecond);
+        }
+
+        return wait;
+    }
+
+    /**
+     * Reserves a permit only if it can be used immediately.
+     *
+     * @return Whether a permit was acquired.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        this.refill(now);
+        if(this.nextFreeTicket > now || (!Double.isInfinite(this.permitsPerSecond) && this.storedPermits < 1)) {
+            return false;
+        }
+
+        this.reserve();
+        return true;
+    }
+
+    /**
+     * Holds back all permits for the given amount of time, for example when the upstream asks callers to back off.
+     *
+     * @param delay Time to hold back permits for.
+     * @param unit  Unit of the delay.
+     */
+    public synchronized void pause(long delay, TimeUnit unit) {
+        long now = System.nanoTime();
+        this.refill(now);
+
+        long until = now + unit.toNanos(delay);
+        if(until > this.nextFreeTicket) {
+            this.nextFreeTicket = until;
+            this.storedPermits = 0;
+        }
+    }
+
+    private void refill(long now) {
+        if(now > this.nextFreeTicket) {
+            if(!Double.isInfinite(this.permitsPerSecond)) {
+                this.storedPermits = Math.min(this.maxPermits, this.storedPermits + (now - this.nextFreeTicket) * this.permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            }
+
+            this.nextFreeTicket = now;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenBucket{permitsPerSecond=" + this.permitsPerSecond + ", maxPermits=" + this.maxPermits + ", storedPermits=" + this.storedPermits + "}";
+    }
+}
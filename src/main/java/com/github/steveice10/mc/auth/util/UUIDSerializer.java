@@ -5,12 +5,22 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.UUID;
 
 /**
  * Utility class for serializing and deserializing UUIDs.
+ * UUIDs are written as 32 lowercase hex digits without dashes. Both that form and the dashed form are read.
  */
 public class UUIDSerializer extends TypeAdapter<UUID> {
+    /**
+     * Length of a UUID written without dashes.
+     */
+    public static final int LENGTH = 32;
+
+    private static final int DASHED_LENGTH = 36;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     @Override
     public void write(JsonWriter out, UUID value) throws IOException {
         out.value(fromUUID(value));
@@ -32,7 +42,32 @@ public class UUIDSerializer extends TypeAdapter<UUID> {
             return "";
         }
 
-        return value.toString().replace("-", "");
+        char[] chars = new char[LENGTH];
+        toChars(value, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Writes a UUID as 32 lowercase hex digits into a char array.
+     *
+     * @param value       UUID to write.
+     * @param destination Char array to write to.
+     * @param offset      Offset in the destination to start writing at.
+     * @return The number of chars written.
+     * @throws IllegalArgumentException If the UUID is null or the destination does not have room for it.
+     */
+    public static int toChars(UUID value, char[] destination, int offset) {
+        if(value == null) {
+            throw new IllegalArgumentException("UUID cannot be null.");
+        }
+
+        if(destination == null || offset < 0 || offset > destination.length - LENGTH) {
+            throw new IllegalArgumentException("Destination cannot hold a UUID at offset " + offset + ".");
+        }
+
+        writeHex(value.getMostSignificantBits(), destination, offset);
+        writeHex(value.getLeastSignificantBits(), destination, offset + 16);
+        return LENGTH;
     }
 
     /**
@@ -40,12 +75,96 @@ public class UUIDSerializer extends TypeAdapter<UUID> {
      *
      * @param value String to convert.
      * @return The resulting UUID.
+     * @throws IllegalArgumentException If the String is not a valid UUID.
      */
     public static UUID fromString(String value) {
         if(value == null || value.equals("")) {
             return null;
         }
 
-        return UUID.fromString(value.replaceFirst("(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})", "$1-$2-$3-$4-$5"));
+        return fromString(value, 0, value.length());
+    }
+
+    /**
+     * Converts part of a String or other character sequence to a UUID.
+     *
+     * @param value  Characters to convert.
+     * @param offset Offset of the UUID in the characters.
+     * @param length Length of the UUID, either 32 for a UUID without dashes or 36 for one with dashes.
+     * @return The resulting UUID.
+     * @throws IllegalArgumentException If the characters are not a valid UUID.
+     */
+    public static UUID fromString(CharSequence value, int offset, int length) {
+        if(value == null || offset < 0 || length < 0 || offset > value.length() - length) {
+            throw new IllegalArgumentException("Invalid UUID range of " + length + " characters at offset " + offset + ".");
+        }
+
+        if(length == LENGTH) {
+            long most = parseHex(value, offset, 16);
+            long least = parseHex(value, offset + 16, 16);
+            return new UUID(most, least);
+        } else if(length == DASHED_LENGTH) {
+            checkDash(value, offset + 8);
+            checkDash(value, offset + 13);
+            checkDash(value, offset + 18);
+            checkDash(value, offset + 23);
+            long most = parseHex(value, offset, 8) << 32 | parseHex(value, offset + 9, 4) << 16 | parseHex(value, offset + 14, 4);
+            long least = parseHex(value, offset + 19, 4) << 48 | parseHex(value, offset + 24, 12);
+            return new UUID(most, least);
+        }
+
+        // Unusual forms, such as dashed UUIDs with leading zeroes left out, are left to the JDK.
+        return UUID.fromString(value.subSequence(offset, offset + length).toString());
+    }
+
+    /**
+     * Converts part of a char array to a UUID.
+     *
+     * @param value  Chars to convert.
+     * @param offset Offset of the UUID in the chars.
+     * @param length Length of the UUID, either 32 for a UUID without dashes or 36 for one with dashes.
+     * @return The resulting UUID.
+     * @throws IllegalArgumentException If the chars are not a valid UUID.
+     */
+    public static UUID fromChars(char[] value, int offset, int length) {
+        if(value == null) {
+            throw new IllegalArgumentException("Value cannot be null.");
+        }
+
+        return fromString(CharBuffer.wrap(value), offset, length);
+    }
+
+    private static void writeHex(long bits, char[] destination, int offset) {
+        for(int i = 15; i >= 0; i--) {
+            destination[offset + i] = HEX_DIGITS[(int) bits & 0xF];
+            bits >>>= 4;
+        }
+    }
+
+    private static long parseHex(CharSequence value, int offset, int length) {
+        long result = 0;
+        for(int i = offset; i < offset + length; i++) {
+            char c = value.charAt(i);
+            int digit;
+            if(c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if(c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if(c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                throw new IllegalArgumentException("Invalid UUID character '" + c + "' at position " + i + ".");
+            }
+
+            result = result << 4 | digit;
+        }
+
+        return result;
+    }
+
+    private static void checkDash(CharSequence value, int index) {
+        if(value.charAt(index) != '-') {
+            throw new IllegalArgumentException("Expected '-' in UUID at position " + index + ".");
+        }
     }
 }
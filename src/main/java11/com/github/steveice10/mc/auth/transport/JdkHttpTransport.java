@@ -0,0 +1,273 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.HTTP;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transport backed by the JDK's {@link HttpClient}.
+ * Connections are pooled per proxy and multiplexed over HTTP/2 when the server supports it.
+ * The number of exchanges in flight at once is bounded, which in turn bounds the number of pooled HTTP/1.1 connections.
+ * Asynchronous requests are fully non-blocking: they neither park a thread while waiting for a connection nor while
+ * waiting for the response.
+ * SOCKS proxies are not supported by {@link HttpClient}; requests made through them fall back to {@link UrlConnectionTransport}.
+ */
+public class JdkHttpTransport implements HttpTransport {
+    /**
+     * Default maximum number of exchanges in flight at once.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+    private static final Duration TIMEOUT = Duration.ofMillis(15000);
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.add("Connection");
+        RESTRICTED_HEADERS.add("Content-Length");
+        RESTRICTED_HEADERS.add("Expect");
+        RESTRICTED_HEADERS.add("Host");
+        RESTRICTED_HEADERS.add("Upgrade");
+    }
+
+    private final Map<Proxy, HttpClient> clients = new ConcurrentHashMap<>();
+    private final ConnectionLimiter limiter;
+    private final HttpTransport fallback = new UrlConnectionTransport();
+
+    /**
+     * Creates a new JdkHttpTransport instance with the default maximum number of connections.
+     */
+    public JdkHttpTransport() {
+        this(DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Creates a new JdkHttpTransport instance.
+     *
+     * @param maxConnections Maximum number of exchanges in flight at once.
+     * @throws IllegalArgumentException If the maximum number of connections is not positive.
+     */
+    public JdkHttpTransport(int maxConnections) {
+        if(maxConnections <= 0) {
+            throw new IllegalArgumentException("Max connections must be positive.");
+        }
+
+        this.limiter = new ConnectionLimiter(maxConnections);
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if(request.getProxy().type() == Proxy.Type.SOCKS) {
+            return this.fallback.execute(request);
+        }
+
+        HttpClient client = this.clients.computeIfAbsent(request.getProxy(), JdkHttpTransport::createClient);
+        java.net.http.HttpRequest jdkRequest = toJdkRequest(request);
+        try {
+            this.limiter.acquire();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to '" + request.getUri() + "'.");
+        }
+
+        try {
+            java.net.http.HttpResponse<InputStream> response = client.send(jdkRequest, java.net.http.HttpResponse.BodyHandlers.ofInputStream());
+            return new HttpResponse(response.statusCode(), response.uri(), response.headers().map(), new PermitReleasingInputStream(response.body(), this.limiter));
+        } catch(InterruptedException e) {
+            this.limiter.release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while making request to '" + request.getUri() + "'.");
+        } catch(HttpTimeoutException e) {
+            this.limiter.release();
+            throw toSocketTimeout(e);
+        } catch(IOException | RuntimeException e) {
+            this.limiter.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+        if(request.getProxy().type() == Proxy.Type.SOCKS) {
+            return this.fallback.executeAsync(request, executor);
+        }
+
+        final HttpClient client = this.clients.computeIfAbsent(request.getProxy(), JdkHttpTransport::createClient);
+        final java.net.http.HttpRequest jdkRequest;
+        try {
+            jdkRequest = toJdkRequest(request);
+        } catch(RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // The whole body is received before completing so that no thread blocks reading it.
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        CompletableFuture<Void> permit = this.limiter.acquireAsync();
+        permit.thenRun(() -> {
+            if(future.isDone()) {
+                this.limiter.release();
+                return;
+            }
+
+            CompletableFuture<java.net.http.HttpResponse<byte[]>> exchange;
+            try {
+                exchange = client.sendAsync(jdkRequest, java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+            } catch(RuntimeException e) {
+                this.limiter.release();
+                future.completeExceptionally(e);
+                return;
+            }
+
+            exchange.whenComplete((response, error) -> {
+                this.limiter.release();
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if(cause instanceof HttpTimeoutException) {
+                    future.completeExceptionally(toSocketTimeout((HttpTimeoutException) cause));
+                } else if(error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(new HttpResponse(response.statusCode(), response.uri(), response.headers().map(), new ByteArrayInputStream(response.body())));
+                }
+            });
+
+            // Cancelling the returned future aborts the exchange on runtimes that support it.
+            future.whenComplete((response, error) -> {
+                if(future.isCancelled()) {
+                    exchange.cancel(true);
+                }
+            });
+        });
+
+        // A cancelled waiter hands its permit on once it becomes available.
+        future.whenComplete((response, error) -> {
+            if(future.isCancelled()) {
+                permit.cancel(false);
+            }
+        });
+
+        return future;
+    }
+
+    private static java.net.http.HttpRequest toJdkRequest(HttpRequest request) {
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(request.getUri()).timeout(Duration.ofMillis(request.getTimeout(TimeUnit.MILLISECONDS)));
+        for(Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if(!RESTRICTED_HEADERS.contains(header.getKey())) {
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+
+        byte[] body = request.getBody();
+        return builder.method(request.getMethod(), body != null ? java.net.http.HttpRequest.BodyPublishers.ofByteArray(body) : java.net.http.HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private static SocketTimeoutException toSocketTimeout(HttpTimeoutException e) {
+        // Lets callers recognize timeouts the same way regardless of the transport in use.
+        SocketTimeoutException timeout = e instanceof HttpConnectTimeoutException ? new ConnectTimeoutException(e.getMessage()) : new SocketTimeoutException(e.getMessage());
+        timeout.initCause(e);
+        return timeout;
+    }
+
+    private static HttpClient createClient(Proxy proxy) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(TIMEOUT)
+                .sslContext(HTTP.getSslContext());
+        if(proxy.type() == Proxy.Type.HTTP && proxy.address() instanceof InetSocketAddress) {
+            builder.proxy(ProxySelector.of((InetSocketAddress) proxy.address()));
+        } else {
+            builder.proxy(HttpClient.Builder.NO_PROXY);
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return "JdkHttpTransport{availableConnections=" + this.limiter.permits.availablePermits() + "}";
+    }
+
+    private static class ConnectionLimiter {
+        private final Semaphore permits;
+        private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+        protected ConnectionLimiter(int permits) {
+            this.permits = new Semaphore(permits, true);
+        }
+
+        public void acquire() throws InterruptedException {
+            this.permits.acquire();
+        }
+
+        public CompletableFuture<Void> acquireAsync() {
+            if(this.permits.tryAcquire()) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            this.waiters.add(waiter);
+            // A permit may have been released between the failed attempt and queueing.
+            this.handOff();
+            return waiter;
+        }
+
+        public void release() {
+            this.permits.release();
+            this.handOff();
+        }
+
+        private void handOff() {
+            while(!this.waiters.isEmpty() && this.permits.tryAcquire()) {
+                CompletableFuture<Void> waiter = this.waiters.poll();
+                if(waiter == null || !waiter.complete(null)) {
+                    // Nobody to hand the permit to, or the waiter was cancelled.
+                    this.permits.release();
+                }
+            }
+        }
+    }
+
+    private static class PermitReleasingInputStream extends FilterInputStream {
+        private final ConnectionLimiter limiter;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        protected PermitReleasingInputStream(InputStream in, ConnectionLimiter limiter) {
+            super(in);
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if(this.released.compareAndSet(false, true)) {
+                    this.limiter.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.steveice10.mc.auth.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Utilities for creating the threads the library runs blocking work on.
+ * This is the Java 21 version of the class, whose executors run blocking work on virtual threads.
+ * Single threads are still platform threads: virtual threads are always daemon threads, so a lookup started on one
+ * would no longer keep the JVM alive until it finishes.
+ */
+public class ThreadUtil {
+    private ThreadUtil() {
+    }
+
+    /**
+     * Gets whether executors created by this class run their tasks on virtual threads.
+     *
+     * @return Whether virtual threads are used.
+     */
+    public static boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     * Creates an unstarted, non-daemon platform thread.
+     *
+     * @param runnable Task to run on the thread.
+     * @param name     Name of the thread.
+     * @return The created thread.
+     */
+    public static Thread newThread(Runnable runnable, String name) {
+        return new Thread(runnable, name);
+    }
+
+    /**
+     * Creates an executor for blocking tasks whose threads do not keep the JVM alive.
+     *
+     * @param prefix Prefix of the names of the executor's threads.
+     * @return The created executor.
+     */
+    public static ExecutorService newExecutor(String prefix) {
+        // Virtual threads are cheap enough to create one per task instead of pooling them.
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory());
+    }
+}
@@ -0,0 +1,308 @@
+package com.github.steveice10.mc.auth.cache;
+
+import com.github.steveice10.mc.auth.exception.request.ServiceUnavailableException;
+import com.github.steveice10.mc.auth.metrics.EndpointMetrics;
+import com.github.steveice10.mc.auth.metrics.MetricsRegistry;
+import com.github.steveice10.mc.auth.metrics.PrometheusExporter;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CacheTest {
+    private static final Weigher<String, String> LENGTH_WEIGHER = new Weigher<String, String>() {
+        @Override
+        public long getWeight(String key, String value) {
+            return value.length();
+        }
+    };
+
+    @Test
+    public void testEntriesExpireAfterTtl() throws Exception {
+        Cache<String, String> cache = new Cache<>(50, TimeUnit.MILLISECONDS);
+        cache.put("a", "1");
+        assertEquals("1", cache.getIfPresent("a"));
+
+        Thread.sleep(100);
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getStats().getExpirationCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBySize() {
+        Cache<String, String> cache = new Cache<>(1, TimeUnit.HOURS);
+        cache.setMaximumSize(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        // Reading "a" makes "b" the least recently used entry.
+        assertEquals("1", cache.getIfPresent("a"));
+        cache.put("c", "3");
+
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("3", cache.getIfPresent("c"));
+        assertEquals(1, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedByWeight() {
+        Cache<String, String> cache = new Cache<>(1, TimeUnit.HOURS);
+        cache.setMaximumWeight(10, LENGTH_WEIGHER);
+        cache.put("a", "1234");
+        cache.put("b", "1234");
+        assertEquals(8, cache.getWeight());
+
+        assertEquals("1234", cache.getIfPresent("a"));
+        cache.put("c", "12345");
+
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("1234", cache.getIfPresent("a"));
+        assertEquals(9, cache.getWeight());
+
+        // An entry heavier than the whole cache evicts everything, itself included.
+        cache.put("d", "12345678901");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        Cache<String, String> cache = new Cache<>(1, TimeUnit.HOURS);
+        PendingLoader loader = new PendingLoader();
+
+        CompletableFuture<String> first = cache.get("a", loader);
+        CompletableFuture<String> second = cache.get("a", loader);
+        assertEquals(1, loader.calls.get());
+        assertFalse(first.isDone());
+
+        // Each caller gets its own future, so cancelling one leaves the other waiting on the load.
+        second.cancel(true);
+        loader.complete("a", "1");
+        assertEquals("1", first.get(10, TimeUnit.SECONDS));
+        assertEquals("1", cache.get("a", loader).get(10, TimeUnit.SECONDS));
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, cache.getStats().getLoadSuccessCount());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() throws Exception {
+        Cache<String, String> cache = new Cache<>(1, TimeUnit.HOURS);
+        PendingLoader loader = new PendingLoader();
+
+        CompletableFuture<String> future = cache.get("a", loader);
+        IllegalStateException error = new IllegalStateException("Load failed.");
+        loader.fail("a", error);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected the load to fail.");
+        } catch(ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+
+        assertEquals(0, cache.size());
+        cache.get("a", loader);
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    public void testInvalidateDuringLoad() throws Exception {
+        Cache<String, String> cache = new Cache<>(1, TimeUnit.HOURS);
+        PendingLoader loader = new PendingLoader();
+
+        CompletableFuture<String> future = cache.get("a", loader);
+        cache.invalidate("a");
+
+        // A lookup after the invalidation starts a load of its own instead of joining the dropped one.
+        CompletableFuture<String> next = cache.get("a", loader);
+        assertEquals(2, loader.calls.get());
+
+        loader.complete("a", "old");
+        assertEquals("old", future.get(10, TimeUnit.SECONDS));
+        assertFalse(next.isDone());
+        assertNull(cache.getIfPresent("a"));
+
+        loader.complete("a", "new");
+        assertEquals("new", next.get(10, TimeUnit.SECONDS));
+        assertEquals("new", cache.getIfPresent("a"));
+    }
+
+    @Test
+    public void testPerEntryTtlDoesNotFollowSetTtl() throws Exception {
+        Cache<String, String> cache = new Cache<>(1, TimeUnit.HOURS);
+        cache.put("short", "1", 50, TimeUnit.MILLISECONDS);
+        cache.put("long", "2", 1, TimeUnit.HOURS);
+        cache.put("default", "3");
+
+        // Entries put without a time to live follow the cache's, the others keep their own.
+        cache.setTtl(50, TimeUnit.MILLISECONDS);
+        Thread.sleep(100);
+
+        assertNull(cache.getIfPresent("short"));
+        assertEquals("2", cache.getIfPresent("long"));
+        assertNull(cache.getIfPresent("default"));
+    }
+
+    @Test
+    public void testWeigherFailureFailsLoad() throws Exception {
+        Cache<String, String> cache = new Cache<>(1, TimeUnit.HOURS);
+        cache.setMaximumWeight(100, new Weigher<String, String>() {
+            @Override
+            public long getWeight(String key, String value) {
+                return value.isEmpty() ? -1 : value.length();
+            }
+        });
+
+        PendingLoader loader = new PendingLoader();
+        CompletableFuture<String> first = cache.get("a", loader);
+        CompletableFuture<String> second = cache.get("a", loader);
+        loader.complete("a", "");
+        for(CompletableFuture<String> future : Arrays.asList(first, second)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Expected the weigher's error.");
+            } catch(ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getStats().getLoadFailureCount());
+    }
+
+    @Test
+    public void testStaleHitStartsOneRefresh() throws Exception {
+        Cache<String, String> cache = new Cache<>(50, TimeUnit.MILLISECONDS);
+        cache.setMaxStaleness(1, TimeUnit.HOURS);
+        cache.put("a", "1");
+        Thread.sleep(100);
+
+        // Stale values are served right away while a single refresh runs in the background.
+        PendingLoader loader = new PendingLoader();
+        CompletableFuture<String> first = cache.get("a", loader);
+        CompletableFuture<String> second = cache.get("a", loader);
+        assertTrue(first.isDone());
+        assertEquals("1", first.get());
+        assertEquals("1", second.get());
+        assertEquals(1, loader.calls.get());
+        assertEquals(2, cache.getStats().getStaleHitCount());
+
+        loader.complete("a", "2");
+        assertEquals("2", cache.getIfPresent("a"));
+    }
+
+    @Test
+    public void testFailedRefreshWaitsForRetryDelay() throws Exception {
+        Cache<String, String> cache = new Cache<>(50, TimeUnit.MILLISECONDS);
+        cache.setMaxStaleness(1, TimeUnit.HOURS);
+        cache.setRefreshRetryDelay(200, TimeUnit.MILLISECONDS);
+        cache.put("a", "1");
+        Thread.sleep(100);
+
+        PendingLoader loader = new PendingLoader();
+        assertEquals("1", cache.get("a", loader).get());
+        loader.fail("a", new ServiceUnavailableException("Refresh failed."));
+
+        assertEquals("1", cache.get("a", loader).get());
+        assertEquals(1, loader.calls.get());
+
+        Thread.sleep(300);
+        assertEquals("1", cache.get("a", loader).get());
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    public void testUnavailableRefreshKeepsEntryUntilMaxStaleness() throws Exception {
+        Cache<String, String> cache = new Cache<>(50, TimeUnit.MILLISECONDS);
+        cache.setMaxStaleness(200, TimeUnit.MILLISECONDS);
+        cache.put("a", "1");
+        Thread.sleep(100);
+
+        PendingLoader loader = new PendingLoader();
+        assertEquals("1", cache.get("a", loader).get());
+        loader.fail("a", new ServiceUnavailableException("Refresh failed."));
+        assertEquals(1, cache.size());
+
+        // Past the time to live plus the max staleness the entry is gone, and a lookup waits on a fresh load.
+        Thread.sleep(250);
+        assertFalse(cache.get("a", loader).isDone());
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    public void testOtherRefreshFailureRemovesEntry() throws Exception {
+        Cache<String, String> cache = new Cache<>(50, TimeUnit.MILLISECONDS);
+        cache.setMaxStaleness(1, TimeUnit.HOURS);
+        cache.put("a", "1");
+        Thread.sleep(100);
+
+        PendingLoader loader = new PendingLoader();
+        assertEquals("1", cache.get("a", loader).get());
+        loader.fail("a", new IllegalStateException("Refresh failed."));
+
+        assertEquals(0, cache.size());
+        assertFalse(cache.get("a", loader).isDone());
+        assertEquals(2, loader.calls.get());
+    }
+
+    @Test
+    public void testLookupsAreNotCountedAsRequests() throws Exception {
+        String name = "cache-test-lookups";
+        Cache<String, String> cache = new Cache<>(1, TimeUnit.HOURS);
+        cache.setMetricsName(name);
+        cache.put("a", "1");
+        cache.getIfPresent("a");
+        cache.getIfPresent("b");
+
+        EndpointMetrics metrics = MetricsRegistry.getDefault().getEndpoint(name);
+        assertEquals(1, metrics.getLookupCount(Cache.HIT));
+        assertEquals(1, metrics.getLookupCount(Cache.MISS));
+        assertTrue(metrics.getOutcomes().isEmpty());
+
+        String exported = PrometheusExporter.export(MetricsRegistry.getDefault());
+        assertTrue(exported.contains("mcauthlib_cache_lookups_total{cache=\"" + name + "\",outcome=\"hit\"} 1\n"));
+        assertFalse(exported.contains("endpoint=\"" + name + "\""));
+    }
+
+    /**
+     * Loader whose loads complete when the test completes them, in the order they were started.
+     */
+    private static class PendingLoader implements Function<String, CompletableFuture<String>> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Map<String, Queue<CompletableFuture<String>>> pending = new ConcurrentHashMap<>();
+
+        @Override
+        public CompletableFuture<String> apply(String key) {
+            this.calls.incrementAndGet();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            this.pending.putIfAbsent(key, new ConcurrentLinkedQueue<CompletableFuture<String>>());
+            this.pending.get(key).add(future);
+            return future;
+        }
+
+        private void complete(String key, String value) {
+            this.pending.get(key).remove().complete(value);
+        }
+
+        private void fail(String key, Throwable error) {
+            this.pending.get(key).remove().completeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.github.steveice10.mc.auth.service;
+
+import com.github.steveice10.mc.auth.cache.Cache;
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.github.steveice10.mc.auth.exception.profile.ProfileNotFoundException;
+import com.github.steveice10.mc.auth.exception.request.RequestException;
+import com.github.steveice10.mc.auth.transport.HttpRequest;
+import com.github.steveice10.mc.auth.transport.HttpResponse;
+import com.github.steveice10.mc.auth.transport.HttpTransport;
+import com.github.steveice10.mc.auth.util.AdaptiveRateController;
+import com.github.steveice10.mc.auth.util.AsyncUtil;
+import com.github.steveice10.mc.auth.util.UUIDSerializer;
+import com.google.gson.Gson;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProfileServiceTest {
+    @Test
+    public void testInterruptStopsLookup() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final ProfileService service = new ProfileService();
+        service.setTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) {
+                calls.incrementAndGet();
+                return new HttpResponse(503, request.getUri(), Collections.<String, List<String>>emptyMap(), new ByteArrayInputStream(new byte[0]));
+            }
+        });
+
+        AdaptiveRateController controller = new AdaptiveRateController();
+        controller.setRetryDelay(10, 10, TimeUnit.SECONDS);
+        service.setRateController(controller);
+
+        final String[] names = names(150);
+        final Map<String, Exception> failures = new ConcurrentHashMap<>();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                service.findProfilesByName(names, new ProfileService.ProfileLookupCallback() {
+                    @Override
+                    public void onProfileLookupSucceeded(GameProfile profile) {
+                    }
+
+                    @Override
+                    public void onProfileLookupFailed(GameProfile profile, Exception e) {
+                        failures.put(profile.getName(), e);
+                    }
+                });
+
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+
+        thread.start();
+        while(calls.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        // The first request failed and the lookup is waiting out its back-off.
+        Thread.sleep(50);
+        thread.interrupt();
+        thread.join(10000);
+
+        assertTrue(interrupted.get());
+        assertEquals(1, calls.get());
+        assertEquals(names.length, failures.size());
+        for(Exception e : failures.values()) {
+            assertTrue(e instanceof RequestException);
+        }
+    }
+
+    @Test
+    public void testPipelinedLookupReportsInRequestOrder() throws Exception {
+        // The first request is the slowest and the second fails once, so responses arrive out of order.
+        LookupTransport transport = new LookupTransport(150, 0, 75, 0);
+        transport.unavailable.add(1);
+        ProfileService service = createService(transport);
+        service.setConcurrency(4);
+
+        String[] names = names(350);
+        RecordingCallback callback = new RecordingCallback();
+        ProfileService.ProfileLookupResult result = service.findProfilesByNameAsync(names, callback).get(10, TimeUnit.SECONDS);
+
+        assertEquals(names.length, callback.reported.size());
+        assertEquals(names.length, new HashSet<String>(callback.reported).size());
+        assertFalse(callback.overlapped);
+        for(int i = 1; i < callback.reported.size(); i++) {
+            assertTrue(requestIndex(callback.reported.get(i - 1)) <= requestIndex(callback.reported.get(i)));
+        }
+
+        assertEquals(35, callback.failures.size());
+        for(Map.Entry<String, Exception> failure : callback.failures.entrySet()) {
+            assertEquals(9, index(failure.getKey()) % 10);
+            assertTrue(failure.getValue() instanceof ProfileNotFoundException);
+        }
+
+        assertEquals(350, result.getNameCount());
+        assertEquals(0, result.getCachedCount());
+        assertEquals(315, result.getFoundCount());
+        assertEquals(35, result.getFailedCount());
+        assertEquals(4, result.getRequestCount());
+        assertEquals(1, result.getRetryCount());
+        assertEquals(5, transport.calls.get());
+    }
+
+    @Test
+    public void testThrowingCallbackStopsLookup() throws Exception {
+        LookupTransport transport = new LookupTransport();
+        ProfileService service = createService(transport);
+        service.setConcurrency(1);
+
+        final IllegalStateException error = new IllegalStateException("Callback failed.");
+        CompletableFuture<ProfileService.ProfileLookupResult> future = service.findProfilesByNameAsync(names(500), new RecordingCallback() {
+            @Override
+            public void onProfileLookupSucceeded(GameProfile profile) {
+                throw error;
+            }
+        });
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected the callback's error.");
+        } catch(ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+
+        Thread.sleep(100);
+        assertEquals(1, transport.calls.get());
+    }
+
+    @Test
+    public void testRepeatLookupIsAnsweredFromCache() throws Exception {
+        LookupTransport transport = new LookupTransport();
+        ProfileService service = createService(transport);
+        service.setProfileNameCache(new Cache<String, GameProfile>(1, TimeUnit.HOURS));
+
+        service.findProfilesByNameAsync(new String[] {"Name1", "name2", "NAME9"}, new RecordingCallback()).get(10, TimeUnit.SECONDS);
+        assertEquals(1, transport.calls.get());
+
+        // Names are cached in lowercase, so a lookup with other casing makes no requests at all.
+        RecordingCallback callback = new RecordingCallback();
+        ProfileService.ProfileLookupResult result = service.findProfilesByNameAsync(new String[] {"nAME1", "NAME2", "name9"}, callback).get(10, TimeUnit.SECONDS);
+        assertEquals(1, transport.calls.get());
+        assertEquals(3, result.getCachedCount());
+        assertEquals(2, result.getFoundCount());
+        assertEquals(0, result.getRequestCount());
+        assertEquals(Arrays.asList("name1", "name2", "name9"), callback.reported);
+    }
+
+    @Test
+    public void testNotFoundNamesExpireAfterNotFoundTtl() throws Exception {
+        LookupTransport transport = new LookupTransport();
+        ProfileService service = createService(transport);
+        service.setProfileNameCache(new Cache<String, GameProfile>(1, TimeUnit.HOURS));
+        service.setNotFoundTtl(100, TimeUnit.MILLISECONDS);
+
+        service.findProfilesByNameAsync(new String[] {"name9"}, new RecordingCallback()).get(10, TimeUnit.SECONDS);
+        RecordingCallback callback = new RecordingCallback();
+        ProfileService.ProfileLookupResult result = service.findProfilesByNameAsync(new String[] {"name9"}, callback).get(10, TimeUnit.SECONDS);
+        assertEquals(1, transport.calls.get());
+        assertEquals(1, result.getCachedCount());
+        assertEquals(1, result.getFailedCount());
+        assertTrue(callback.failures.get("name9") instanceof ProfileNotFoundException);
+
+        Thread.sleep(150);
+        result = service.findProfilesByNameAsync(new String[] {"name9"}, new RecordingCallback()).get(10, TimeUnit.SECONDS);
+        assertEquals(2, transport.calls.get());
+        assertEquals(0, result.getCachedCount());
+    }
+
+    @Test
+    public void testZeroNotFoundTtlDisablesNegativeCaching() throws Exception {
+        LookupTransport transport = new LookupTransport();
+        ProfileService service = createService(transport);
+        service.setProfileNameCache(new Cache<String, GameProfile>(1, TimeUnit.HOURS));
+        service.setNotFoundTtl(0, TimeUnit.MILLISECONDS);
+
+        service.findProfilesByNameAsync(new String[] {"name1", "name9"}, new RecordingCallback()).get(10, TimeUnit.SECONDS);
+        ProfileService.ProfileLookupResult result = service.findProfilesByNameAsync(new String[] {"name1", "name9"}, new RecordingCallback()).get(10, TimeUnit.SECONDS);
+        assertEquals(2, transport.calls.get());
+        assertEquals(1, result.getCachedCount());
+        assertEquals(1, result.getFailedCount());
+        assertEquals(1, service.getProfileNameCache().size());
+    }
+
+    private static ProfileService createService(HttpTransport transport) {
+        AdaptiveRateController controller = new AdaptiveRateController();
+        controller.setRetryDelay(10, 10, TimeUnit.MILLISECONDS);
+
+        ProfileService service = new ProfileService();
+        service.setTransport(transport);
+        service.setRateController(controller);
+        return service;
+    }
+
+    private static String[] names(int count) {
+        String[] names = new String[count];
+        for(int i = 0; i < count; i++) {
+            names[i] = "name" + i;
+        }
+
+        return names;
+    }
+
+    private static int index(String name) {
+        return Integer.parseInt(name.substring("name".length()));
+    }
+
+    private static int requestIndex(String name) {
+        return index(name) / 100;
+    }
+
+    /**
+     * Transport answering profile lookups, where every tenth name is not found.
+     */
+    private static class LookupTransport implements HttpTransport {
+        private final long[] latencies;
+        private final AtomicInteger calls = new AtomicInteger();
+        // Requests, by index, that fail with a 503 the first time they are made.
+        private final Set<Integer> unavailable = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+        private LookupTransport(long... latencies) {
+            this.latencies = latencies;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            this.calls.incrementAndGet();
+            String[] names = new Gson().fromJson(new String(request.getBody(), StandardCharsets.UTF_8), String[].class);
+            if(this.unavailable.remove(requestIndex(names[0]))) {
+                return new HttpResponse(503, request.getUri(), Collections.<String, List<String>>emptyMap(), new ByteArrayInputStream(new byte[0]));
+            }
+
+            StringBuilder body = new StringBuilder("[");
+            for(String name : names) {
+                int index = index(name);
+                if(index % 10 != 9) {
+                    if(body.length() > 1) {
+                        body.append(',');
+                    }
+
+                    body.append("{\"id\":\"").append(UUIDSerializer.fromUUID(new UUID(0, index))).append("\",\"name\":\"").append(name).append("\"}");
+                }
+            }
+
+            body.append(']');
+            return new HttpResponse(200, request.getUri(), Collections.<String, List<String>>emptyMap(), new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public CompletableFuture<HttpResponse> executeAsync(final HttpRequest request, Executor executor) {
+            String[] names = new Gson().fromJson(new String(request.getBody(), StandardCharsets.UTF_8), String[].class);
+            int requestIndex = requestIndex(names[0]);
+            long latency = requestIndex < this.latencies.length ? this.latencies[requestIndex] : 0;
+            return AsyncUtil.delay(latency, TimeUnit.MILLISECONDS).thenApply(new Function<Void, HttpResponse>() {
+                @Override
+                public HttpResponse apply(Void ignored) {
+                    return execute(request);
+                }
+            });
+        }
+    }
+
+    /**
+     * Callback recording the names reported to it, and whether it was ever called while already running.
+     */
+    private static class RecordingCallback implements ProfileService.ProfileLookupCallback {
+        private final List<String> reported = Collections.synchronizedList(new ArrayList<String>());
+        private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile boolean overlapped;
+
+        @Override
+        public void onProfileLookupSucceeded(GameProfile profile) {
+            this.record(profile.getName());
+        }
+
+        @Override
+        public void onProfileLookupFailed(GameProfile profile, Exception e) {
+            this.failures.put(profile.getName(), e);
+            this.record(profile.getName());
+        }
+
+        private void record(String name) {
+            if(!this.running.compareAndSet(false, true)) {
+                this.overlapped = true;
+            }
+
+            try {
+                // Widen the window for another callback to overlap with this one.
+                Thread.yield();
+                this.reported.add(name);
+            } finally {
+                this.running.set(false);
+            }
+        }
+    }
+}
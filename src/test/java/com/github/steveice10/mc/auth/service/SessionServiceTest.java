@@ -0,0 +1,169 @@
+package com.github.steveice10.mc.auth.service;
+
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.github.steveice10.mc.auth.exception.profile.ProfileLookupException;
+import com.github.steveice10.mc.auth.transport.HttpRequest;
+import com.github.steveice10.mc.auth.transport.HttpResponse;
+import com.github.steveice10.mc.auth.transport.HttpTransport;
+import com.github.steveice10.mc.auth.util.UUIDSerializer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionServiceTest {
+    @Test
+    public void testBulkFillIsBoundedByParallelism() throws Exception {
+        PendingTransport transport = new PendingTransport();
+        SessionService service = new SessionService();
+        service.setTransport(transport);
+        service.setBulkParallelism(2);
+
+        List<UUID> ids = ids(6);
+        List<CompletableFuture<GameProfile>> results = service.fillProfilePropertiesByIdAsync(ids, null);
+        assertEquals(ids.size(), results.size());
+        assertEquals(2, transport.calls.get());
+
+        // Each profile completes as soon as its own lookup does, whatever order the lookups finish in.
+        int[] order = {1, 0, 3, 2, 5, 4};
+        for(int i = 0; i < order.length; i++) {
+            int index = order[i];
+            transport.respond(ids.get(index), 200, "{\"id\":\"" + UUIDSerializer.fromUUID(ids.get(index)) + "\",\"name\":\"name" + index + "\",\"properties\":[{\"name\":\"textures\",\"value\":\"value" + index + "\"}]}");
+
+            GameProfile profile = results.get(index).get(10, TimeUnit.SECONDS);
+            assertEquals(ids.get(index), profile.getId());
+            assertEquals("value" + index, profile.getProperty("textures").getValue());
+            for(int j = i + 1; j < order.length; j++) {
+                assertFalse(results.get(order[j]).isDone());
+            }
+        }
+
+        assertEquals(6, transport.calls.get());
+        assertEquals(2, transport.maxActive.get());
+    }
+
+    @Test
+    public void testCallbackFillReportsEachProfileAsItCompletes() throws Exception {
+        PendingTransport transport = new PendingTransport();
+        SessionService service = new SessionService();
+        service.setTransport(transport);
+        service.setBulkParallelism(3);
+
+        List<UUID> ids = ids(3);
+        List<GameProfile> profiles = new ArrayList<>();
+        for(UUID id : ids) {
+            profiles.add(new GameProfile(id, "name"));
+        }
+
+        final List<UUID> reported = Collections.synchronizedList(new ArrayList<UUID>());
+        final Map<UUID, Exception> failures = new ConcurrentHashMap<>();
+        CompletableFuture<Void> done = service.fillProfilePropertiesAsync(profiles, new ProfileService.ProfileLookupCallback() {
+            @Override
+            public void onProfileLookupSucceeded(GameProfile profile) {
+                reported.add(profile.getId());
+            }
+
+            @Override
+            public void onProfileLookupFailed(GameProfile profile, Exception e) {
+                failures.put(profile.getId(), e);
+                reported.add(profile.getId());
+            }
+        });
+
+        assertEquals(3, transport.calls.get());
+        transport.respond(ids.get(2), 200, "{\"id\":\"" + UUIDSerializer.fromUUID(ids.get(2)) + "\",\"name\":\"name\",\"properties\":[]}");
+        waitForReports(reported, 1);
+        transport.respond(ids.get(0), 500, "");
+        waitForReports(reported, 2);
+        assertFalse(done.isDone());
+
+        transport.respond(ids.get(1), 200, "{\"id\":\"" + UUIDSerializer.fromUUID(ids.get(1)) + "\",\"name\":\"name\",\"properties\":[]}");
+        done.get(10, TimeUnit.SECONDS);
+
+        assertEquals(ids.get(2), reported.get(0));
+        assertEquals(ids.get(0), reported.get(1));
+        assertEquals(ids.get(1), reported.get(2));
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(ids.get(0)) instanceof ProfileLookupException);
+    }
+
+    private static List<UUID> ids(int count) {
+        List<UUID> ids = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            ids.add(new UUID(0, i + 1));
+        }
+
+        return ids;
+    }
+
+    private static void waitForReports(List<UUID> reported, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while(reported.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(count, reported.size());
+    }
+
+    /**
+     * Transport whose asynchronous requests stay pending until the test responds to them.
+     */
+    private static class PendingTransport implements HttpTransport {
+        private final Map<UUID, CompletableFuture<HttpResponse>> pending = new ConcurrentHashMap<>();
+        private final Map<UUID, HttpRequest> requests = new ConcurrentHashMap<>();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            throw new IOException("Only asynchronous requests are expected.");
+        }
+
+        @Override
+        public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+            this.calls.incrementAndGet();
+            int active = this.active.incrementAndGet();
+            while(true) {
+                int max = this.maxActive.get();
+                if(active <= max || this.maxActive.compareAndSet(max, active)) {
+                    break;
+                }
+            }
+
+            String path = request.getUri().getPath();
+            UUID id = UUIDSerializer.fromString(path.substring(path.lastIndexOf('/') + 1));
+            CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+            this.pending.put(id, future);
+            this.requests.put(id, request);
+            return future;
+        }
+
+        private void respond(UUID id, int status, String body) throws InterruptedException {
+            // The next lookup is started after the previous profile's future completes, so it may not be pending yet.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while(!this.pending.containsKey(id) && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+
+            this.active.decrementAndGet();
+            HttpRequest request = this.requests.remove(id);
+            this.pending.remove(id).complete(new HttpResponse(status, request.getUri(), Collections.<String, List<String>>emptyMap(), new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+        }
+    }
+}
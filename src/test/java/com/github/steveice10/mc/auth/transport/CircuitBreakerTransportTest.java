@@ -0,0 +1,66 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.util.CircuitBreaker;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTransportTest {
+    @Test
+    public void testCancelledHedgeLoserIsIgnored() throws Exception {
+        final CompletableFuture<HttpResponse> primary = new CompletableFuture<>();
+        final List<CompletableFuture<HttpResponse>> attempts = new CopyOnWriteArrayList<>();
+        CircuitBreakerTransport breakers = new CircuitBreakerTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                throw new IOException("Not used.");
+            }
+
+            @Override
+            public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+                // The primary request hangs until the test completes it; the hedge is answered right away.
+                CompletableFuture<HttpResponse> attempt = attempts.isEmpty() ? primary : CompletableFuture.completedFuture(new HttpResponse(200, request.getUri(), null, null));
+                attempts.add(attempt);
+                return attempt;
+            }
+        });
+
+        HedgingTransport hedging = new HedgingTransport(breakers);
+        hedging.setBudget(1);
+        hedging.setInitialDelay(1, TimeUnit.MILLISECONDS);
+
+        HttpRequest request = new HttpRequest("GET", URI.create("https://example.com/profile"));
+        request.setProxy(Proxy.NO_PROXY);
+        request.setEndpoint("profile");
+
+        hedging.executeAsync(request, null).get(10, TimeUnit.SECONDS).close();
+        assertEquals(2, attempts.size());
+        assertEquals(1, hedging.getHedgeWinCount());
+
+        // The loser is cancelled by the thread that completed the hedge, which may still be running.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while(!primary.isDone() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        // The loser's cancellation reaches the delegate, so a late response can no longer be recorded.
+        assertTrue(primary.isCancelled());
+        assertFalse(primary.complete(new HttpResponse(200, request.getUri(), null, null)));
+
+        CircuitBreaker breaker = breakers.getBreakers().get("profile");
+        assertEquals(1, breaker.getSuccessCount());
+        assertEquals(0, breaker.getFailureCount());
+        assertEquals(1, breaker.getIgnoredCount());
+    }
+}
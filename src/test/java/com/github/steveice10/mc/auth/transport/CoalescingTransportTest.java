@@ -0,0 +1,113 @@
+package com.github.steveice10.mc.auth.transport;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CoalescingTransportTest {
+    @Test
+    public void testWaitersKeepLeaderExceptionType() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CoalescingTransport transport = new CoalescingTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                throw new SocketTimeoutException("Read timed out");
+            }
+        });
+
+        final HttpRequest request = new HttpRequest("GET", URI.create("https://example.com/"));
+        request.setProxy(Proxy.NO_PROXY);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<Throwable> call = new Callable<Throwable>() {
+                @Override
+                public Throwable call() {
+                    try {
+                        transport.execute(request).close();
+                        return null;
+                    } catch(IOException e) {
+                        return e;
+                    }
+                }
+            };
+
+            Future<Throwable> leader = executor.submit(call);
+            while(transport.getInFlightCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            Future<Throwable> waiter = executor.submit(call);
+            while(transport.getCollapsedCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            release.countDown();
+            assertTrue(leader.get(10, TimeUnit.SECONDS) instanceof SocketTimeoutException);
+            assertTrue(waiter.get(10, TimeUnit.SECONDS) instanceof SocketTimeoutException);
+            assertEquals(2, transport.getRequestCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAsyncDelegateThrowDoesNotLeaveFlight() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        CoalescingTransport transport = new CoalescingTransport(new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                throw new IOException("Not used.");
+            }
+
+            @Override
+            public CompletableFuture<HttpResponse> executeAsync(HttpRequest request, Executor executor) {
+                if(calls.incrementAndGet() == 1) {
+                    throw new RejectedExecutionException("Executor shut down.");
+                }
+
+                return CompletableFuture.completedFuture(new HttpResponse(200, request.getUri(), null, null));
+            }
+        });
+
+        HttpRequest request = new HttpRequest("GET", URI.create("https://example.com/"));
+        request.setProxy(Proxy.NO_PROXY);
+
+        CompletableFuture<HttpResponse> failed = transport.executeAsync(request, null);
+        try {
+            failed.get(10, TimeUnit.SECONDS);
+            fail("Expected the delegate's exception.");
+        } catch(ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        assertEquals(0, transport.getInFlightCount());
+        transport.executeAsync(request, null).get(10, TimeUnit.SECONDS).close();
+        assertEquals(2, calls.get());
+        assertEquals(0, transport.getCollapsedCount());
+    }
+}
@@ -0,0 +1,257 @@
+package com.github.steveice10.mc.auth.transport;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FailoverTransportTest {
+    private static final URI BASE = URI.create("https://api.example.com/");
+    private static final List<URI> TARGETS = Arrays.asList(URI.create("https://a.example.com/"), URI.create("https://b.example.com/"));
+
+    @Test
+    public void testServerErrorFailsOverForGet() throws Exception {
+        StubTransport stub = new StubTransport();
+        stub.statuses.put("a.example.com", 503);
+        FailoverTransport transport = create(stub);
+
+        try(HttpResponse response = transport.execute(request("GET"))) {
+            assertEquals(200, response.getStatusCode());
+        }
+
+        assertEquals(1, stub.count("a.example.com"));
+        assertEquals(1, stub.count("b.example.com"));
+
+        stub = new StubTransport();
+        stub.statuses.put("a.example.com", 503);
+        transport = create(stub);
+        try(HttpResponse response = transport.executeAsync(request("GET"), null).get(10, TimeUnit.SECONDS)) {
+            assertEquals(200, response.getStatusCode());
+        }
+
+        assertEquals(1, stub.count("b.example.com"));
+    }
+
+    @Test
+    public void testServerErrorDoesNotFailOverForPost() throws Exception {
+        StubTransport stub = new StubTransport();
+        stub.statuses.put("a.example.com", 503);
+        FailoverTransport transport = create(stub);
+
+        try(HttpResponse response = transport.execute(request("POST"))) {
+            assertEquals(503, response.getStatusCode());
+        }
+
+        stub = new StubTransport();
+        stub.statuses.put("a.example.com", 503);
+        transport = create(stub);
+        try(HttpResponse response = transport.executeAsync(request("POST"), null).get(10, TimeUnit.SECONDS)) {
+            assertEquals(503, response.getStatusCode());
+        }
+
+        assertEquals(1, stub.count("a.example.com"));
+        assertEquals(0, stub.count("b.example.com"));
+    }
+
+    @Test
+    public void testConnectFailuresFailOver() throws Exception {
+        for(Failure failure : new Failure[] {Failure.CONNECT, Failure.CONNECT_TIMEOUT}) {
+            // Nothing reached the failed target, so even a POST moves on to the next one.
+            for(String method : new String[] {"GET", "POST"}) {
+                StubTransport stub = new StubTransport();
+                stub.failures.put("a.example.com", failure);
+                try(HttpResponse response = create(stub).execute(request(method))) {
+                    assertEquals(200, response.getStatusCode());
+                }
+
+                assertEquals(1, stub.count("b.example.com"));
+
+                stub = new StubTransport();
+                stub.failures.put("a.example.com", failure);
+                FailoverTransport transport = create(stub);
+                try(HttpResponse response = transport.executeAsync(request(method), null).get(10, TimeUnit.SECONDS)) {
+                    assertEquals(200, response.getStatusCode());
+                }
+
+                assertEquals(1, stub.count("b.example.com"));
+                assertEquals(1, transport.getFailoverCount());
+            }
+        }
+    }
+
+    @Test
+    public void testReadTimeoutDoesNotFailOver() throws Exception {
+        StubTransport stub = new StubTransport();
+        stub.failures.put("a.example.com", Failure.READ_TIMEOUT);
+        try {
+            create(stub).execute(request("GET")).close();
+            fail("Expected SocketTimeoutException.");
+        } catch(SocketTimeoutException e) {
+            assertFalse(e instanceof ConnectTimeoutException);
+        }
+
+        try {
+            create(stub).executeAsync(request("GET"), null).get(10, TimeUnit.SECONDS).close();
+            fail("Expected SocketTimeoutException.");
+        } catch(ExecutionException e) {
+            assertTrue(e.getCause() instanceof SocketTimeoutException);
+        }
+
+        assertEquals(0, stub.count("b.example.com"));
+    }
+
+    @Test
+    public void testDownTargetIsTriedLastUntilProbeRecoversIt() throws Exception {
+        StubTransport stub = new StubTransport();
+        stub.failures.put("a.example.com", Failure.CONNECT);
+        FailoverTransport transport = create(stub);
+
+        // Probing now also keeps requests from starting probes of their own during the test.
+        transport.probe().get(10, TimeUnit.SECONDS);
+        assertFalse(transport.getTargets(BASE).get(0).isHealthy());
+        assertTrue(transport.getTargets(BASE).get(1).isHealthy());
+
+        transport.execute(request("GET")).close();
+        assertEquals(0, stub.count("a.example.com"));
+        assertEquals(1, stub.count("b.example.com"));
+        assertEquals(0, transport.getFailoverCount());
+
+        stub.failures.remove("a.example.com");
+        transport.execute(request("GET")).close();
+        assertEquals(0, stub.count("a.example.com"));
+
+        transport.probe().get(10, TimeUnit.SECONDS);
+        assertTrue(transport.getTargets(BASE).get(0).isHealthy());
+
+        transport.execute(request("GET")).close();
+        assertEquals(1, stub.count("a.example.com"));
+        assertEquals(2, stub.count("b.example.com"));
+    }
+
+    @Test
+    public void testLatencyIsMovingAverage() throws Exception {
+        StubTransport stub = new StubTransport();
+        stub.delays.put("a.example.com", 40L);
+        FailoverTransport transport = create(stub);
+        FailoverTransport.Target target = transport.getTargets(BASE).get(0);
+
+        transport.probe().get(10, TimeUnit.SECONDS);
+        long first = target.getLatency(TimeUnit.MICROSECONDS);
+        assertTrue(first >= TimeUnit.MILLISECONDS.toMicros(40));
+
+        // A fast sample moves the average a fifth of the way towards it.
+        stub.delays.remove("a.example.com");
+        transport.probe().get(10, TimeUnit.SECONDS);
+        long second = target.getLatency(TimeUnit.MICROSECONDS);
+        assertTrue(second >= first * 8 / 10 - 1);
+        assertTrue(second <= first * 8 / 10 + TimeUnit.MILLISECONDS.toMicros(2));
+    }
+
+    @Test
+    public void testLatencySelectionPrefersFastTarget() throws Exception {
+        StubTransport stub = new StubTransport();
+        stub.delays.put("a.example.com", 20L);
+        FailoverTransport transport = create(stub);
+        transport.setSelection(FailoverTransport.Selection.LATENCY);
+        transport.probe().get(10, TimeUnit.SECONDS);
+
+        for(int i = 0; i < 100; i++) {
+            transport.execute(request("GET")).close();
+        }
+
+        // Scores are weight divided by latency, so the slow target is picked far less than the configured order would.
+        assertTrue(stub.count("b.example.com") >= 90);
+        assertEquals(100, stub.count("a.example.com") + stub.count("b.example.com"));
+    }
+
+    private static FailoverTransport create(HttpTransport delegate) {
+        FailoverTransport transport = new FailoverTransport(delegate);
+        transport.setTargets(BASE, TARGETS);
+        return transport;
+    }
+
+    private static HttpRequest request(String method) {
+        HttpRequest request = new HttpRequest(method, BASE.resolve("session/minecraft/join"));
+        request.setProxy(Proxy.NO_PROXY);
+        if(method.equals("POST")) {
+            request.setBody("application/json", "{}".getBytes());
+        }
+
+        return request;
+    }
+
+    private enum Failure {
+        CONNECT,
+        CONNECT_TIMEOUT,
+        READ_TIMEOUT;
+
+        private IOException create(String host) {
+            switch(this) {
+                case CONNECT:
+                    return new ConnectException("Connection refused: " + host);
+                case CONNECT_TIMEOUT:
+                    return new ConnectTimeoutException("Connect timed out: " + host);
+                default:
+                    return new SocketTimeoutException("Read timed out: " + host);
+            }
+        }
+    }
+
+    /**
+     * Answers requests per host with a configured failure, delay and status, 200 by default, counting requests
+     * other than probes.
+     */
+    private static class StubTransport implements HttpTransport {
+        private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+        private final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+        private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+        private final Map<String, Long> delays = new ConcurrentHashMap<>();
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            String host = request.getUri().getHost();
+            if(!request.getMethod().equals("HEAD")) {
+                this.counts.putIfAbsent(host, new AtomicInteger());
+                this.counts.get(host).incrementAndGet();
+            }
+
+            Long delay = this.delays.get(host);
+            if(delay != null) {
+                try {
+                    Thread.sleep(delay);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            Failure failure = this.failures.get(host);
+            if(failure != null) {
+                throw failure.create(host);
+            }
+
+            Integer status = this.statuses.get(host);
+            return new HttpResponse(status != null ? status : 200, request.getUri(), Collections.<String, List<String>>emptyMap(), null);
+        }
+
+        private int count(String host) {
+            AtomicInteger count = this.counts.get(host);
+            return count != null ? count.get() : 0;
+        }
+    }
+}
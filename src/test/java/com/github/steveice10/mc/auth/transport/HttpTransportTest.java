@@ -0,0 +1,294 @@
+package com.github.steveice10.mc.auth.transport;
+
+import com.github.steveice10.mc.auth.exception.request.InvalidCredentialsException;
+import com.github.steveice10.mc.auth.exception.request.ServiceUnavailableException;
+import com.github.steveice10.mc.auth.util.HTTP;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs every available transport against a local stub server.
+ */
+@RunWith(Parameterized.class)
+public class HttpTransportTest {
+    private static final String JDK_TRANSPORT_CLASS = "com.github.steveice10.mc.auth.transport.JdkHttpTransport";
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> transports() {
+        List<Object[]> transports = new ArrayList<>();
+        transports.add(new Object[] {new UrlConnectionTransport()});
+        try {
+            // Only on the class path when testing on Java 11 or newer.
+            transports.add(new Object[] {Class.forName(JDK_TRANSPORT_CLASS).getConstructor().newInstance()});
+        } catch(ReflectiveOperationException | LinkageError ignored) {
+        }
+
+        return transports;
+    }
+
+    private final HttpTransport transport;
+    private final AtomicReference<Exchange> lastExchange = new AtomicReference<>();
+
+    private final CountDownLatch received = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private volatile int status = 200;
+    private volatile String responseBody = "";
+
+    public HttpTransportTest(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                lastExchange.set(new Exchange(exchange.getRequestMethod(), exchange.getRequestURI(), exchange.getRequestHeaders().getFirst("Content-Type"), readFully(exchange.getRequestBody())));
+                if(exchange.getRequestURI().getPath().equals("/slow")) {
+                    received.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.getResponseHeaders().set("X-Stub", "yes");
+                exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+                try(OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        this.serverExecutor = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.serverExecutor);
+        this.server.start();
+    }
+
+    @After
+    public void stopServer() {
+        this.release.countDown();
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testGet() throws IOException {
+        this.responseBody = "{\"value\":\"hello\"}";
+
+        HttpRequest request = this.request("GET", "/session/minecraft/hasJoined?username=Steve");
+        try(HttpResponse response = this.transport.execute(request)) {
+            assertEquals(200, response.getStatusCode());
+            assertEquals("yes", response.getHeader("X-Stub"));
+            assertEquals(this.responseBody, new String(readFully(response.getBody()), StandardCharsets.UTF_8));
+        }
+
+        Exchange exchange = this.lastExchange.get();
+        assertEquals("GET", exchange.method);
+        assertEquals("/session/minecraft/hasJoined?username=Steve", exchange.uri.toString());
+    }
+
+    @Test
+    public void testPostBody() throws IOException {
+        this.status = 204;
+
+        HttpRequest request = this.request("POST", "/session/minecraft/join");
+        request.setBody("application/json", "{\"serverId\":\"abc\"}".getBytes(StandardCharsets.UTF_8));
+        try(HttpResponse response = this.transport.execute(request)) {
+            assertEquals(204, response.getStatusCode());
+        }
+
+        Exchange exchange = this.lastExchange.get();
+        assertEquals("POST", exchange.method);
+        assertEquals("application/json", exchange.contentType);
+        assertEquals("{\"serverId\":\"abc\"}", new String(exchange.body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testErrorBody() throws IOException {
+        this.status = 403;
+        this.responseBody = "{\"error\":\"ForbiddenOperationException\",\"errorMessage\":\"Invalid token.\"}";
+
+        try(HttpResponse response = this.transport.execute(this.request("GET", "/"))) {
+            assertEquals(403, response.getStatusCode());
+            assertNotNull(response.getBody());
+            assertEquals(this.responseBody, new String(readFully(response.getBody()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        this.responseBody = "[]";
+
+        try(HttpResponse response = this.transport.executeAsync(this.request("GET", "/profiles"), null).get(10, TimeUnit.SECONDS)) {
+            assertEquals(200, response.getStatusCode());
+            assertEquals("[]", new String(readFully(response.getBody()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testCancelAbortsRequest() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<HttpResponse> future = this.transport.executeAsync(this.request("GET", "/slow"), executor);
+            assertTrue(this.received.await(10, TimeUnit.SECONDS));
+            assertTrue(future.cancel(true));
+
+            // The worker is only free again once the request in progress has been aborted.
+            Future<?> next = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+
+            next.get(5, TimeUnit.SECONDS);
+            assertTrue(this.release.getCount() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConnectTimeout() throws Exception {
+        // Once the accept backlog of a server that never accepts is full, further connection attempts go unanswered.
+        List<Socket> backlog = new ArrayList<>();
+        try(ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            try {
+                while(backlog.size() < 16) {
+                    Socket socket = new Socket();
+                    backlog.add(socket);
+                    socket.connect(server.getLocalSocketAddress(), 200);
+                }
+
+                Assume.assumeTrue("Accept backlog never filled up.", false);
+            } catch(SocketTimeoutException expected) {
+            }
+
+            HttpRequest request = new HttpRequest("GET", URI.create("http://" + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort() + "/"));
+            request.setProxy(Proxy.NO_PROXY);
+            request.setTimeout(300, TimeUnit.MILLISECONDS);
+            try {
+                this.transport.execute(request).close();
+                fail("Expected ConnectTimeoutException.");
+            } catch(ConnectTimeoutException expected) {
+            }
+        } finally {
+            for(Socket socket : backlog) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void testMakeRequest() throws Exception {
+        this.responseBody = "{\"value\":\"hello\"}";
+
+        Response response = HTTP.makeRequest(this.transport, Proxy.NO_PROXY, this.uri("/"), Collections.singletonMap("name", "Steve"), Response.class);
+        assertEquals("hello", response.value);
+        assertEquals("{\"name\":\"Steve\"}", new String(this.lastExchange.get().body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMakeRequestErrors() throws Exception {
+        this.status = 403;
+        this.responseBody = "{\"error\":\"ForbiddenOperationException\",\"errorMessage\":\"Invalid token.\"}";
+        try {
+            HTTP.makeRequest(this.transport, Proxy.NO_PROXY, this.uri("/"), null, Response.class);
+            fail("Expected InvalidCredentialsException.");
+        } catch(InvalidCredentialsException e) {
+            assertEquals("Invalid token.", e.getMessage());
+        }
+
+        this.status = 503;
+        this.responseBody = "";
+        try {
+            HTTP.makeRequest(this.transport, Proxy.NO_PROXY, this.uri("/"), null, Response.class);
+            fail("Expected ServiceUnavailableException.");
+        } catch(ServiceUnavailableException expected) {
+        }
+    }
+
+    private HttpRequest request(String method, String path) {
+        HttpRequest request = new HttpRequest(method, this.uri(path));
+        request.setProxy(Proxy.NO_PROXY);
+        request.setTimeout(10, TimeUnit.SECONDS);
+        return request;
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort() + path);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if(in != null) {
+            byte[] buffer = new byte[4096];
+            int length;
+            while((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    private static class Response {
+        private String value;
+    }
+
+    private static class Exchange {
+        private final String method;
+        private final URI uri;
+        private final String contentType;
+        private final byte[] body;
+
+        private Exchange(String method, URI uri, String contentType, byte[] body) {
+            this.method = method;
+            this.uri = uri;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+}
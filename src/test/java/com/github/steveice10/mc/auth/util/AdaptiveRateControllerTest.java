@@ -0,0 +1,95 @@
+package com.github.steveice10.mc.auth.util;
+
+import com.github.steveice10.mc.auth.exception.request.RequestException;
+import com.github.steveice10.mc.auth.exception.request.TooManyRequestsException;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveRateControllerTest {
+    private static final RequestException FAILURE = new RequestException("Request failed.");
+
+    @Test
+    public void testRateStaysWithinBounds() {
+        AdaptiveRateController controller = new AdaptiveRateController(10);
+        controller.setRateBounds(1, 20);
+        controller.setRetryDelay(0, 0, TimeUnit.MILLISECONDS);
+
+        for(int i = 0; i < 1000; i++) {
+            controller.onSuccess();
+        }
+
+        assertEquals(20, controller.getRate(), 0);
+
+        // Without a base retry delay every failure cuts the rate, down to the minimum.
+        for(int i = 0; i < 100; i++) {
+            controller.onFailure(1, FAILURE);
+        }
+
+        assertEquals(1, controller.getRate(), 0);
+        assertEquals(1000, controller.getSuccessCount());
+        assertEquals(100, controller.getFailureCount());
+    }
+
+    @Test
+    public void testOneCutPerBaseRetryDelay() throws Exception {
+        AdaptiveRateController controller = new AdaptiveRateController(16);
+        controller.setRetryDelay(200, 1000, TimeUnit.MILLISECONDS);
+
+        controller.onFailure(1, FAILURE);
+        controller.onFailure(1, FAILURE);
+        controller.onFailure(2, FAILURE);
+        assertEquals(8, controller.getRate(), 0);
+
+        Thread.sleep(250);
+        controller.onFailure(1, FAILURE);
+        assertEquals(4, controller.getRate(), 0);
+    }
+
+    @Test
+    public void testRetryDelayIsJitteredAndCapped() {
+        AdaptiveRateController controller = new AdaptiveRateController();
+        controller.setRetryDelay(100, 400, TimeUnit.MILLISECONDS);
+        controller.setMaxAttempts(10);
+
+        // Equal jitter keeps each delay between half and all of the exponential delay, which stops growing at the max.
+        long[] ceilings = {100, 200, 400, 400, 400};
+        for(int attempt = 1; attempt <= ceilings.length; attempt++) {
+            long ceiling = TimeUnit.MILLISECONDS.toNanos(ceilings[attempt - 1]);
+            for(int i = 0; i < 100; i++) {
+                long delay = controller.onFailure(attempt, FAILURE);
+                assertTrue("Attempt " + attempt + " delay " + delay, delay >= ceiling / 2 && delay <= ceiling);
+            }
+        }
+    }
+
+    @Test
+    public void testMaxAttempts() {
+        AdaptiveRateController controller = new AdaptiveRateController();
+        controller.setRetryDelay(1, 1, TimeUnit.MILLISECONDS);
+        controller.setMaxAttempts(3);
+
+        assertTrue(controller.onFailure(1, FAILURE) >= 0);
+        assertTrue(controller.onFailure(2, FAILURE) >= 0);
+        assertEquals(-1, controller.onFailure(3, FAILURE));
+        assertEquals(-1, controller.onFailure(4, FAILURE));
+    }
+
+    @Test
+    public void testRetryAfterIsCappedAtMaxRetryDelay() {
+        AdaptiveRateController controller = new AdaptiveRateController();
+        controller.setRetryDelay(10, 100, TimeUnit.MILLISECONDS);
+
+        long max = TimeUnit.MILLISECONDS.toNanos(100);
+        long delay = controller.onFailure(1, new TooManyRequestsException("Too many requests.", TimeUnit.HOURS.toMillis(1)));
+        assertEquals(max, delay);
+        assertTrue(controller.reserve() <= max);
+
+        // A Retry-After within the cap is honored over the shorter back-off.
+        delay = controller.onFailure(1, new TooManyRequestsException("Too many requests.", 80));
+        assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(80) && delay <= max);
+    }
+}
@@ -0,0 +1,259 @@
+package com.github.steveice10.mc.auth.util;
+
+import org.junit.Test;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Base64Test {
+    private static final int OFFSET = 3;
+
+    @Test
+    public void testRoundTripMatchesJdk() {
+        Random random = new Random(0);
+        for(int length = 0; length <= 10; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            byte[] encoded = java.util.Base64.getEncoder().encode(data);
+            String message = "Length " + length;
+
+            assertEquals(message, encoded.length, Base64.getEncodedLength(length));
+            assertArrayEquals(message, encoded, Base64.encode(data));
+            assertArrayEquals(message, encoded, encodeWithOffsets(data));
+            for(ByteBuffer source : buffers(data)) {
+                for(ByteBuffer destination : new ByteBuffer[] {ByteBuffer.allocate(encoded.length), ByteBuffer.allocateDirect(encoded.length)}) {
+                    assertEquals(message, encoded.length, Base64.encode(source.duplicate(), destination));
+                    assertEquals(message, 0, destination.remaining());
+                    assertArrayEquals(message, encoded, contents(destination));
+                }
+            }
+
+            String text = new String(encoded, StandardCharsets.US_ASCII);
+            assertArrayEquals(message, data, Base64.decode(encoded));
+            assertArrayEquals(message, data, Base64.decode(text));
+            assertArrayEquals(message, data, decodeWithOffsets(encoded));
+            assertArrayEquals(message, data, decodeWithOffsets(text));
+
+            byte[] out = new byte[OFFSET + Base64.getMaxDecodedLength(encoded.length)];
+            assertEquals(message, length, Base64.decode(text, out, OFFSET));
+            assertArrayEquals(message, data, Arrays.copyOfRange(out, OFFSET, OFFSET + length));
+
+            for(ByteBuffer source : buffers(encoded)) {
+                for(ByteBuffer destination : new ByteBuffer[] {ByteBuffer.allocate(length), ByteBuffer.allocateDirect(length)}) {
+                    assertEquals(message, length, Base64.decode(source.duplicate(), destination));
+                    assertArrayEquals(message, data, contents(destination));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBufferPositionsAdvance() {
+        ByteBuffer source = ByteBuffer.wrap("xxQUJDREVG".getBytes(StandardCharsets.US_ASCII));
+        ((Buffer) source).position(2);
+        ByteBuffer destination = ByteBuffer.allocate(10);
+        ((Buffer) destination).position(1);
+
+        assertEquals(6, Base64.decode(source, destination));
+        assertEquals(source.limit(), source.position());
+        assertEquals(7, destination.position());
+
+        source = ByteBuffer.wrap("ABCDEF".getBytes(StandardCharsets.US_ASCII));
+        destination = ByteBuffer.allocate(10);
+        ((Buffer) destination).position(2);
+        assertEquals(8, Base64.encode(source, destination));
+        assertEquals(6, source.position());
+        assertEquals(10, destination.position());
+    }
+
+    @Test
+    public void testWhitespaceIsIgnored() {
+        String text = " QU\nJD\r\nRE\tVG ";
+        byte[] expected = "ABCDEF".getBytes(StandardCharsets.US_ASCII);
+        byte[] encoded = text.getBytes(StandardCharsets.US_ASCII);
+
+        assertArrayEquals(expected, Base64.decode(encoded));
+        assertArrayEquals(expected, Base64.decode(text));
+        assertArrayEquals(expected, decodeWithOffsets(encoded));
+        assertArrayEquals(expected, decodeWithOffsets(text));
+        for(ByteBuffer source : buffers(encoded)) {
+            ByteBuffer destination = ByteBuffer.allocate(Base64.getMaxDecodedLength(encoded.length));
+            Base64.decode(source, destination);
+            assertArrayEquals(expected, contents(destination));
+        }
+    }
+
+    @Test
+    public void testPadding() {
+        assertArrayEquals(new byte[] {'A'}, Base64.decode("QQ=="));
+        assertArrayEquals(new byte[] {'A', 'B'}, Base64.decode("QUI="));
+
+        // Padding ends decoding, so a second group after it is not read.
+        assertArrayEquals(new byte[] {'A'}, Base64.decode("QQ==QUJD"));
+    }
+
+    @Test
+    public void testBadPaddingIsRejected() {
+        for(String text : new String[] {"QQ=A", "A===", "====", "Q=AA"}) {
+            byte[] encoded = text.getBytes(StandardCharsets.US_ASCII);
+            try {
+                Base64.decode(encoded);
+                fail("Expected bad padding in " + text + " to be rejected.");
+            } catch(IllegalArgumentException expected) {
+            }
+
+            try {
+                Base64.decode(text);
+                fail("Expected bad padding in " + text + " to be rejected.");
+            } catch(IllegalArgumentException expected) {
+            }
+
+            for(ByteBuffer source : buffers(encoded)) {
+                try {
+                    Base64.decode(source, ByteBuffer.allocate(3));
+                    fail("Expected bad padding in " + text + " to be rejected.");
+                } catch(IllegalArgumentException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidCharacterIsRejected() {
+        try {
+            Base64.decode("QU*D");
+            fail("Expected the invalid character to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            Base64.decode("QU\u20acD");
+            fail("Expected the invalid character to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testTooSmallDestinationIsRejected() {
+        byte[] data = "ABCDEF".getBytes(StandardCharsets.US_ASCII);
+        byte[] encoded = Base64.encode(data);
+
+        try {
+            Base64.encode(data, 0, data.length, new byte[7], 0);
+            fail("Expected the destination to be too small.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            Base64.encode(data, 0, data.length, new byte[8], 1);
+            fail("Expected the destination to be too small.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            Base64.encode(ByteBuffer.wrap(data), ByteBuffer.allocateDirect(7));
+            fail("Expected the destination to be too small.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            Base64.decode(encoded, 0, encoded.length, new byte[5], 0);
+            fail("Expected the destination to be too small.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            Base64.decode("QUJDREVG", new byte[6], 1);
+            fail("Expected the destination to be too small.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        for(ByteBuffer source : buffers(encoded)) {
+            for(ByteBuffer destination : new ByteBuffer[] {ByteBuffer.allocate(5), ByteBuffer.allocateDirect(5)}) {
+                try {
+                    Base64.decode(source.duplicate(), destination);
+                    fail("Expected the destination to be too small.");
+                } catch(IllegalArgumentException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRangesAreChecked() {
+        try {
+            Base64.encode(new byte[4], 2, 3, new byte[8], 0);
+            fail("Expected the source range to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            Base64.decode("QUJD", 2, 4, new byte[3], 0);
+            fail("Expected the source range to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            Base64.decode(new byte[4], -1, 4, new byte[3], 0);
+            fail("Expected the source range to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+    }
+
+    private static byte[] encodeWithOffsets(byte[] data) {
+        byte[] source = new byte[OFFSET + data.length + OFFSET];
+        System.arraycopy(data, 0, source, OFFSET, data.length);
+
+        int length = Base64.getEncodedLength(data.length);
+        byte[] destination = new byte[OFFSET + length];
+        assertEquals(length, Base64.encode(source, OFFSET, data.length, destination, OFFSET));
+        return Arrays.copyOfRange(destination, OFFSET, destination.length);
+    }
+
+    private static byte[] decodeWithOffsets(byte[] encoded) {
+        byte[] source = new byte[OFFSET + encoded.length + OFFSET];
+        System.arraycopy(encoded, 0, source, OFFSET, encoded.length);
+
+        byte[] destination = new byte[OFFSET + Base64.getMaxDecodedLength(encoded.length)];
+        int length = Base64.decode(source, OFFSET, encoded.length, destination, OFFSET);
+        return Arrays.copyOfRange(destination, OFFSET, OFFSET + length);
+    }
+
+    private static byte[] decodeWithOffsets(String encoded) {
+        String source = "***" + encoded + "***";
+        byte[] destination = new byte[OFFSET + Base64.getMaxDecodedLength(encoded.length())];
+        int length = Base64.decode(source, OFFSET, encoded.length(), destination, OFFSET);
+        return Arrays.copyOfRange(destination, OFFSET, OFFSET + length);
+    }
+
+    /**
+     * Gets heap, direct and read-only buffers holding the given bytes, the first with an array offset.
+     */
+    private static ByteBuffer[] buffers(byte[] data) {
+        byte[] padded = new byte[OFFSET + data.length];
+        System.arraycopy(data, 0, padded, OFFSET, data.length);
+        ByteBuffer heap = ByteBuffer.wrap(padded);
+        ((Buffer) heap).position(OFFSET);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        ((Buffer) direct).flip();
+        return new ByteBuffer[] {heap.slice(), direct, ByteBuffer.wrap(data).asReadOnlyBuffer()};
+    }
+
+    private static byte[] contents(ByteBuffer buffer) {
+        ByteBuffer written = buffer.duplicate();
+        ((Buffer) written).flip();
+
+        byte[] contents = new byte[written.remaining()];
+        written.get(contents);
+        return contents;
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.steveice10.mc.auth.util;
+
+import com.github.steveice10.mc.auth.transport.HttpRequest;
+import com.github.steveice10.mc.auth.transport.HttpResponse;
+import com.github.steveice10.mc.auth.transport.HttpTransport;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class HTTPTest {
+    private static final URI URI = java.net.URI.create("https://example.com/");
+
+    @Test
+    public void testDecodesMultiByteCharacters() throws Exception {
+        // Long enough to cross the decoder's buffer, with characters that take two, three and four bytes.
+        StringBuilder value = new StringBuilder();
+        for(int i = 0; i < 5000; i++) {
+            value.append("aé€😀");
+        }
+
+        Response response = HTTP.makeRequest(transport(bytes("{\"value\":\"" + value + "\"}"), 1), Proxy.NO_PROXY, URI, null, Response.class);
+        assertEquals(value.toString(), response.value);
+    }
+
+    @Test
+    public void testReplacesMalformedInput() throws Exception {
+        byte[] body = bytes("{\"value\":\"a?b\"}");
+        body[11] = (byte) 0xff;
+
+        Response response = HTTP.makeRequest(transport(body, 3), Proxy.NO_PROXY, URI, null, Response.class);
+        assertEquals("a�b", response.value);
+    }
+
+    @Test
+    public void testReusesReaderAcrossResponses() throws Exception {
+        for(int i = 0; i < 3; i++) {
+            Response response = HTTP.makeRequest(transport(bytes("{\"value\":\"" + i + "é\"}"), 2), Proxy.NO_PROXY, URI, null, Response.class);
+            assertEquals(i + "é", response.value);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a transport whose response body hands out at most the given number of bytes per read.
+     */
+    private static HttpTransport transport(final byte[] body, final int chunk) {
+        return new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) {
+                InputStream in = new ByteArrayInputStream(body) {
+                    @Override
+                    public synchronized int read(byte[] b, int off, int len) {
+                        return super.read(b, off, Math.min(len, chunk));
+                    }
+                };
+
+                return new HttpResponse(200, request.getUri(), Collections.<String, List<String>>emptyMap(), in);
+            }
+        };
+    }
+
+    private static class Response {
+        private String value;
+    }
+}
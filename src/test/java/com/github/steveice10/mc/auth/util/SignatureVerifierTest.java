@@ -0,0 +1,39 @@
+package com.github.steveice10.mc.auth.util;
+
+import com.github.steveice10.mc.auth.data.GameProfile;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SignatureVerifierTest {
+    @Test
+    public void testPropertyReusesVerifierForKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        KeyPair pair = generator.generateKeyPair();
+
+        Signature signer = Signature.getInstance("SHA1withRSA");
+        signer.initSign(pair.getPrivate());
+        signer.update("e30=".getBytes(StandardCharsets.US_ASCII));
+        String signature = new String(Base64.encode(signer.sign()), StandardCharsets.US_ASCII);
+
+        GameProfile.Property property = new GameProfile.Property("textures", "e30=", signature);
+        SignatureVerifier verifier = SignatureVerifier.forKey(pair.getPublic());
+        assertSame(verifier, SignatureVerifier.forKey(pair.getPublic()));
+        assertSame(SignatureVerifier.getDefault(), SignatureVerifier.forKey(SignatureVerifier.getDefault().getKey()));
+
+        assertTrue(property.isSignatureValid(pair.getPublic()));
+        assertTrue(property.isSignatureValid(pair.getPublic()));
+        assertEquals(1, verifier.getCacheHitCount());
+
+        assertFalse(new GameProfile.Property("textures", "e31=", signature).isSignatureValid(pair.getPublic()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.steveice10.mc.auth.util;
+
+import com.github.steveice10.mc.auth.data.GameProfile;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingTypeAdapterFactoryTest {
+    @Test
+    public void testUnusedDirectionFallsBackToReflection() {
+        Gson gson = new Gson();
+
+        Response response = gson.fromJson("{\"value\":\"a\",\"ignored\":1}", Response.class);
+        assertEquals("streamed:a", response.value);
+        assertEquals("{\"value\":\"streamed:a\"}", gson.toJson(response));
+        assertNull(gson.fromJson("null", Response.class));
+        assertEquals("null", gson.toJson(null, Response.class));
+    }
+
+    @Test
+    public void testRegisteredOnBuilder() {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Response.Adapter()).create();
+        assertEquals("streamed:b", gson.fromJson("{\"value\":\"b\"}", Response.class).value);
+    }
+
+    @Test
+    public void testProfileAdaptersOnlyOnLibraryGson() {
+        GameProfile profile = new GameProfile(UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5"), "Notch");
+        profile.setProperties(Collections.singletonList(new GameProfile.Property("textures", "e30")));
+
+        assertEquals("{\"id\":\"069a79f444e94726a5befca90e38aaf5\",\"name\":\"Notch\",\"properties\":[{\"name\":\"textures\",\"value\":\"e30\"}]}", HTTP.getGson().toJson(profile));
+
+        // Other Gson instances keep binding profiles reflectively.
+        assertTrue(new Gson().toJson(profile).contains("\"texturesVerified\":false"));
+    }
+
+    @JsonAdapter(Response.Adapter.class)
+    private static class Response {
+        private String value;
+
+        private static class Adapter extends StreamingTypeAdapterFactory<Response> {
+            private Adapter() {
+                super(Response.class);
+            }
+
+            @Override
+            protected Response read(JsonReader in, TypeAdapter<Response> fallback) throws IOException {
+                Response response = new Response();
+                in.beginObject();
+                while(in.hasNext()) {
+                    if(in.nextName().equals("value")) {
+                        response.value = "streamed:" + in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+
+                in.endObject();
+                return response;
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.steveice10.mc.auth.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadUtilTest {
+    @Test
+    public void testLayerMatchesClasspath() {
+        // Set by the test run that puts the Java 21 layer of the multi-release JAR on the classpath.
+        assertEquals(Boolean.getBoolean("mcauthlib.test.java21Layer"), ThreadUtil.isVirtual());
+    }
+
+    @Test
+    public void testNewThreadKeepsJvmAlive() {
+        Thread thread = ThreadUtil.newThread(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, "ThreadUtilTest");
+
+        assertEquals("ThreadUtilTest", thread.getName());
+        assertFalse(thread.isDaemon());
+        assertEquals(Thread.State.NEW, thread.getState());
+    }
+
+    @Test
+    public void testExecutorThreadsDoNotKeepJvmAlive() throws Exception {
+        ExecutorService executor = ThreadUtil.newExecutor("ThreadUtilTest-");
+        try {
+            Thread thread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+            assertTrue(thread.isDaemon());
+            assertTrue(thread.getName().startsWith("ThreadUtilTest-"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
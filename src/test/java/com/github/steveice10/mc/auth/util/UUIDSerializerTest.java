@@ -0,0 +1,146 @@
+package com.github.steveice10.mc.auth.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class UUIDSerializerTest {
+    @Test
+    public void testRoundTripMatchesToString() {
+        Random random = new Random(0);
+        for(int i = 0; i < 100; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            String dashless = uuid.toString().replace("-", "");
+            assertEquals(dashless, UUIDSerializer.fromUUID(uuid));
+            assertEquals(uuid, UUIDSerializer.fromString(UUIDSerializer.fromUUID(uuid)));
+        }
+
+        assertEquals("00000000000000000000000000000000", UUIDSerializer.fromUUID(new UUID(0, 0)));
+        assertEquals("ffffffffffffffffffffffffffffffff", UUIDSerializer.fromUUID(new UUID(-1, -1)));
+        assertEquals("", UUIDSerializer.fromUUID(null));
+    }
+
+    @Test
+    public void testParsesDashlessAndDashedInEitherCase() {
+        Random random = new Random(1);
+        for(int i = 0; i < 100; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            String dashed = uuid.toString();
+            String dashless = dashed.replace("-", "");
+            assertEquals(uuid, UUIDSerializer.fromString(dashed));
+            assertEquals(uuid, UUIDSerializer.fromString(dashed.toUpperCase()));
+            assertEquals(uuid, UUIDSerializer.fromString(dashless));
+            assertEquals(uuid, UUIDSerializer.fromString(dashless.toUpperCase()));
+        }
+
+        assertNull(UUIDSerializer.fromString(null));
+        assertNull(UUIDSerializer.fromString(""));
+    }
+
+    @Test
+    public void testBadHexIsRejected() {
+        String[] values = {
+                "0123456789abcdef0123456789abcdeg",
+                "0123456789abcdef0123456789abcde ",
+                "+123456789abcdef0123456789abcdef",
+                "01234567-89ab-cdef-0123-456789abcdez",
+                "-1234567-89ab-cdef-0123-456789abcdef"
+        };
+
+        for(String value : values) {
+            try {
+                UUIDSerializer.fromString(value);
+                fail("Expected " + value + " to be rejected.");
+            } catch(IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testMisplacedDashesAreRejected() {
+        String[] values = {
+                "0123456-789ab-cdef-0123-456789abcdef",
+                "01234567-89abc-def-0123-456789abcdef",
+                "01234567-89ab-cdef0-123-456789abcdef",
+                "01234567-89ab-cdef-01234-56789abcdef",
+                "0123456789abcdef0123456789abcdef----",
+                "01234567-89ab-cdef-0123456789abcdef"
+        };
+
+        for(String value : values) {
+            try {
+                UUIDSerializer.fromString(value);
+                fail("Expected " + value + " to be rejected.");
+            } catch(IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testOtherLengthsAreLeftToJdk() {
+        assertEquals(UUID.fromString("1-2-3-4-5"), UUIDSerializer.fromString("1-2-3-4-5"));
+        assertEquals(UUID.fromString("123-4567-89ab-cdef-0123456789ab"), UUIDSerializer.fromString("123-4567-89ab-cdef-0123456789ab"));
+
+        try {
+            UUIDSerializer.fromString("0123456789abcdef");
+            fail("Expected a UUID of 16 characters to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testCharsAtOffset() {
+        UUID uuid = UUID.fromString("01234567-89ab-cdef-0123-456789abcdef");
+        char[] chars = new char[UUIDSerializer.LENGTH + 4];
+        Arrays.fill(chars, '*');
+
+        assertEquals(UUIDSerializer.LENGTH, UUIDSerializer.toChars(uuid, chars, 2));
+        assertEquals("**0123456789abcdef0123456789abcdef**", new String(chars));
+        assertEquals(uuid, UUIDSerializer.fromChars(chars, 2, UUIDSerializer.LENGTH));
+        assertEquals(uuid, UUIDSerializer.fromString(new StringBuilder("[").append(uuid).append(']'), 1, 36));
+    }
+
+    @Test
+    public void testCharBoundsAreChecked() {
+        UUID uuid = UUID.randomUUID();
+        char[] chars = new char[UUIDSerializer.LENGTH + 1];
+
+        for(int offset : new int[] {-1, 2}) {
+            try {
+                UUIDSerializer.toChars(uuid, chars, offset);
+                fail("Expected offset " + offset + " to be rejected.");
+            } catch(IllegalArgumentException expected) {
+            }
+
+            try {
+                UUIDSerializer.fromChars(chars, offset, UUIDSerializer.LENGTH);
+                fail("Expected offset " + offset + " to be rejected.");
+            } catch(IllegalArgumentException expected) {
+            }
+        }
+
+        try {
+            UUIDSerializer.fromChars(chars, 0, -1);
+            fail("Expected a negative length to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            UUIDSerializer.fromChars(null, 0, UUIDSerializer.LENGTH);
+            fail("Expected a null array to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+
+        try {
+            UUIDSerializer.toChars(null, chars, 0);
+            fail("Expected a null UUID to be rejected.");
+        } catch(IllegalArgumentException expected) {
+        }
+    }
+}